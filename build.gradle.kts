@@ -1,8 +1,19 @@
 plugins {
     id("org.orph2020.pst.common-plugin")
+    id("me.champeau.jmh") version "0.7.2"
 }
 version = "1.0"
 
+// CPU benchmarks of the hot paths in src/jmh - run with "gradle jmh", results are written as JSON
+// to build/results/jmh/results.json for comparison between releases
+jmh {
+    resultFormat.set("JSON")
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
+
 dependencies {
     implementation("io.quarkus:quarkus-mailer")
 
@@ -24,6 +35,9 @@ dependencies {
 //    implementation("io.quarkiverse.helm:quarkus-helm:0.1.2")
 
     implementation("io.quarkus:quarkus-arc")
+    implementation("io.quarkus:quarkus-cache")
+    implementation("io.quarkus:quarkus-scheduler")
+    implementation("io.quarkus:quarkus-micrometer-registry-prometheus") // cache and pst.* meters, see the metrics package
     implementation("io.quarkus:quarkus-keycloak-admin-client-reactive")
     implementation("io.quarkus:quarkus-resteasy-reactive-jackson")
     testImplementation("io.rest-assured:rest-assured")
@@ -38,4 +52,9 @@ dependencies {
     implementation("org.apache.poi:poi-ooxml:5.2.5")
 }
 
-
+// after a statement budget is changed, copies the statements recorded by the last test run to the
+// baselines that StatementBudget diffs against - run "gradle test recordStatementBudgets" and commit them
+tasks.register<Copy>("recordStatementBudgets") {
+    from(layout.buildDirectory.dir("statement-budgets"))
+    into("src/test/resources/statement-budgets")
+}
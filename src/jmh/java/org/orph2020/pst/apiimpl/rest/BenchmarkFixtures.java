@@ -0,0 +1,124 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.ivoa.dm.proposal.prop.CelestialTarget;
+import org.ivoa.dm.proposal.prop.FullExample;
+import org.ivoa.dm.proposal.prop.ObservingProposal;
+import org.ivoa.dm.proposal.prop.Target;
+import org.ivoa.dm.stc.coords.SpaceSys;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Fixture data for the benchmarks, built from the same FullExample that AppLifecycleBean seeds
+ * the database with.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {}
+
+    /**
+     * An ObjectMapper configured as the service's (Quarkus defaults plus
+     * quarkus.jackson.serialization-inclusion=non_empty).
+     */
+    static ObjectMapper serviceObjectMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .serializationInclusion(JsonInclude.Include.NON_EMPTY)
+                .build();
+    }
+
+    static ObservingProposal exampleProposal() {
+        return new FullExample().getProposalModel().getContent(ObservingProposal.class).get(0);
+    }
+
+    static SpaceSys exampleSpaceSys(ObservingProposal proposal) {
+        for (Target target : proposal.getTargets()) {
+            if (target instanceof CelestialTarget celestialTarget) {
+                return celestialTarget.getSourceCoordinates().getCoordSys();
+            }
+        }
+        throw new IllegalStateException("example proposal has no celestial targets");
+    }
+
+    /**
+     * Writes a target list in the plain text format read by TargetListFileReader.
+     */
+    static Path plainTextTargetList(int rows) throws IOException {
+        Path file = Files.createTempFile("targets-" + rows, ".txt");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("# name, ra, dec, pmra, pmdec");
+            for (int i = 0; i < rows; i++) {
+                out.printf("target-%d, %.6f, %.6f, %.3f, %.3f%n", i, ra(i), dec(i), 1.5, -0.5);
+            }
+        }
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Writes a target list as a VOTable, one of the formats StarTableReader auto-detects.
+     */
+    static Path voTableTargetList(int rows) throws IOException {
+        Path file = Files.createTempFile("targets-" + rows, ".vot");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("<?xml version=\"1.0\"?>");
+            out.println("<VOTABLE version=\"1.4\" xmlns=\"http://www.ivoa.net/xml/VOTable/v1.3\">");
+            out.println("<RESOURCE><TABLE>");
+            out.println("<FIELD name=\"NAME\" datatype=\"char\" arraysize=\"*\"/>");
+            out.println("<FIELD name=\"RA\" datatype=\"double\" unit=\"deg\"/>");
+            out.println("<FIELD name=\"DEC\" datatype=\"double\" unit=\"deg\"/>");
+            out.println("<FIELD name=\"PMRA\" datatype=\"double\" unit=\"mas.yr-1\"/>");
+            out.println("<FIELD name=\"PMDEC\" datatype=\"double\" unit=\"mas.yr-1\"/>");
+            out.println("<DATA><TABLEDATA>");
+            for (int i = 0; i < rows; i++) {
+                out.printf("<TR><TD>target-%d</TD><TD>%.6f</TD><TD>%.6f</TD><TD>1.5</TD><TD>NaN</TD></TR>%n",
+                        i, ra(i), dec(i));
+            }
+            out.println("</TABLEDATA></DATA>");
+            out.println("</TABLE></RESOURCE>");
+            out.println("</VOTABLE>");
+        }
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * A latexmk log of roughly the given number of lines, with a sprinkling of the warnings and
+     * errors that LatexLogScanner looks for.
+     */
+    static String latexLog(int lines) {
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            switch (i % 50) {
+                case 7 -> log.append("LaTeX Warning: Reference `fig:").append(i % 7)
+                        .append("' on page 1 undefined on input line ").append(i).append(".\n");
+                case 19 -> log.append("Package natbib Warning: Citation `ref").append(i % 11)
+                        .append("' on page 2 undefined on input\nline ").append(i).append(".\n");
+                case 31 -> log.append("! Undefined control sequence.\nl.").append(i).append(" \\foo\n");
+                default -> log.append("(/usr/share/texlive/texmf-dist/tex/latex/base/size10.clo File: ")
+                        .append(i).append(")\n");
+            }
+        }
+        log.append("Output written on out/compiledJustification.pdf (3 pages, 123456 bytes).\n");
+        return log.toString();
+    }
+
+    private static double ra(int i) {
+        return (i * 0.0137) % 360.0;
+    }
+
+    private static double dec(int i) {
+        return ((i * 0.0071) % 180.0) - 90.0;
+    }
+}
@@ -0,0 +1,36 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning the latexmk log after compiling the justifications.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LatexLogScannerBenchmark {
+
+    @Param({"1000", "50000"})
+    public int lines;
+
+    private String log;
+
+    @Setup
+    public void setup() {
+        log = BenchmarkFixtures.latexLog(lines);
+    }
+
+    @Benchmark
+    public void findWarnings(Blackhole blackhole) {
+        blackhole.consume(LatexLogScanner.findLatexWarnings(log));
+        blackhole.consume(LatexLogScanner.findNatBibWarnings(log));
+    }
+
+    @Benchmark
+    public void scanForErrors(Blackhole blackhole) {
+        blackhole.consume(LatexLogScanner.scanLogForErrors(log));
+    }
+}
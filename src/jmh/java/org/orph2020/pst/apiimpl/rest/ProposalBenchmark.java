@@ -0,0 +1,50 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.qute.Engine;
+import io.quarkus.qute.ReflectionValueResolver;
+import io.quarkus.qute.Template;
+import org.ivoa.dm.proposal.prop.ObservingProposal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a full proposal graph (the proposal GET and export endpoints) and
+ * building the overview HTML (the zip export).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProposalBenchmark {
+
+    private ObjectMapper mapper;
+    private ObservingProposal proposal;
+    private Template overviewTemplate;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = BenchmarkFixtures.serviceObjectMapper();
+        proposal = BenchmarkFixtures.exampleProposal();
+        // the same template as ProposalOverviewRenderer, in an engine of its own as there is no container
+        try (InputStream in = ProposalBenchmark.class.getResourceAsStream(
+                "/templates/ProposalOverviewRenderer/overview.html")) {
+            overviewTemplate = Engine.builder().addDefaults().addValueResolver(new ReflectionValueResolver())
+                    .build().parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Benchmark
+    public void serializeProposal() throws Exception {
+        mapper.writeValue(OutputStream.nullOutputStream(), proposal);
+    }
+
+    @Benchmark
+    public String overviewHTML() {
+        return overviewTemplate.data("overview", ProposalOverview.of(proposal, false)).render();
+    }
+}
@@ -0,0 +1,46 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import org.ivoa.dm.proposal.prop.Target;
+import org.ivoa.dm.stc.coords.SpaceSys;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading uploaded target lists, in the plain text and STIL (VOTable) formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class TargetListReaderBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int rows;
+
+    private SpaceSys spaceSys;
+    private List<String> existingNames;
+    private File plainTextFile;
+    private File voTableFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        spaceSys = BenchmarkFixtures.exampleSpaceSys(BenchmarkFixtures.exampleProposal());
+        existingNames = List.of("existing-1", "existing-2", "existing-3");
+        plainTextFile = BenchmarkFixtures.plainTextTargetList(rows).toFile();
+        voTableFile = BenchmarkFixtures.voTableTargetList(rows).toFile();
+    }
+
+    @Benchmark
+    public List<Target> readTargetListFile() {
+        return TargetListFileReader.readTargetListFile(plainTextFile, spaceSys, existingNames);
+    }
+
+    @Benchmark
+    public List<Target> convertToListOfTargets() {
+        return StarTableReader.convertToListOfTargets(voTableFile.getAbsolutePath(), spaceSys, existingNames);
+    }
+}
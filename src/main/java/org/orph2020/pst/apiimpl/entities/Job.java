@@ -0,0 +1,225 @@
+package org.orph2020.pst.apiimpl.entities;
+
+import jakarta.persistence.*;
+import org.orph2020.pst.apiimpl.jobs.JobStatus;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+
+import java.util.Date;
+
+/**
+ * A long-running operation (clone, export, PDF compilation...) queued for execution by
+ * {@link org.orph2020.pst.apiimpl.jobs.JobRunner}. The table is the queue: any replica may claim a
+ * queued job, see {@link org.orph2020.pst.apiimpl.jobs.JobQueue}.
+ */
+@Entity
+@Table(name = "pst_job", indexes = {
+        @Index(name = "pst_job_status_type", columnList = "status, job_type, created")
+})
+public class Job {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", length = 32, nullable = false)
+    private JobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 16, nullable = false)
+    private JobStatus status;
+
+    // the id of the object the job works on - a proposal, submitted proposal or cycle depending on the type
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId;
+
+    // further parameters of the job as a JSON object of strings
+    @Column(name = "parameters", columnDefinition = "text")
+    private String parameters;
+
+    // principal name and roles of the submitter, the job runs as this identity
+    @Column(name = "owner", nullable = false)
+    private String owner;
+
+    @Column(name = "owner_roles", columnDefinition = "text")
+    private String ownerRoles;
+
+    @Column(name = "progress", nullable = false)
+    private int progress;
+
+    @Column(name = "message", columnDefinition = "text")
+    private String message;
+
+    @Column(name = "cancel_requested", nullable = false)
+    private boolean cancelRequested;
+
+    // a small JSON result, or the store relative path of a file to download
+    @Column(name = "result", columnDefinition = "text")
+    private String result;
+
+    @Column(name = "result_path", length = 1024)
+    private String resultPath;
+
+    @Column(name = "result_filename")
+    private String resultFilename;
+
+    @Column(name = "result_media_type", length = 128)
+    private String resultMediaType;
+
+    // the replica running the job, and when it last reported that it is still doing so
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "heartbeat")
+    private Date heartbeat;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "created", nullable = false)
+    private Date created;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "started")
+    private Date started;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "finished")
+    private Date finished;
+
+    protected Job() {}
+
+    public Job(JobType type, Long subjectId, String parameters, String owner, String ownerRoles) {
+        this.type = type;
+        this.subjectId = subjectId;
+        this.parameters = parameters;
+        this.owner = owner;
+        this.ownerRoles = ownerRoles;
+        this.status = JobStatus.QUEUED;
+        this.created = new Date();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public JobType getType() {
+        return type;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public Long getSubjectId() {
+        return subjectId;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getOwnerRoles() {
+        return ownerRoles;
+    }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    public void setProgress(int progress) {
+        this.progress = progress;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void setCancelRequested(boolean cancelRequested) {
+        this.cancelRequested = cancelRequested;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    public String getResultPath() {
+        return resultPath;
+    }
+
+    public void setResultPath(String resultPath) {
+        this.resultPath = resultPath;
+    }
+
+    public String getResultFilename() {
+        return resultFilename;
+    }
+
+    public void setResultFilename(String resultFilename) {
+        this.resultFilename = resultFilename;
+    }
+
+    public String getResultMediaType() {
+        return resultMediaType;
+    }
+
+    public void setResultMediaType(String resultMediaType) {
+        this.resultMediaType = resultMediaType;
+    }
+
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public Date getHeartbeat() {
+        return heartbeat;
+    }
+
+    public void setHeartbeat(Date heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public Date getStarted() {
+        return started;
+    }
+
+    public void setStarted(Date started) {
+        this.started = started;
+    }
+
+    public Date getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Date finished) {
+        this.finished = finished;
+    }
+}
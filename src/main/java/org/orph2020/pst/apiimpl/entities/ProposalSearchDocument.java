@@ -0,0 +1,76 @@
+package org.orph2020.pst.apiimpl.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * The full text search document of a submitted proposal, with the cycle it is submitted to, maintained by
+ * persistence.ProposalSearchIndex.
+ * <p>
+ * The "search" column is a weighted tsvector generated by Postgres from the text columns - title (A),
+ * summary and target names (B), justification text (C) - and has a GIN index in production (see the
+ * Liquibase changelog).
+ */
+@Entity
+@Table(name = "proposal_search")
+public class ProposalSearchDocument {
+
+    /**
+     * The generated tsvector, kept in step with the Liquibase changelog.
+     */
+    public static final String SEARCH_VECTOR =
+            "tsvector generated always as ("
+            + "setweight(to_tsvector('english', coalesce(title, '')), 'A') || "
+            + "setweight(to_tsvector('english', coalesce(summary, '')), 'B') || "
+            + "setweight(to_tsvector('simple', coalesce(target_names, '')), 'B') || "
+            + "setweight(to_tsvector('english', coalesce(justification_text, '')), 'C')"
+            + ") stored";
+
+    @Id
+    @Column(name = "proposal_id")
+    private Long proposalId;
+
+    @Column(name = "cycle_id", nullable = false)
+    private Long cycleId;
+
+    @Column(name = "title", columnDefinition = "text")
+    private String title;
+
+    @Column(name = "summary", columnDefinition = "text")
+    private String summary;
+
+    @Column(name = "target_names", columnDefinition = "text")
+    private String targetNames;
+
+    @Column(name = "justification_text", columnDefinition = "text")
+    private String justificationText;
+
+    @Column(name = "search", columnDefinition = SEARCH_VECTOR, insertable = false, updatable = false)
+    private String search;
+
+    protected ProposalSearchDocument() {}
+
+    public ProposalSearchDocument(Long proposalId, Long cycleId, String title, String summary,
+                                  String targetNames, String justificationText) {
+        this.proposalId = proposalId;
+        this.cycleId = cycleId;
+        this.title = title;
+        this.summary = summary;
+        this.targetNames = targetNames;
+        this.justificationText = justificationText;
+    }
+
+    public Long getProposalId() {
+        return proposalId;
+    }
+
+    public Long getCycleId() {
+        return cycleId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
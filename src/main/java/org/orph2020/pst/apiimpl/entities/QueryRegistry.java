@@ -0,0 +1,251 @@
+package org.orph2020.pst.apiimpl.entities;
+
+/**
+ * The names of the named queries used by the list endpoints of the API. The queries themselves
+ * are declared at package level in {@code package-info.java} so that Hibernate parses them once
+ * when the persistence unit is built - any query that does not compile stops the application from
+ * starting.
+ * <p>
+ * All values are supplied as bound parameters, so the query text never changes with user input and
+ * the query plan cache is hit on every call. Optional string filters are passed as {@code null}
+ * when not in use.
+ */
+public final class QueryRegistry {
+
+    private QueryRegistry() {}
+
+    /**
+     * Synopsis rows (id, title, summary, kind) of the ObservingProposals the given person is an
+     * investigator on. Parameters: personId, investigatorName (nullable), title (nullable).
+     */
+    public static final String PROPOSAL_SYNOPSES = "ObservingProposal.synopsesForPerson";
+
+    /**
+     * The filter of the paginated proposal synopses - the ObservingProposals the given person is an
+     * investigator on, optionally restricted by another investigator's name, the title and the kind.
+     * Each filter is an exists subquery rather than a join, so no distinct is needed.
+     */
+    static final String PROPOSAL_SYNOPSES_FILTER =
+            "exists (select inv from Investigator inv "
+            + "where inv member of o.investigators and inv.person._id = :personId) "
+            + "and (:investigatorName is null or exists (select i from Investigator i "
+            + "where i member of o.investigators and i.person.fullName like :investigatorName)) "
+            + "and (:title is null or o.title like :title) "
+            + "and (:kind is null or o.kind = :kind) ";
+
+    /**
+     * A page of synopsis rows (id, title, summary, kind), ordered by title then id, of the
+     * ObservingProposals the given person is an investigator on. Parameters: personId,
+     * investigatorName (nullable), title (nullable), kind (nullable), afterKey and afterId (see
+     * the rest.PageRequest).
+     */
+    public static final String PROPOSAL_SYNOPSES_PAGE = "ObservingProposal.synopsesPageForPerson";
+
+    /**
+     * The number of rows of {@link #PROPOSAL_SYNOPSES_PAGE} over all pages. Parameters: as for
+     * PROPOSAL_SYNOPSES_PAGE without afterKey and afterId.
+     */
+    public static final String PROPOSAL_SYNOPSES_COUNT = "ObservingProposal.synopsesCountForPerson";
+
+    /**
+     * (id, sourceName) of the targets of an ObservingProposal.
+     * Parameters: proposalId, sourceName (nullable).
+     */
+    public static final String PROPOSAL_TARGETS = "ObservingProposal.targets";
+
+    /**
+     * (id, name) of the fields of an ObservingProposal. Parameters: proposalId, fieldName (nullable).
+     */
+    public static final String PROPOSAL_FIELDS = "ObservingProposal.fields";
+
+    /**
+     * (id, title) of ProposalCycles ordered by submission deadline.
+     * Parameters: includeClosed, observatoryId (zero for all observatories).
+     */
+    public static final String PROPOSAL_CYCLES = "ProposalCycle.list";
+
+    /**
+     * (id, title) of the ProposalCycles on whose TAC the given person sits.
+     * Parameters: personId, includeClosed, observatoryId (zero for all observatories).
+     */
+    public static final String TAC_MEMBER_PROPOSAL_CYCLES = "ProposalCycle.forTACMember";
+
+    /**
+     * The ids of the SubmittedProposals of a ProposalCycle. Parameters: cycleId.
+     */
+    public static final String CYCLE_SUBMITTED_PROPOSAL_IDS = "ProposalCycle.submittedProposalIds";
+
+    /**
+     * The id of the ProposalCycle a SubmittedProposal is submitted to, if any. Parameters: proposalId.
+     */
+    public static final String SUBMITTED_PROPOSAL_CYCLE = "ProposalCycle.ofSubmittedProposal";
+
+    /**
+     * (id, description, name) of the possible AllocationGrades of a ProposalCycle.
+     * Parameters: cycleId.
+     */
+    public static final String CYCLE_ALLOCATION_GRADES = "ProposalCycle.allocationGrades";
+
+    /**
+     * (id, fullName) of People. Parameters: name (nullable).
+     */
+    public static final String PEOPLE = "Person.list";
+
+    /**
+     * A page of (id, fullName) of People, ordered by fullName then id. Parameters: name (nullable),
+     * afterKey and afterId (see the rest.PageRequest).
+     */
+    public static final String PEOPLE_PAGE = "Person.page";
+
+    /**
+     * The number of People over all pages of {@link #PEOPLE_PAGE}. Parameters: name (nullable).
+     */
+    public static final String PEOPLE_COUNT = "Person.count";
+
+    /**
+     * (id, fullName) of the Person with the given email address, compared case-insensitively.
+     * Parameters: email.
+     */
+    public static final String PERSON_BY_EMAIL = "Person.byEmail";
+
+    /**
+     * The People whose email address, in lower case, is one of the given ones, oldest first. Backed by
+     * the person_email_lower index. Parameters: emails (lower case).
+     */
+    public static final String PEOPLE_BY_EMAILS = "Person.byEmails";
+
+    /**
+     * The Organizations with one of the given names, oldest first. Backed by the organization_name
+     * index. Parameters: names.
+     */
+    public static final String ORGANIZATIONS_BY_NAMES = "Organization.byNames";
+
+    /**
+     * The number of Investigators, of any proposal, that are the given Person. Parameters: id.
+     */
+    public static final String PERSON_INVESTIGATOR_COUNT = "Person.investigatorCount";
+
+    /**
+     * The number of People whose home institute is the given Organization. Parameters: id.
+     */
+    public static final String ORGANIZATION_PEOPLE_COUNT = "Organization.peopleCount";
+
+    /**
+     * The ids of the ObservingProposals that have the given Person as an investigator.
+     * Parameters: personId.
+     */
+    public static final String PERSON_PROPOSAL_IDS = "Person.proposalIds";
+
+    /**
+     * The ids of the ObservingProposals that have an investigator whose home institute is the given
+     * Organization. Parameters: organizationId.
+     */
+    public static final String ORGANIZATION_PROPOSAL_IDS = "Organization.proposalIds";
+
+    /**
+     * (SubmittedProposal id, ProposalCycle id) of the proposals submitted by the given person,
+     * either to the given cycle or, when cycleId is zero, to any cycle whose observation session
+     * has not yet ended. Parameters: personId, cycleId.
+     */
+    public static final String SUBMITTED_PROPOSALS_FOR_PERSON = "SubmittedProposal.forPerson";
+
+    /**
+     * The facts the validation rules need (see validation.ProposalFacts), as one row per proposal:
+     * id, title, target count, technical goal count, observation count, scientific justification format
+     * and text, technical justification format and text, and for the cycle given by the cycleId parameter
+     * (zero for none) its submission deadline, observatory name and '|' separated instrument names.
+     * The from clause must bind the proposal to "o".
+     */
+    static final String VALIDATION_FACTS_SELECT =
+            "select o._id, o.title, "
+            + "(select count(t) from AbstractProposal p join p.targets t where p._id = o._id), "
+            + "(select count(g) from AbstractProposal p join p.technicalGoals g where p._id = o._id), "
+            + "(select count(b) from AbstractProposal p join p.observations b where p._id = o._id), "
+            + "sj.format, sj.text, tj.format, tj.text, "
+            + "(select c.submissionDeadline from ProposalCycle c where c._id = :cycleId), "
+            + "(select obs.name from ProposalCycle c join c.observatory obs where c._id = :cycleId), "
+            + "(select listagg(i.name, '|') within group (order by i.name) "
+            + "from ProposalCycle c join c.observingModes om join om.instrument i where c._id = :cycleId) ";
+
+    /**
+     * The validation facts row of a proposal the given person is an investigator on.
+     * Parameters: proposalId, personId, cycleId (zero for none).
+     */
+    public static final String VALIDATION_FACTS = "AbstractProposal.validationFacts";
+
+    /**
+     * The validation facts rows of all the SubmittedProposals of the given cycle, validated against it.
+     * Parameters: cycleId.
+     */
+    public static final String CYCLE_VALIDATION_FACTS = "ProposalCycle.validationFacts";
+
+    /*
+     * The fetch queries of the persistence.ProposalFetchProfiles. Each loads one collection of the proposal
+     * (or of its children) with a fetch join. Parameters: id (of the proposal).
+     */
+
+    /**
+     * The investigators of the proposal with their people and the people's organisations.
+     */
+    public static final String PROPOSAL_FETCH_INVESTIGATORS = "AbstractProposal.fetchInvestigators";
+
+    public static final String PROPOSAL_FETCH_TARGETS = "AbstractProposal.fetchTargets";
+
+    public static final String PROPOSAL_FETCH_FIELDS = "AbstractProposal.fetchFields";
+
+    public static final String PROPOSAL_FETCH_TECHNICAL_GOALS = "AbstractProposal.fetchTechnicalGoals";
+
+    /**
+     * The spectral windows of all the technical goals of the proposal.
+     */
+    public static final String PROPOSAL_FETCH_SPECTRA = "AbstractProposal.fetchSpectra";
+
+    public static final String PROPOSAL_FETCH_OBSERVATIONS = "AbstractProposal.fetchObservations";
+
+    /**
+     * The targets of all the observations of the proposal.
+     */
+    public static final String PROPOSAL_FETCH_OBSERVATION_TARGETS = "AbstractProposal.fetchObservationTargets";
+
+    /**
+     * The constraints of all the observations of the proposal.
+     */
+    public static final String PROPOSAL_FETCH_OBSERVATION_CONSTRAINTS = "AbstractProposal.fetchObservationConstraints";
+
+    public static final String PROPOSAL_FETCH_SUPPORTING_DOCUMENTS = "AbstractProposal.fetchSupportingDocuments";
+
+    /**
+     * The celestial targets of a proposal, for its sky positions. Parameters: id (of the proposal).
+     */
+    public static final String PROPOSAL_CELESTIAL_TARGETS = "AbstractProposal.celestialTargets";
+
+    /**
+     * What the overview page shows of each investigator of a proposal, to key the cached page on:
+     * person id, full name, email, institute name, forPhD. Parameters: id.
+     */
+    public static final String PROPOSAL_INVESTIGATOR_KEYS = "AbstractProposal.investigatorKeys";
+
+    /**
+     * Those of the given names that are already used by targets of a proposal. Parameters: id, names.
+     */
+    public static final String PROPOSAL_TARGET_NAMES_USED = "AbstractProposal.targetNamesUsed";
+
+    /**
+     * The indexed sky positions of a proposal. Parameters: proposalId.
+     */
+    public static final String TARGET_POSITIONS_OF_PROPOSAL = "TargetPosition.ofProposal";
+
+    /**
+     * The indexed sky positions of the submitted proposals of a cycle, ordered by zone and right ascension.
+     * Parameters: cycleId.
+     */
+    public static final String TARGET_POSITIONS_OF_CYCLE = "TargetPosition.ofCycle";
+
+    /**
+     * The candidate sky positions of a cone search: those of the submitted proposals of a cycle in the
+     * zones and right ascension ranges (two, for a cone over ra 0) covering the cone, whose unit vectors are
+     * within minDot of the centre. Parameters: minZone, maxZone, ra1, ra2, ra3, ra4, x, y, z, minDot,
+     * cycleId.
+     */
+    public static final String TARGET_POSITIONS_IN_CONE = "TargetPosition.inCone";
+}
@@ -0,0 +1,52 @@
+package org.orph2020.pst.apiimpl.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+
+import java.util.Date;
+
+/**
+ * The version counter of an API resource (a proposal or a proposal cycle), incremented by every write
+ * endpoint that changes it. Used to produce ETags and Last-Modified headers for conditional GETs.
+ * <p>
+ * The key is "kind:id", e.g. "proposal:42".
+ */
+@Entity
+@Table(name = "resource_version")
+public class ResourceVersion {
+
+    @Id
+    @Column(name = "resource_key", length = 64)
+    private String key;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "last_modified", nullable = false)
+    private Date lastModified;
+
+    protected ResourceVersion() {}
+
+    public ResourceVersion(String key, long version, Date lastModified) {
+        this.key = key;
+        this.version = version;
+        this.lastModified = lastModified;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,126 @@
+package org.orph2020.pst.apiimpl.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * The sky position of a celestial target of a proposal (observing or submitted), maintained by
+ * persistence.TargetPositionIndex.
+ * <p>
+ * Positions are indexed with the zones algorithm: the sky is cut into declination bands ("zones") of
+ * ZONE_HEIGHT degrees and the (zone, ra) index narrows a cone search to a few short index ranges, which are
+ * then filtered exactly with the unit vector (cx, cy, cz) of the position.
+ */
+@Entity
+@Table(name = "target_position", indexes = {
+        @Index(name = "target_position_zone_ra", columnList = "zone, ra"),
+        @Index(name = "target_position_proposal", columnList = "proposal_id")
+})
+public class TargetPosition {
+
+    /**
+     * The height of a zone in degrees, kept in step with the zones already in the table - changing it
+     * needs a reindex.
+     */
+    public static final double ZONE_HEIGHT = 0.1;
+
+    @Id
+    @Column(name = "target_id")
+    private Long targetId;
+
+    @Column(name = "proposal_id", nullable = false)
+    private Long proposalId;
+
+    @Column(name = "source_name", columnDefinition = "text")
+    private String sourceName;
+
+    @Column(name = "ra", nullable = false)
+    private double ra;
+
+    @Column(name = "dec", nullable = false)
+    private double dec;
+
+    @Column(name = "zone", nullable = false)
+    private int zone;
+
+    @Column(name = "cx", nullable = false)
+    private double cx;
+
+    @Column(name = "cy", nullable = false)
+    private double cy;
+
+    @Column(name = "cz", nullable = false)
+    private double cz;
+
+    protected TargetPosition() {}
+
+    public TargetPosition(Long targetId, Long proposalId, String sourceName, double ra, double dec) {
+        this.targetId = targetId;
+        this.proposalId = proposalId;
+        set(sourceName, ra, dec);
+    }
+
+    /**
+     * Move the position, keeping the zone and unit vector in step.
+     * @param sourceName the name of the target
+     * @param ra the right ascension in degrees, in [0, 360)
+     * @param dec the declination in degrees
+     */
+    public void set(String sourceName, double ra, double dec) {
+        this.sourceName = sourceName;
+        this.ra = ra;
+        this.dec = dec;
+        this.zone = zone(dec);
+        double cosDec = Math.cos(Math.toRadians(dec));
+        this.cx = cosDec * Math.cos(Math.toRadians(ra));
+        this.cy = cosDec * Math.sin(Math.toRadians(ra));
+        this.cz = Math.sin(Math.toRadians(dec));
+    }
+
+    /**
+     * @param dec a declination in degrees
+     * @return the zone of the declination
+     */
+    public static int zone(double dec) {
+        return (int) Math.floor((dec + 90.0) / ZONE_HEIGHT);
+    }
+
+    public Long getTargetId() {
+        return targetId;
+    }
+
+    public Long getProposalId() {
+        return proposalId;
+    }
+
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    public double getRa() {
+        return ra;
+    }
+
+    public double getDec() {
+        return dec;
+    }
+
+    public int getZone() {
+        return zone;
+    }
+
+    public double getCx() {
+        return cx;
+    }
+
+    public double getCy() {
+        return cy;
+    }
+
+    public double getCz() {
+        return cz;
+    }
+}
@@ -4,5 +4,137 @@
  */
 /**
  * Entities that are necessary to complete the API, but are not part of ProposalDM
+ * <p>
+ * The named queries of the {@link org.orph2020.pst.apiimpl.entities.QueryRegistry} are declared here.
  */
-package org.orph2020.pst.apiimpl.entities;
\ No newline at end of file
+@NamedQuery(name = QueryRegistry.PROPOSAL_SYNOPSES,
+        //Investigator is joined twice, once for user view scope and again for searching other investigators.
+        query = "select distinct o._id,o.title,o.summary,o.kind from ObservingProposal o, Investigator inv, Investigator i "
+                + "where inv member of o.investigators and inv.person._id = :personId and i member of o.investigators "
+                + "and (:investigatorName is null or i.person.fullName like :investigatorName) "
+                + "and (:title is null or o.title like :title) "
+                + "order by o.title")
+@NamedQuery(name = QueryRegistry.PROPOSAL_SYNOPSES_PAGE,
+        query = "select o._id,o.title,o.summary,o.kind from ObservingProposal o "
+                + "where " + QueryRegistry.PROPOSAL_SYNOPSES_FILTER
+                + "and (:afterKey is null or coalesce(o.title,'') > :afterKey "
+                + "or (coalesce(o.title,'') = :afterKey and o._id > :afterId)) "
+                + "order by coalesce(o.title,''), o._id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_SYNOPSES_COUNT,
+        query = "select count(o) from ObservingProposal o where " + QueryRegistry.PROPOSAL_SYNOPSES_FILTER)
+@NamedQuery(name = QueryRegistry.PROPOSAL_TARGETS,
+        query = "select t._id,t.sourceName from ObservingProposal o inner join o.targets t "
+                + "where o._id = :proposalId and (:sourceName is null or t.sourceName like :sourceName) "
+                + "order by t.sourceName")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FIELDS,
+        query = "select f._id,f.name from ObservingProposal o inner join o.fields f "
+                + "where o._id = :proposalId and (:fieldName is null or f.name like :fieldName) "
+                + "order by f.name")
+@NamedQuery(name = QueryRegistry.PROPOSAL_CYCLES,
+        query = "select o._id,o.title from ProposalCycle o left join o.observatory obs "
+                + "where (:includeClosed = true or o.submissionDeadline > current_timestamp) "
+                + "and (:observatoryId <= 0 or obs._id = :observatoryId) "
+                + "order by o.submissionDeadline")
+@NamedQuery(name = QueryRegistry.TAC_MEMBER_PROPOSAL_CYCLES,
+        query = "select distinct p._id,p.title from ProposalCycle p join p.tac t join t.members m "
+                + "left join p.observatory obs "
+                + "where m.member.person._id = :personId "
+                + "and (:includeClosed = true or p.submissionDeadline > current_timestamp) "
+                + "and (:observatoryId <= 0 or obs._id = :observatoryId)")
+@NamedQuery(name = QueryRegistry.CYCLE_SUBMITTED_PROPOSAL_IDS,
+        query = "select s._id from ProposalCycle c join c.submittedProposals s where c._id = :cycleId")
+@NamedQuery(name = QueryRegistry.SUBMITTED_PROPOSAL_CYCLE,
+        query = "select c._id from ProposalCycle c join c.submittedProposals s where s._id = :proposalId")
+@NamedQuery(name = QueryRegistry.CYCLE_ALLOCATION_GRADES,
+        query = "select o._id,o.description,o.name from ProposalCycle p inner join p.possibleGrades o "
+                + "where p._id = :cycleId order by o.name")
+@NamedQuery(name = QueryRegistry.PEOPLE,
+        query = "select o._id,o.fullName from Person o "
+                + "where (:name is null or o.fullName like :name) order by o.fullName")
+@NamedQuery(name = QueryRegistry.PEOPLE_PAGE,
+        query = "select o._id,o.fullName from Person o "
+                + "where (:name is null or o.fullName like :name) "
+                + "and (:afterKey is null or coalesce(o.fullName,'') > :afterKey "
+                + "or (coalesce(o.fullName,'') = :afterKey and o._id > :afterId)) "
+                + "order by coalesce(o.fullName,''), o._id")
+@NamedQuery(name = QueryRegistry.PEOPLE_COUNT,
+        query = "select count(o) from Person o where (:name is null or o.fullName like :name)")
+@NamedQuery(name = QueryRegistry.PERSON_BY_EMAIL,
+        query = "select o._id,o.fullName from Person o where lower(o.eMail) = lower(:email)")
+@NamedQuery(name = QueryRegistry.PEOPLE_BY_EMAILS,
+        query = "select o from Person o where lower(o.eMail) in :emails order by o._id")
+@NamedQuery(name = QueryRegistry.ORGANIZATIONS_BY_NAMES,
+        query = "select o from Organization o where o.name in :names order by o._id")
+@NamedQuery(name = QueryRegistry.PERSON_INVESTIGATOR_COUNT,
+        query = "select count(i) from Investigator i where i.person._id = :id")
+@NamedQuery(name = QueryRegistry.ORGANIZATION_PEOPLE_COUNT,
+        query = "select count(o) from Person o where o.homeInstitute._id = :id")
+@NamedQuery(name = QueryRegistry.PERSON_PROPOSAL_IDS,
+        query = "select distinct o._id from ObservingProposal o join o.investigators i "
+                + "where i.person._id = :personId")
+@NamedQuery(name = QueryRegistry.ORGANIZATION_PROPOSAL_IDS,
+        query = "select distinct o._id from ObservingProposal o join o.investigators i "
+                + "where i.person.homeInstitute._id = :organizationId")
+@NamedQuery(name = QueryRegistry.SUBMITTED_PROPOSALS_FOR_PERSON,
+        query = "select distinct o._id,c._id from SubmittedProposal o, Investigator inv, ProposalCycle c "
+                + "where inv member of o.investigators and inv.person._id = :personId "
+                + "and o member of c.submittedProposals "
+                + "and ((:cycleId > 0 and c._id = :cycleId) "
+                + "or (:cycleId <= 0 and c.observationSessionEnd >= current_date))")
+@NamedQuery(name = QueryRegistry.VALIDATION_FACTS,
+        query = QueryRegistry.VALIDATION_FACTS_SELECT
+                + "from AbstractProposal o "
+                + "left join o.scientificJustification sj left join o.technicalJustification tj "
+                + "where o._id = :proposalId and exists (select inv from Investigator inv "
+                + "where inv member of o.investigators and inv.person._id = :personId)")
+@NamedQuery(name = QueryRegistry.CYCLE_VALIDATION_FACTS,
+        query = QueryRegistry.VALIDATION_FACTS_SELECT
+                + "from ProposalCycle pc join pc.submittedProposals o "
+                + "left join o.scientificJustification sj left join o.technicalJustification tj "
+                + "where pc._id = :cycleId order by o._id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_INVESTIGATORS,
+        query = "select o from AbstractProposal o left join fetch o.investigators i "
+                + "left join fetch i.person p left join fetch p.homeInstitute where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_INVESTIGATOR_KEYS,
+        query = "select p._id,p.fullName,p.eMail,h.name,i.forPhD from AbstractProposal o join o.investigators i "
+                + "join i.person p left join p.homeInstitute h where o._id = :id order by i._id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_TARGETS,
+        query = "select o from AbstractProposal o left join fetch o.targets where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_FIELDS,
+        query = "select o from AbstractProposal o left join fetch o.fields where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_TECHNICAL_GOALS,
+        query = "select o from AbstractProposal o left join fetch o.technicalGoals where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_SPECTRA,
+        query = "select g from AbstractProposal o join o.technicalGoals g left join fetch g.spectrum "
+                + "where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_OBSERVATIONS,
+        query = "select o from AbstractProposal o left join fetch o.observations where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_OBSERVATION_TARGETS,
+        query = "select b from AbstractProposal o join o.observations b left join fetch b.target "
+                + "where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_OBSERVATION_CONSTRAINTS,
+        query = "select b from AbstractProposal o join o.observations b left join fetch b.constraints "
+                + "where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_FETCH_SUPPORTING_DOCUMENTS,
+        query = "select o from AbstractProposal o left join fetch o.supportingDocuments where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_CELESTIAL_TARGETS,
+        query = "select t from AbstractProposal o join treat(o.targets as CelestialTarget) t where o._id = :id")
+@NamedQuery(name = QueryRegistry.PROPOSAL_TARGET_NAMES_USED,
+        query = "select t.sourceName from AbstractProposal o join o.targets t "
+                + "where o._id = :id and t.sourceName in :names")
+@NamedQuery(name = QueryRegistry.TARGET_POSITIONS_OF_PROPOSAL,
+        query = "select p from TargetPosition p where p.proposalId = :proposalId")
+@NamedQuery(name = QueryRegistry.TARGET_POSITIONS_OF_CYCLE,
+        query = "select p from TargetPosition p where p.proposalId in "
+                + "(select s._id from ProposalCycle c join c.submittedProposals s where c._id = :cycleId) "
+                + "order by p.zone, p.ra")
+@NamedQuery(name = QueryRegistry.TARGET_POSITIONS_IN_CONE,
+        query = "select p from TargetPosition p "
+                + "where p.zone between :minZone and :maxZone "
+                + "and (p.ra between :ra1 and :ra2 or p.ra between :ra3 and :ra4) "
+                + "and p.cx * :x + p.cy * :y + p.cz * :z >= :minDot "
+                + "and p.proposalId in "
+                + "(select s._id from ProposalCycle c join c.submittedProposals s where c._id = :cycleId)")
+package org.orph2020.pst.apiimpl.entities;
+
+import org.hibernate.annotations.NamedQuery;
@@ -0,0 +1,10 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+/**
+ * Thrown by {@link JobContext#checkCancelled()} to stop a job whose cancellation has been requested.
+ */
+public class JobCancelledException extends RuntimeException {
+    public JobCancelledException(Long jobId) {
+        super("job " + jobId + " cancelled");
+    }
+}
@@ -0,0 +1,64 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+import java.util.Map;
+
+/**
+ * The job being run by a {@link JobHandler}, through which it reports progress and learns of
+ * cancellation.
+ */
+public class JobContext {
+
+    private final Long jobId;
+    private final Long subjectId;
+    private final Map<String, String> parameters;
+    private final JobQueue queue;
+
+    JobContext(Long jobId, Long subjectId, Map<String, String> parameters, JobQueue queue) {
+        this.jobId = jobId;
+        this.subjectId = subjectId;
+        this.parameters = parameters;
+        this.queue = queue;
+    }
+
+    public Long jobId() {
+        return jobId;
+    }
+
+    public Long subjectId() {
+        return subjectId;
+    }
+
+    public String parameter(String name) {
+        return parameters.get(name);
+    }
+
+    public boolean booleanParameter(String name) {
+        return Boolean.parseBoolean(parameters.get(name));
+    }
+
+    /**
+     * @return the document store relative directory for the result files of this job, removed with the job
+     */
+    public String resultDirectory() {
+        return JobQueue.resultDirectory(jobId);
+    }
+
+    /**
+     * Record the progress of the job, this also tells other replicas that the job is still alive.
+     * @param percent 0 to 100
+     * @param message what the job is doing
+     */
+    public void progress(int percent, String message) {
+        queue.progress(jobId, percent, message);
+    }
+
+    /**
+     * Stops the job, by throwing {@link JobCancelledException}, if its cancellation has been requested.
+     * Handlers call this between the steps of their work.
+     */
+    public void checkCancelled() {
+        if (queue.isCancelRequested(jobId)) {
+            throw new JobCancelledException(jobId);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+import jakarta.ws.rs.WebApplicationException;
+
+import java.util.Map;
+
+/**
+ * Executes the jobs of one {@link JobType}. Implementations are CDI beans, found by {@link JobRunner}.
+ */
+public interface JobHandler {
+
+    JobType type();
+
+    /**
+     * Checks, in the submitting request, that the job may be run by the current user and that its
+     * subject exists. Called before the job is queued.
+     * @param subjectId the id of the object the job will work on
+     * @param parameters the further parameters of the job
+     * @throws WebApplicationException if the job may not be submitted
+     */
+    void checkSubmission(Long subjectId, Map<String, String> parameters) throws WebApplicationException;
+
+    /**
+     * Runs the job, on a worker thread with an active request context and the submitter's identity, but
+     * not in a transaction.
+     * @param context the job
+     * @return the result
+     * @throws Exception to fail the job, the message becomes the job message
+     */
+    JobOutcome run(JobContext context) throws Exception;
+}
@@ -0,0 +1,19 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+/**
+ * What a successful job produced: a small JSON result, or a file in the document store, or both.
+ * @param result JSON, may be null
+ * @param resultPath the document store relative path of the result file, may be null
+ * @param resultFilename the name to download the file as
+ * @param resultMediaType the media type of the file
+ */
+public record JobOutcome(String result, String resultPath, String resultFilename, String resultMediaType) {
+
+    public static JobOutcome json(String result) {
+        return new JobOutcome(result, null, null, null);
+    }
+
+    public static JobOutcome file(String resultPath, String resultFilename, String resultMediaType) {
+        return new JobOutcome(null, resultPath, resultFilename, resultMediaType);
+    }
+}
@@ -0,0 +1,302 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.WebApplicationException;
+import org.orph2020.pst.apiimpl.entities.Job;
+
+import java.util.*;
+
+/**
+ * The job queue, i.e. the pst_job table. Jobs are claimed with "select ... for update skip locked" so
+ * that several replicas can take work from the queue without blocking each other or running a job twice.
+ */
+@ApplicationScoped
+public class JobQueue {
+
+    private static final TypeReference<Map<String, String>> PARAMETERS_TYPE = new TypeReference<>() {};
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    ObjectMapper mapper;
+
+    static String resultDirectory(Long jobId) {
+        return "jobs/" + jobId + "/";
+    }
+
+    /**
+     * Queue a new job.
+     * @param type the type of the job
+     * @param subjectId the id of the object the job works on
+     * @param parameters further parameters of the job
+     * @param owner the principal name of the submitter
+     * @param ownerRoles the roles of the submitter
+     * @return the queued job
+     */
+    @Transactional
+    public Job submit(JobType type, Long subjectId, Map<String, String> parameters,
+                      String owner, Set<String> ownerRoles) {
+        String parametersJson;
+        try {
+            parametersJson = mapper.writeValueAsString(parameters == null ? Map.of() : parameters);
+        } catch (JsonProcessingException e) {
+            throw new WebApplicationException(e.getMessage(), 400);
+        }
+        Job job = new Job(type, subjectId, parametersJson, owner, String.join(",", ownerRoles));
+        em.persist(job);
+        return job;
+    }
+
+    /**
+     * Record an operation that is run by the request that starts it, rather than queued, so that its
+     * progress and outcome are kept (and visible to every replica) like those of a queued job. At most one
+     * job of the type runs for a subject at a time.
+     * @param type the type of the job
+     * @param subjectId the id of the object the job works on
+     * @param owner the principal name of the caller
+     * @param ownerRoles the roles of the caller
+     * @param node the name of the replica running it
+     * @return the id of the job, which is RUNNING, or empty if a job of the type is already running for the
+     * subject
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Optional<Long> start(JobType type, Long subjectId, String owner, Set<String> ownerRoles, String node) {
+        em.createNativeQuery("select pg_advisory_xact_lock(hashtext(:key))")
+                .setParameter("key", "pst_job:" + type.name() + ":" + subjectId)
+                .getSingleResult();
+
+        Number running = (Number) em.createNativeQuery(
+                        "select count(*) from pst_job where job_type = :type and subject_id = :subjectId "
+                                + "and status = 'RUNNING'")
+                .setParameter("type", type.name())
+                .setParameter("subjectId", subjectId)
+                .getSingleResult();
+        if (running.intValue() > 0) {
+            return Optional.empty();
+        }
+
+        Job job = new Job(type, subjectId, "{}", owner, String.join(",", ownerRoles));
+        Date now = new Date();
+        job.setStatus(JobStatus.RUNNING);
+        job.setClaimedBy(node);
+        job.setStarted(now);
+        job.setHeartbeat(now);
+        em.persist(job);
+        return Optional.of(job.getId());
+    }
+
+    public Job find(Long jobId) {
+        return em.find(Job.class, jobId);
+    }
+
+    /**
+     * @return the most recently created job of the type for the subject, or null
+     */
+    public Job latest(JobType type, Long subjectId) {
+        return em.createQuery("select j from Job j where j.type = :type and j.subjectId = :subjectId "
+                        + "order by j.created desc, j.id desc", Job.class)
+                .setParameter("type", type)
+                .setParameter("subjectId", subjectId)
+                .setMaxResults(1)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    public List<Job> jobsOf(String owner) {
+        return em.createQuery("select j from Job j where j.owner = :owner order by j.created desc", Job.class)
+                .setParameter("owner", owner)
+                .getResultList();
+    }
+
+    /**
+     * Cancel a job: a queued job is cancelled straight away, a running one is asked to stop at its next
+     * check. Finished jobs are not changed.
+     * @param jobId the job id
+     * @return the job
+     */
+    @Transactional
+    public Job cancel(Long jobId) {
+        Job job = em.find(Job.class, jobId, LockModeType.PESSIMISTIC_WRITE);
+        if (job == null) {
+            return null;
+        }
+        if (job.getStatus() == JobStatus.QUEUED) {
+            job.setStatus(JobStatus.CANCELLED);
+            job.setFinished(new Date());
+        } else if (job.getStatus() == JobStatus.RUNNING) {
+            job.setCancelRequested(true);
+        }
+        return job;
+    }
+
+    /**
+     * Claim the oldest queued job of the given type, unless the maximum number of jobs of the type are
+     * already running (on any replica). Claims of the same type are serialised with a transaction scoped
+     * advisory lock so that the running count is exact.
+     * @param type the job type
+     * @param maxConcurrent the maximum number of running jobs of the type
+     * @param node the name of the claiming replica
+     * @return the id of the claimed job, which is now RUNNING, or empty
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Optional<Long> claim(JobType type, int maxConcurrent, String node) {
+        em.createNativeQuery("select pg_advisory_xact_lock(hashtext(:key))")
+                .setParameter("key", "pst_job:" + type.name())
+                .getSingleResult();
+
+        Number running = (Number) em.createNativeQuery(
+                        "select count(*) from pst_job where job_type = :type and status = 'RUNNING'")
+                .setParameter("type", type.name())
+                .getSingleResult();
+        if (running.intValue() >= maxConcurrent) {
+            return Optional.empty();
+        }
+
+        List<?> ids = em.createNativeQuery(
+                        "select id from pst_job where job_type = :type and status = 'QUEUED' "
+                                + "order by created, id limit 1 for update skip locked")
+                .setParameter("type", type.name())
+                .getResultList();
+        if (ids.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Job job = em.find(Job.class, ((Number) ids.get(0)).longValue());
+        Date now = new Date();
+        job.setStatus(JobStatus.RUNNING);
+        job.setClaimedBy(node);
+        job.setStarted(now);
+        job.setHeartbeat(now);
+        job.setProgress(0);
+        return Optional.of(job.getId());
+    }
+
+    public Map<String, String> parameters(Job job) {
+        if (job.getParameters() == null) {
+            return Map.of();
+        }
+        try {
+            return mapper.readValue(job.getParameters(), PARAMETERS_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("job " + job.getId() + " has malformed parameters", e);
+        }
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void progress(Long jobId, int percent, String message) {
+        Job job = em.find(Job.class, jobId);
+        job.setProgress(Math.max(0, Math.min(100, percent)));
+        job.setMessage(message);
+        job.setHeartbeat(new Date());
+    }
+
+    /**
+     * Record the interim result of a running job, this also tells other replicas that it is still alive.
+     * @param jobId the job
+     * @param result JSON
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void result(Long jobId, String result) {
+        Job job = em.find(Job.class, jobId);
+        job.setResult(result);
+        job.setHeartbeat(new Date());
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public boolean isCancelRequested(Long jobId) {
+        return em.find(Job.class, jobId).isCancelRequested();
+    }
+
+    /**
+     * Tell the other replicas that these jobs are still being worked on.
+     * @param jobIds the jobs running on this replica
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void heartbeat(Collection<Long> jobIds) {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        em.createNativeQuery("update pst_job set heartbeat = :now where id in (:ids) and status = 'RUNNING'")
+                .setParameter("now", new Date())
+                .setParameter("ids", jobIds)
+                .executeUpdate();
+    }
+
+    /**
+     * Deal with running jobs whose replica has stopped reporting, e.g. because it was restarted: those of
+     * a {@link JobType#isRerunnable() rerunnable} type are returned to the queue, the others are failed.
+     * @param before jobs with no heartbeat since this time are stale
+     * @return the number of jobs requeued or failed
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int requeueStale(Date before) {
+        List<String> rerunnable = new ArrayList<>();
+        List<String> notRerunnable = new ArrayList<>();
+        for (JobType type : JobType.values()) {
+            (type.isRerunnable() ? rerunnable : notRerunnable).add(type.name());
+        }
+        int requeued = em.createNativeQuery(
+                        "update pst_job set status = 'QUEUED', claimed_by = null, progress = 0 "
+                                + "where status = 'RUNNING' and heartbeat < :before and job_type in (:types)")
+                .setParameter("before", before)
+                .setParameter("types", rerunnable)
+                .executeUpdate();
+        int failed = em.createNativeQuery(
+                        "update pst_job set status = 'FAILED', finished = :now, "
+                                + "message = 'stopped responding, not restarted as it cannot safely be run again' "
+                                + "where status = 'RUNNING' and heartbeat < :before and job_type in (:types)")
+                .setParameter("now", new Date())
+                .setParameter("before", before)
+                .setParameter("types", notRerunnable)
+                .executeUpdate();
+        return requeued + failed;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void succeed(Long jobId, JobOutcome outcome) {
+        Job job = em.find(Job.class, jobId);
+        job.setStatus(JobStatus.SUCCEEDED);
+        job.setProgress(100);
+        job.setResult(outcome.result());
+        job.setResultPath(outcome.resultPath());
+        job.setResultFilename(outcome.resultFilename());
+        job.setResultMediaType(outcome.resultMediaType());
+        job.setFinished(new Date());
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void fail(Long jobId, JobStatus status, String message) {
+        Job job = em.find(Job.class, jobId);
+        job.setStatus(status);
+        job.setMessage(message);
+        job.setFinished(new Date());
+    }
+
+    /**
+     * Delete the jobs that finished before the given time.
+     * @param before the cut-off time
+     * @return the ids of the deleted jobs, whose result directories can now be removed
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public List<Long> purgeFinished(Date before) {
+        List<Long> ids = em.createQuery(
+                        "select j.id from Job j where j.finished < :before", Long.class)
+                .setParameter("before", before)
+                .getResultList();
+        if (!ids.isEmpty()) {
+            em.createQuery("delete from Job j where j.id in :ids")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,158 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.scheduler.Scheduled;
+import io.quarkus.security.identity.CurrentIdentityAssociation;
+import io.quarkus.security.runtime.QuarkusPrincipal;
+import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.orph2020.pst.apiimpl.entities.Job;
+import org.orph2020.pst.apiimpl.rest.ProposalDocumentStore;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Takes jobs from the {@link JobQueue} and runs them on the managed executor. Every poll this replica
+ * <ul>
+ *     <li>refreshes the heartbeat of the jobs it is running,</li>
+ *     <li>requeues (or fails, see {@link JobType#isRerunnable()}) jobs whose replica has stopped sending
+ *     heartbeats,</li>
+ *     <li>claims queued jobs of each type up to the type's concurrency limit.</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class JobRunner {
+
+    @Inject
+    JobQueue queue;
+
+    @Inject
+    Instance<JobHandler> handlerBeans;
+
+    @Inject
+    ManagedExecutor executor;
+
+    @Inject
+    CurrentIdentityAssociation identityAssociation;
+
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    @ConfigProperty(name = "pst.jobs.stale-after", defaultValue = "PT10M")
+    Duration staleAfter;
+
+    @ConfigProperty(name = "pst.jobs.retention", defaultValue = "P7D")
+    Duration retention;
+
+    private final String node = System.getenv().getOrDefault("HOSTNAME", UUID.randomUUID().toString());
+
+    private final Map<JobType, JobHandler> handlers = new EnumMap<>(JobType.class);
+    private final Map<JobType, Integer> maxConcurrent = new EnumMap<>(JobType.class);
+
+    // jobs running on this replica
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        for (JobHandler handler : handlerBeans) {
+            handlers.put(handler.type(), handler);
+        }
+        for (JobType type : JobType.values()) {
+            maxConcurrent.put(type, ConfigProvider.getConfig()
+                    .getOptionalValue("pst.jobs.max-concurrent." + type.configName(), Integer.class)
+                    .orElse(type.defaultMaxConcurrent()));
+        }
+    }
+
+    /**
+     * @return the name of this replica, as recorded in the jobs it runs
+     */
+    public String node() {
+        return node;
+    }
+
+    /**
+     * @return true if jobs of the type can be queued, i.e. there is a handler to run them
+     */
+    public boolean hasHandler(JobType type) {
+        return handlers.containsKey(type);
+    }
+
+    public JobHandler handler(JobType type) {
+        JobHandler handler = handlers.get(type);
+        if (handler == null) {
+            throw new IllegalStateException("no handler for job type " + type);
+        }
+        return handler;
+    }
+
+    @Scheduled(every = "${pst.jobs.poll-interval:2s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void poll() {
+        queue.heartbeat(running);
+
+        int stale = queue.requeueStale(new Date(System.currentTimeMillis() - staleAfter.toMillis()));
+        if (stale > 0) {
+            Log.warnf("requeued or failed %d jobs with no heartbeat for %s", stale, staleAfter);
+        }
+
+        for (JobType type : handlers.keySet()) {
+            Optional<Long> claimed;
+            while ((claimed = queue.claim(type, maxConcurrent.get(type), node)).isPresent()) {
+                Long jobId = claimed.get();
+                running.add(jobId);
+                executor.execute(() -> execute(jobId));
+            }
+        }
+    }
+
+    @Scheduled(every = "1h", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void purge() {
+        for (Long jobId : queue.purgeFinished(new Date(System.currentTimeMillis() - retention.toMillis()))) {
+            try {
+                proposalDocumentStore.removeStorePath(JobQueue.resultDirectory(jobId));
+            } catch (IOException e) {
+                Log.warnf(e, "unable to remove the results of job %d", jobId);
+            }
+        }
+    }
+
+    private void execute(Long jobId) {
+        ManagedContext requestContext = Arc.container().requestContext();
+        requestContext.activate();
+        try {
+            Job job = QuarkusTransaction.requiringNew().call(() -> queue.find(jobId));
+            JobContext context = new JobContext(jobId, job.getSubjectId(), queue.parameters(job), queue);
+
+            // run as the submitter, so that the role checks of the resources the handlers use still apply
+            QuarkusSecurityIdentity.Builder identity = QuarkusSecurityIdentity.builder()
+                    .setPrincipal(new QuarkusPrincipal(job.getOwner()));
+            if (job.getOwnerRoles() != null && !job.getOwnerRoles().isEmpty()) {
+                identity.addRoles(new HashSet<>(Arrays.asList(job.getOwnerRoles().split(","))));
+            }
+            identityAssociation.setIdentity(identity.build());
+
+            JobOutcome outcome = handler(job.getType()).run(context);
+            queue.succeed(jobId, outcome);
+        } catch (JobCancelledException e) {
+            queue.fail(jobId, JobStatus.CANCELLED, "cancelled");
+        } catch (Exception e) {
+            Log.errorf(e, "job %d failed", jobId);
+            queue.fail(jobId, JobStatus.FAILED, e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+        } finally {
+            running.remove(jobId);
+            requestContext.terminate();
+        }
+    }
+}
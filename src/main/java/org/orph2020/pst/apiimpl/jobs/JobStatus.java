@@ -0,0 +1,16 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+/**
+ * The life cycle of a {@link org.orph2020.pst.apiimpl.entities.Job}.
+ */
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED;
+
+    public boolean isFinal() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+}
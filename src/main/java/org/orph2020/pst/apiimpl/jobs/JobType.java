@@ -0,0 +1,51 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+/**
+ * The kinds of job, each is executed by a {@link JobHandler}. The number of jobs of a type running at
+ * the same time, over all replicas, is limited to "pst.jobs.max-concurrent.&lt;type&gt;" (e.g.
+ * pst.jobs.max-concurrent.compile-justification), or the default given here.
+ * <p>
+ * A job whose replica stops sending heartbeats is queued again if its type can safely be run again from
+ * the start, otherwise it is failed.
+ */
+public enum JobType {
+    /** not rerunnable, a second run would add a second copy of the proposal */
+    CLONE_PROPOSAL(4, false),
+    EXPORT_PROPOSAL_ZIP(4, true),
+    ADMIN_ZIP(2, true),
+    COMPILE_JUSTIFICATION(2, true),
+    EXCEL_REVIEWS(1, true),
+    /** not rerunnable, the submissions of an interrupted purge are partly deleted */
+    PURGE_CYCLE_SUBMISSIONS(1, false),
+    /**
+     * a streaming target list ingestion, run in the request that uploads the list rather than queued, see
+     * {@link JobQueue#start}; the job records its progress and report
+     */
+    INGEST_TARGET_LIST(1, false);
+
+    private final int defaultMaxConcurrent;
+    private final boolean rerunnable;
+
+    JobType(int defaultMaxConcurrent, boolean rerunnable) {
+        this.defaultMaxConcurrent = defaultMaxConcurrent;
+        this.rerunnable = rerunnable;
+    }
+
+    public int defaultMaxConcurrent() {
+        return defaultMaxConcurrent;
+    }
+
+    /**
+     * @return true if a job of this type that was interrupted may be run again from the start
+     */
+    public boolean isRerunnable() {
+        return rerunnable;
+    }
+
+    /**
+     * @return the name of the type in configuration keys
+     */
+    public String configName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
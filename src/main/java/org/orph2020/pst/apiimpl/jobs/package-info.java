@@ -0,0 +1,7 @@
+/**
+ * Asynchronous execution of long-running operations. Jobs are rows of a database table claimed with
+ * "SKIP LOCKED", so that the work is shared between replicas, and are run with the identity of the user
+ * who submitted them. Submission, polling, cancellation and result download are in
+ * {@link org.orph2020.pst.apiimpl.rest.JobResource}.
+ */
+package org.orph2020.pst.apiimpl.jobs;
@@ -0,0 +1,42 @@
+package org.orph2020.pst.apiimpl.metrics;
+
+import io.smallrye.common.vertx.ContextLocals;
+import io.smallrye.common.vertx.VertxContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+
+import java.util.Optional;
+
+/**
+ * Remembers which endpoint a request was matched to, in the request's Vert.x context, so that meters
+ * recorded outside the REST layer (see {@link JdbcSessionMetrics}) can be tagged with it.
+ */
+public class EndpointTagFilter {
+
+    private static final String ENDPOINT = EndpointTagFilter.class.getName() + ".endpoint";
+
+    /**
+     * the endpoint tag of work not done for a REST request, e.g. jobs and scheduled tasks
+     */
+    static final String NO_ENDPOINT = "none";
+
+    @ServerRequestFilter
+    public void rememberEndpoint(ResourceInfo resourceInfo) {
+        if (resourceInfo.getResourceMethod() == null || !VertxContext.isOnDuplicatedContext()) {
+            return;
+        }
+        ContextLocals.put(ENDPOINT, resourceInfo.getResourceClass().getSimpleName()
+                + "." + resourceInfo.getResourceMethod().getName());
+    }
+
+    /**
+     * @return the "Resource.method" of the current request, or {@link #NO_ENDPOINT}
+     */
+    static String currentEndpoint() {
+        if (!VertxContext.isOnDuplicatedContext()) {
+            return NO_ENDPOINT;
+        }
+        Optional<String> endpoint = ContextLocals.get(ENDPOINT);
+        return endpoint.orElse(NO_ENDPOINT);
+    }
+}
@@ -0,0 +1,60 @@
+package org.orph2020.pst.apiimpl.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.engine.spi.SessionEventListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the number of JDBC statements and the time spent executing them for each Hibernate session,
+ * i.e. for each REST request, tagged with the endpoint of the request (see {@link EndpointTagFilter}). Hibernate creates one instance per session, it is registered with the
+ * "hibernate.session.events.auto" property, so it cannot be a CDI bean and uses the global registry
+ * (which Quarkus adds its Prometheus registry to).
+ */
+public class JdbcSessionMetrics implements SessionEventListener {
+
+    private int statements = 0;
+    private long executionNanos = 0;
+    private long executionStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statements++;
+        executionNanos += System.nanoTime() - executionStart;
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        statements++;
+        executionNanos += System.nanoTime() - executionStart;
+    }
+
+    @Override
+    public void end() {
+        if (statements > 0) {
+            String endpoint = EndpointTagFilter.currentEndpoint();
+            DistributionSummary.builder("pst.jpa.session.statements")
+                    .description("JDBC statements executed per Hibernate session")
+                    .tag("endpoint", endpoint)
+                    .register(Metrics.globalRegistry)
+                    .record(statements);
+            Timer.builder("pst.jpa.session.execution")
+                    .description("Time spent executing JDBC statements per Hibernate session")
+                    .tag("endpoint", endpoint)
+                    .register(Metrics.globalRegistry)
+                    .record(executionNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package org.orph2020.pst.apiimpl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Counts the outcome of sending each kind of mail.
+ */
+@ApplicationScoped
+public class MailMetrics {
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * @param template the name of the mail template, used as the "template" tag
+     * @param send the pending send of the mail
+     * @return the send, counting success or failure when it completes
+     */
+    public Uni<Void> counted(String template, Uni<Void> send) {
+        return send
+                .onItem().invoke(() -> registry.counter("pst.mail", "template", template, "outcome", "sent")
+                        .increment())
+                .onFailure().invoke(() -> registry.counter("pst.mail", "template", template, "outcome", "failed")
+                        .increment());
+    }
+}
@@ -0,0 +1,45 @@
+package org.orph2020.pst.apiimpl.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+import java.time.Duration;
+
+/**
+ * Publishes histogram buckets for the latency and size meters, so that quantiles can be aggregated
+ * across pods in Prometheus.
+ */
+@Singleton
+public class MetricsConfiguration {
+
+    /**
+     * The timers recorded with histograms - the per endpoint HTTP server timer and this service's own timers.
+     */
+    private static boolean isHistogram(Meter.Id id) {
+        return id.getName().equals("http.server.requests") || id.getName().startsWith("pst.");
+    }
+
+    @Produces
+    @Singleton
+    public MeterFilter enableHistograms() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (!isHistogram(id)) {
+                    return config;
+                }
+                DistributionStatisticConfig.Builder histogram = DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true);
+                if (id.getType() == Meter.Type.TIMER) {
+                    // latexmk runs can take tens of seconds
+                    histogram.minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                            .maximumExpectedValue((double) Duration.ofMinutes(2).toNanos());
+                }
+                return histogram.build().merge(config);
+            }
+        };
+    }
+}
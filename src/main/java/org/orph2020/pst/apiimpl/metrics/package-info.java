@@ -0,0 +1,5 @@
+/**
+ * Micrometer instrumentation that is not tied to a single resource - meter configuration, per-endpoint
+ * JDBC session statistics and mail outcomes. All meters are exposed on the Prometheus endpoint (/q/metrics).
+ */
+package org.orph2020.pst.apiimpl.metrics;
@@ -0,0 +1,20 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a resource whose write endpoints (POST, PUT, DELETE) modify observatory reference data, or single
+ * write endpoints of other resources that can.
+ * The {@link ReferenceDataCache} is evicted after such a call, and again once its transaction completes.
+ * @see ReferenceDataCache
+ */
+@InterceptorBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EvictsReferenceData {
+}
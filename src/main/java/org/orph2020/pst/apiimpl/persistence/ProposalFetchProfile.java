@@ -0,0 +1,63 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+
+import java.util.List;
+
+/**
+ * The parts of a proposal to load up front for an endpoint, rather than lazily one association (and one
+ * SELECT) at a time while it is serialised or copied.
+ * <p>
+ * A profile is a fixed list of fetch queries (see QueryRegistry.PROPOSAL_FETCH_*) that are run in the same
+ * persistence context as the proposal, each initialising its associations of the managed instances. The
+ * collections are lists (bags) and Hibernate can fetch only one bag per query, so there is one query per
+ * collection; the number of queries does not depend on the size of the proposal.
+ */
+public enum ProposalFetchProfile {
+
+    /**
+     * everything that is serialised with the proposal, for the JSON, the exports and cloning
+     */
+    FULL(List.of(
+            QueryRegistry.PROPOSAL_FETCH_INVESTIGATORS,
+            QueryRegistry.PROPOSAL_FETCH_TARGETS,
+            QueryRegistry.PROPOSAL_FETCH_FIELDS,
+            QueryRegistry.PROPOSAL_FETCH_TECHNICAL_GOALS,
+            QueryRegistry.PROPOSAL_FETCH_SPECTRA,
+            QueryRegistry.PROPOSAL_FETCH_OBSERVATIONS,
+            QueryRegistry.PROPOSAL_FETCH_OBSERVATION_TARGETS,
+            QueryRegistry.PROPOSAL_FETCH_OBSERVATION_CONSTRAINTS,
+            QueryRegistry.PROPOSAL_FETCH_SUPPORTING_DOCUMENTS)),
+
+    /**
+     * the proposal with its investigators, their people and organisations
+     */
+    SUMMARY(List.of(
+            QueryRegistry.PROPOSAL_FETCH_INVESTIGATORS)),
+
+    /**
+     * everything in the anonymised review copy, i.e. all but the investigators
+     */
+    REVIEW(List.of(
+            QueryRegistry.PROPOSAL_FETCH_TARGETS,
+            QueryRegistry.PROPOSAL_FETCH_FIELDS,
+            QueryRegistry.PROPOSAL_FETCH_TECHNICAL_GOALS,
+            QueryRegistry.PROPOSAL_FETCH_SPECTRA,
+            QueryRegistry.PROPOSAL_FETCH_OBSERVATIONS,
+            QueryRegistry.PROPOSAL_FETCH_OBSERVATION_TARGETS,
+            QueryRegistry.PROPOSAL_FETCH_OBSERVATION_CONSTRAINTS,
+            QueryRegistry.PROPOSAL_FETCH_SUPPORTING_DOCUMENTS));
+
+    private final List<String> queries;
+
+    ProposalFetchProfile(List<String> queries) {
+        this.queries = queries;
+    }
+
+    /**
+     * @return the names of the fetch queries, each takes the parameter id (of the proposal)
+     */
+    public List<String> queries() {
+        return queries;
+    }
+}
@@ -0,0 +1,76 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.ivoa.dm.proposal.prop.AbstractProposal;
+import org.ivoa.dm.proposal.prop.Justification;
+import org.orph2020.pst.apiimpl.entities.ProposalSearchDocument;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+
+/**
+ * Keeps the {@link ProposalSearchDocument}s, and the {@link TargetPositionIndex}, in step with the
+ * submitted proposals - both are only searched within a cycle's submissions. A proposal is indexed when it
+ * is submitted to a cycle, and its entries removed when it is withdrawn or deleted; the content of a
+ * submitted proposal does not change in between. Observing proposals are not indexed.
+ */
+@ApplicationScoped
+public class ProposalSearchIndex {
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TargetPositionIndex targetPositionIndex;
+
+    /**
+     * (Re)builds the search document and target positions of the given proposal, or removes them if the
+     * proposal is not (or no longer) submitted to a cycle. Must be called in a transaction, after the
+     * proposal has been added to or removed from the cycle.
+     * @param proposalId the id of a SubmittedProposal
+     */
+    public void reindex(Long proposalId) {
+        AbstractProposal proposal = em.find(AbstractProposal.class, proposalId);
+        ProposalSearchDocument existing = em.find(ProposalSearchDocument.class, proposalId);
+        Long cycleId = proposal == null ? null : em.createNamedQuery(
+                        QueryRegistry.SUBMITTED_PROPOSAL_CYCLE, Long.class)
+                .setParameter("proposalId", proposalId)
+                .getResultStream()
+                .findFirst()
+                .orElse(null);
+
+        if (cycleId == null) {
+            targetPositionIndex.remove(proposalId);
+            if (existing != null) {
+                em.remove(existing);
+            }
+            return;
+        }
+        targetPositionIndex.reindex(proposalId);
+
+        // queried rather than navigated, so that a proposal with a very large target list is not loaded
+        String targetNames = String.join(" ", em.createQuery(
+                        "select t.sourceName from AbstractProposal o join o.targets t "
+                                + "where o._id = :id and type(t) = CelestialTarget", String.class)
+                .setParameter("id", proposalId)
+                .getResultList());
+
+        ProposalSearchDocument document = new ProposalSearchDocument(
+                proposalId,
+                cycleId,
+                proposal.getTitle(),
+                proposal.getSummary(),
+                targetNames,
+                text(proposal.getScientificJustification()) + "\n" + text(proposal.getTechnicalJustification())
+        );
+        if (existing == null) {
+            em.persist(document);
+        } else {
+            em.merge(document);
+        }
+    }
+
+    private static String text(Justification justification) {
+        return justification == null || justification.getText() == null ? "" : justification.getText();
+    }
+}
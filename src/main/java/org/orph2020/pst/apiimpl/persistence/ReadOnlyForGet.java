@@ -0,0 +1,24 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the GET endpoints of the annotated resource with a read-only Hibernate session: entities are
+ * loaded read-only (no dirty-checking snapshots are kept) and the session is never flushed
+ * automatically. Only applies to calls made outside a transaction - any endpoint, or nested call,
+ * running in a transaction keeps the normal write semantics.
+ * <p>
+ * The binding is inherited, it is declared once on ObjectResourceBase.
+ */
+@Inherited
+@InterceptorBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadOnlyForGet {
+}
@@ -0,0 +1,49 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.GET;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+
+/**
+ * Switches the request's session to read-only, manual flush mode for the duration of a GET endpoint
+ * that runs outside a transaction, restoring the previous mode afterwards.
+ * @see ReadOnlyForGet
+ */
+@ReadOnlyForGet
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 300)
+public class ReadOnlyForGetInterceptor {
+
+    @Inject
+    Session session;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @AroundInvoke
+    Object readOnlyGet(InvocationContext context) throws Exception {
+        if (!context.getMethod().isAnnotationPresent(GET.class)
+                || transactionRegistry.getTransactionStatus() != Status.STATUS_NO_TRANSACTION) {
+            return context.proceed();
+        }
+
+        boolean previousReadOnly = session.isDefaultReadOnly();
+        FlushMode previousFlushMode = session.getHibernateFlushMode();
+
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        try {
+            return context.proceed();
+        } finally {
+            session.setDefaultReadOnly(previousReadOnly);
+            session.setHibernateFlushMode(previousFlushMode);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.orph2020.pst.common.json.ObjectIdentifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Application wide cache of the observatory reference data lists - observatories, their telescopes,
+ * instruments and backends, the observing modes of cycles, organisations and resource types - as the
+ * (id, name) identifiers the list endpoints return. Size and time-to-live are set by the "reference-data"
+ * cache configuration.
+ * <p>
+ * Only the identifiers are cached, never entities: the Hibernate second-level cache stays off as part of
+ * the Hibernate 6.6 workaround (see application.properties). Everything is evicted after the write
+ * endpoints of the resources marked {@link EvictsReferenceData}, and by the other writers of the lists
+ * calling {@link #evict()}.
+ * <p>
+ * An eviction also bumps the {@link VersionedResource#REFERENCE_DATA} version in the database. Every
+ * replica compares that version with the one it last saw, at most once per "pst.reference-data.check-interval",
+ * and evicts its own cache when it has changed, so a write on one replica is seen by the others within
+ * that interval.
+ */
+@ApplicationScoped
+public class ReferenceDataCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ReferenceDataCache.class);
+
+    // the id of the single REFERENCE_DATA version
+    private static final Long VERSION_ID = 0L;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    ResourceVersions resourceVersions;
+
+    @Inject
+    @CacheName("reference-data")
+    Cache cache;
+
+    @ConfigProperty(name = "pst.reference-data.check-interval", defaultValue = "5s")
+    Duration checkInterval;
+
+    private VersionCheck versionCheck;
+
+    @PostConstruct
+    void init() {
+        versionCheck = new VersionCheck(VersionedResource.REFERENCE_DATA, VERSION_ID, checkInterval);
+    }
+
+    /**
+     * Get a list of identifiers, loading it on a miss.
+     * @param key the key of the list, e.g. "observatory:4:telescopes"
+     * @param loader queries the list
+     * @return the (unmodifiable) list
+     */
+    public List<ObjectIdentifier> identifiers(String key, Supplier<List<ObjectIdentifier>> loader) {
+        // the version is read before the lists that are cached after it, so a write committed in between
+        // is noticed by the next check
+        if (versionCheck.changed(resourceVersions)) {
+            evictNow();
+        }
+        return cache.get(key, k -> List.copyOf(loader.get())).await().indefinitely();
+    }
+
+    /**
+     * Evict all the reference data, here and (by bumping the version) on the other replicas. If a
+     * transaction is active the version is bumped in it, and the local eviction is repeated when it
+     * completes, so that nothing read before the commit survives in the cache. Otherwise the version is
+     * bumped in a transaction of its own.
+     */
+    public void evict() {
+        evictNow();
+
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            resourceVersions.bump(VersionedResource.REFERENCE_DATA, VERSION_ID);
+            transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {}
+
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow();
+                }
+            });
+        } else {
+            QuarkusTransaction.requiringNew().run(
+                    () -> resourceVersions.bump(VersionedResource.REFERENCE_DATA, VERSION_ID));
+        }
+    }
+
+    private void evictNow() {
+        cache.invalidateAll().await().indefinitely();
+        LOGGER.debug("evicted the observatory reference data cache");
+    }
+}
@@ -0,0 +1,40 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
+
+import java.lang.reflect.Method;
+
+/**
+ * Evicts the reference data cache after the write endpoints of resources marked with
+ * {@link EvictsReferenceData}. Runs inside any transaction started by @Transactional.
+ */
+@EvictsReferenceData
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 300)
+public class ReferenceDataEvictionInterceptor {
+
+    @Inject
+    ReferenceDataCache referenceDataCache;
+
+    @AroundInvoke
+    Object evictAfterWrite(InvocationContext context) throws Exception {
+        Object result = context.proceed();
+        if (isWrite(context.getMethod())) {
+            referenceDataCache.evict();
+        }
+        return result;
+    }
+
+    private static boolean isWrite(Method method) {
+        return method.isAnnotationPresent(POST.class)
+                || method.isAnnotationPresent(PUT.class)
+                || method.isAnnotationPresent(DELETE.class);
+    }
+}
@@ -0,0 +1,80 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.DELETE;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.PathParam;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bumps resource versions after a successful write endpoint. Versioning only - the search index is
+ * maintained where proposals are submitted and withdrawn, see {@link ProposalSearchIndex}.
+ * @see TracksResourceVersions
+ */
+@TracksResourceVersions
+@Interceptor
+@Priority(Interceptor.Priority.PLATFORM_BEFORE + 300)
+public class ResourceVersionInterceptor {
+
+    private record VersionedParameter(int index, VersionedResource kind) {}
+
+    private static final Map<Method, List<VersionedParameter>> parametersByMethod = new ConcurrentHashMap<>();
+
+    @Inject
+    ResourceVersions resourceVersions;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @AroundInvoke
+    Object bumpAfterWrite(InvocationContext context) throws Exception {
+        Object result = context.proceed();
+
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            Object[] arguments = context.getParameters();
+            for (VersionedParameter p : parametersByMethod.computeIfAbsent(
+                    context.getMethod(), ResourceVersionInterceptor::versionedParameters)) {
+                if (arguments[p.index()] != null) {
+                    resourceVersions.bump(p.kind(), Long.valueOf(arguments[p.index()].toString()));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<VersionedParameter> versionedParameters(Method method) {
+        List<VersionedParameter> result = new ArrayList<>();
+        if (!(method.isAnnotationPresent(POST.class)
+                || method.isAnnotationPresent(PUT.class)
+                || method.isAnnotationPresent(DELETE.class))) {
+            return result;
+        }
+
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation annotation : annotations[i]) {
+                if (annotation instanceof PathParam pathParam) {
+                    for (VersionedResource kind : VersionedResource.values()) {
+                        if (kind.pathParameters().contains(pathParam.value())) {
+                            result.add(new VersionedParameter(i, kind));
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
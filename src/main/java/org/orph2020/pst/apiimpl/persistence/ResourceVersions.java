@@ -0,0 +1,76 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.entities.ResourceVersion;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads and increments the {@link ResourceVersion} of proposals and proposal cycles.
+ */
+@ApplicationScoped
+public class ResourceVersions {
+
+    @Inject
+    EntityManager em;
+
+    /**
+     * Get the current version of the given resource.
+     * @param kind the kind of resource
+     * @param id the database id of the resource
+     * @return the version, or null if the resource has not been written to since versions were recorded
+     */
+    public ResourceVersion current(VersionedResource kind, Long id) {
+        return em.find(ResourceVersion.class, kind.key(id));
+    }
+
+    /**
+     * Increment the version of the given resource, creating the version record if needed. Must be
+     * called in the transaction that makes the change.
+     * @param kind the kind of resource
+     * @param id the database id of the resource
+     */
+    public void bump(VersionedResource kind, Long id) {
+        em.createNativeQuery(
+                "insert into resource_version (resource_key, version, last_modified) values (:key, 1, :now) "
+                        + "on conflict (resource_key) do update "
+                        + "set version = resource_version.version + 1, last_modified = excluded.last_modified")
+                .setParameter("key", kind.key(id))
+                .setParameter("now", new Date())
+                .executeUpdate();
+    }
+
+    /**
+     * Increment the versions of the proposals that have the given person as an investigator, as the
+     * person is part of each proposal's representation. Must be called in the transaction that changes
+     * the person.
+     * @param personId the database id of the Person
+     */
+    public void bumpProposalsOfPerson(Long personId) {
+        bumpAll(VersionedResource.PROPOSAL, em.createNamedQuery(QueryRegistry.PERSON_PROPOSAL_IDS, Long.class)
+                .setParameter("personId", personId)
+                .getResultList());
+    }
+
+    /**
+     * Increment the versions of the proposals that have an investigator from the given organization, as
+     * the home institute of each investigator is part of the proposal's representation. Must be called in
+     * the transaction that changes the organization.
+     * @param organizationId the database id of the Organization
+     */
+    public void bumpProposalsOfOrganization(Long organizationId) {
+        bumpAll(VersionedResource.PROPOSAL, em.createNamedQuery(QueryRegistry.ORGANIZATION_PROPOSAL_IDS, Long.class)
+                .setParameter("organizationId", organizationId)
+                .getResultList());
+    }
+
+    private void bumpAll(VersionedResource kind, List<Long> ids) {
+        for (Long id : ids) {
+            bump(kind, id);
+        }
+    }
+}
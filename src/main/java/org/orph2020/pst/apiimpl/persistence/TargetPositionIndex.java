@@ -0,0 +1,274 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.ivoa.dm.ivoa.RealQuantity;
+import org.ivoa.dm.proposal.prop.CelestialTarget;
+import org.ivoa.dm.stc.coords.EquatorialPoint;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.entities.TargetPosition;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link TargetPosition}s in step with the celestial targets of the proposals, and answers cone
+ * searches and duplicate (close pair) searches over them. Reindexed with the search index, see
+ * {@link ProposalSearchIndex#reindex}, i.e. when a proposal is submitted or withdrawn (and by the reindex
+ * endpoint of a cycle), so only submitted proposals have positions - proposals being written are not
+ * indexed. Every search is over the submitted proposals of one cycle; there is no search across cycles.
+ * <p>
+ * Positions are taken as equatorial (ICRS/FK5) right ascension and declination; targets given in another
+ * frame, e.g. galactic, are not indexed. Radii are in degrees.
+ */
+@ApplicationScoped
+public class TargetPositionIndex {
+
+    /**
+     * A position that matched a search, with its separation (in degrees) from the search position or from
+     * the other position of a pair.
+     */
+    public record Match(TargetPosition position, double separation) {}
+
+    /**
+     * Two positions of different proposals that are within the search radius of each other.
+     */
+    public record Pair(TargetPosition first, TargetPosition second, double separation) {}
+
+    private static final Set<String> nonEquatorialFrames = Set.of("GALACTIC", "SUPER_GALACTIC", "ECLIPTIC");
+
+    @Inject
+    EntityManager em;
+
+    /**
+     * (Re)builds the positions of the targets of the given proposal, or removes them if the proposal no
+     * longer exists. Only the positions that have changed are written. Must be called in a transaction.
+     * @param proposalId the id of a SubmittedProposal
+     */
+    public void reindex(Long proposalId) {
+        Map<Long, TargetPosition> existing = em.createNamedQuery(
+                        QueryRegistry.TARGET_POSITIONS_OF_PROPOSAL, TargetPosition.class)
+                .setParameter("proposalId", proposalId)
+                .getResultStream()
+                .collect(Collectors.toMap(TargetPosition::getTargetId, Function.identity()));
+
+        List<CelestialTarget> targets = em.createNamedQuery(
+                        QueryRegistry.PROPOSAL_CELESTIAL_TARGETS, CelestialTarget.class)
+                .setParameter("id", proposalId)
+                .getResultList();
+
+        for (CelestialTarget target : targets) {
+            double[] radec = equatorialDegrees(target.getSourceCoordinates());
+            if (radec == null) {
+                continue;
+            }
+            TargetPosition position = existing.remove(target.getId());
+            if (position == null) {
+                em.persist(new TargetPosition(target.getId(), proposalId, target.getSourceName(),
+                        radec[0], radec[1]));
+            } else if (position.getRa() != radec[0] || position.getDec() != radec[1]
+                    || !Objects.equals(position.getSourceName(), target.getSourceName())) {
+                position.set(target.getSourceName(), radec[0], radec[1]);
+            }
+        }
+        existing.values().forEach(em::remove);
+    }
+
+    /**
+     * Removes the positions of the targets of the given proposal. Must be called in a transaction.
+     * @param proposalId the id of a proposal that is no longer submitted, or no longer exists
+     */
+    public void remove(Long proposalId) {
+        em.createNamedQuery(QueryRegistry.TARGET_POSITIONS_OF_PROPOSAL, TargetPosition.class)
+                .setParameter("proposalId", proposalId)
+                .getResultStream()
+                .forEach(em::remove);
+    }
+
+    /**
+     * Find the targets of the submitted proposals of a cycle within the radius of a position.
+     * @param ra the right ascension of the centre in degrees
+     * @param dec the declination of the centre in degrees
+     * @param radius the radius of the cone in degrees
+     * @param cycleId the cycle whose submitted proposals are searched
+     * @return the matches, nearest first
+     */
+    public List<Match> cone(double ra, double dec, double radius, long cycleId) {
+        ra = normaliseRa(ra);
+        double[] centre = unitVector(ra, dec);
+        double[][] raRanges = raRanges(ra, raHalfWidth(dec, radius));
+
+        List<TargetPosition> candidates = em.createNamedQuery(
+                        QueryRegistry.TARGET_POSITIONS_IN_CONE, TargetPosition.class)
+                .setParameter("minZone", TargetPosition.zone(Math.max(dec - radius, -90.0)))
+                .setParameter("maxZone", TargetPosition.zone(Math.min(dec + radius, 90.0)))
+                .setParameter("ra1", raRanges[0][0])
+                .setParameter("ra2", raRanges[0][1])
+                .setParameter("ra3", raRanges[1][0])
+                .setParameter("ra4", raRanges[1][1])
+                .setParameter("x", centre[0])
+                .setParameter("y", centre[1])
+                .setParameter("z", centre[2])
+                // a little slack for rounding, the separation below is exact
+                .setParameter("minDot", Math.cos(Math.toRadians(radius)) - 1e-12)
+                .setParameter("cycleId", cycleId)
+                .getResultList();
+
+        List<Match> result = new ArrayList<>();
+        for (TargetPosition p : candidates) {
+            double separation = separation(centre, p);
+            if (separation <= radius) {
+                result.add(new Match(p, separation));
+            }
+        }
+        result.sort(Comparator.comparingDouble(Match::separation));
+        return result;
+    }
+
+    /**
+     * Find the pairs of targets of different submitted proposals of a cycle that are within the radius of
+     * each other, i.e. the duplicated targets.
+     * <p>
+     * The positions are loaded once, ordered by zone and right ascension, and each is matched against the
+     * neighbouring zones with binary searches on right ascension, so the cost grows as n log n.
+     * @param radius the largest separation of a pair in degrees
+     * @param cycleId the cycle whose submitted proposals are searched
+     * @return the pairs, closest first
+     */
+    public List<Pair> pairs(double radius, long cycleId) {
+        List<TargetPosition> positions = em.createNamedQuery(
+                        QueryRegistry.TARGET_POSITIONS_OF_CYCLE, TargetPosition.class)
+                .setParameter("cycleId", cycleId)
+                .getResultList();
+
+        // the positions of each zone, in right ascension order
+        Map<Integer, List<TargetPosition>> zones = new HashMap<>();
+        for (TargetPosition p : positions) {
+            zones.computeIfAbsent(p.getZone(), z -> new ArrayList<>()).add(p);
+        }
+
+        List<Pair> result = new ArrayList<>();
+        for (TargetPosition a : positions) {
+            double[] va = {a.getCx(), a.getCy(), a.getCz()};
+            double[][] raRanges = raRanges(a.getRa(), raHalfWidth(a.getDec(), radius));
+            int maxZone = TargetPosition.zone(Math.min(a.getDec() + radius, 90.0));
+            for (int z = TargetPosition.zone(Math.max(a.getDec() - radius, -90.0)); z <= maxZone; z++) {
+                List<TargetPosition> zone = zones.get(z);
+                if (zone == null) {
+                    continue;
+                }
+                for (double[] range : raRanges) {
+                    for (int i = firstAtOrAbove(zone, range[0]); i < zone.size()
+                            && zone.get(i).getRa() <= range[1]; i++) {
+                        TargetPosition b = zone.get(i);
+                        // each pair once, and only between proposals
+                        if (a.getTargetId() >= b.getTargetId() || a.getProposalId().equals(b.getProposalId())) {
+                            continue;
+                        }
+                        double separation = separation(va, b);
+                        if (separation <= radius) {
+                            result.add(new Pair(a, b, separation));
+                        }
+                    }
+                }
+            }
+        }
+        result.sort(Comparator.comparingDouble(Pair::separation));
+        return result;
+    }
+
+    // the right ascension and declination in degrees, or null if they are missing or not equatorial
+    private static double[] equatorialDegrees(EquatorialPoint point) {
+        if (point == null || point.getLon() == null || point.getLat() == null
+                || point.getLon().getValue() == null || point.getLat().getValue() == null) {
+            return null;
+        }
+        if (point.getCoordSys() != null && point.getCoordSys().getFrame() != null
+                && point.getCoordSys().getFrame().getSpaceRefFrame() != null
+                && nonEquatorialFrames.contains(point.getCoordSys().getFrame().getSpaceRefFrame().toUpperCase())) {
+            return null;
+        }
+        double dec = degrees(point.getLat());
+        if (Double.isNaN(dec) || dec < -90.0 || dec > 90.0) {
+            return null;
+        }
+        return new double[] {normaliseRa(degrees(point.getLon())), dec};
+    }
+
+    private static double degrees(RealQuantity quantity) {
+        String unit = quantity.getUnit() == null ? null : quantity.getUnit().value();
+        if (unit != null && (unit.equals("rad") || unit.equals("radians"))) {
+            return Math.toDegrees(quantity.getValue());
+        }
+        return quantity.getValue();
+    }
+
+    private static double normaliseRa(double ra) {
+        double r = ra % 360.0;
+        return r < 0 ? r + 360.0 : r;
+    }
+
+    private static double[] unitVector(double ra, double dec) {
+        double cosDec = Math.cos(Math.toRadians(dec));
+        return new double[] {
+                cosDec * Math.cos(Math.toRadians(ra)),
+                cosDec * Math.sin(Math.toRadians(ra)),
+                Math.sin(Math.toRadians(dec))
+        };
+    }
+
+    // the angle between the unit vectors in degrees, from the chord length as acos loses small angles
+    private static double separation(double[] v, TargetPosition p) {
+        double dx = v[0] - p.getCx();
+        double dy = v[1] - p.getCy();
+        double dz = v[2] - p.getCz();
+        return Math.toDegrees(2.0 * Math.asin(Math.min(1.0, Math.sqrt(dx * dx + dy * dy + dz * dz) / 2.0)));
+    }
+
+    /**
+     * The half width in right ascension of the circle of the given radius about the declination, from the
+     * zones algorithm; 180 if the circle reaches a pole.
+     */
+    static double raHalfWidth(double dec, double radius) {
+        if (Math.abs(dec) + radius >= 89.9) {
+            return 180.0;
+        }
+        double r = Math.toRadians(radius);
+        double d = Math.toRadians(dec);
+        return Math.toDegrees(Math.abs(Math.atan(
+                Math.sin(r) / Math.sqrt(Math.abs(Math.cos(d - r) * Math.cos(d + r))))));
+    }
+
+    // the (at most two, with wrap around) right ascension ranges within the half width of ra
+    private static double[][] raRanges(double ra, double halfWidth) {
+        double[] none = {-1.0, -1.0};
+        if (halfWidth >= 180.0) {
+            return new double[][] {{0.0, 360.0}, none};
+        }
+        double low = ra - halfWidth;
+        double high = ra + halfWidth;
+        if (low < 0.0) {
+            return new double[][] {{0.0, high}, {low + 360.0, 360.0}};
+        }
+        if (high >= 360.0) {
+            return new double[][] {{low, 360.0}, {0.0, high - 360.0}};
+        }
+        return new double[][] {{low, high}, none};
+    }
+
+    private static int firstAtOrAbove(List<TargetPosition> zone, double ra) {
+        int low = 0;
+        int high = zone.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (zone.get(mid).getRa() < ra) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,23 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Increments the {@link VersionedResource} versions of the proposal and/or cycle identified by the
+ * path parameters of the annotated resource's write endpoints (POST, PUT, DELETE), in the same
+ * transaction as the write.
+ * <p>
+ * The binding is inherited, it is declared once on ObjectResourceBase.
+ */
+@Inherited
+@InterceptorBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TracksResourceVersions {
+}
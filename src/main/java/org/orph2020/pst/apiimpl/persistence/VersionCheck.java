@@ -0,0 +1,45 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import org.orph2020.pst.apiimpl.entities.ResourceVersion;
+
+import java.time.Duration;
+
+/**
+ * Notices, at most once per interval, that another replica has bumped a version - used by the application
+ * wide caches to evict what the other replicas have changed. Not thread safe beyond what matters for
+ * that: two threads may both read the version, and then both evict.
+ */
+public class VersionCheck {
+
+    private final VersionedResource kind;
+    private final Long id;
+    private final Duration interval;
+
+    // the version last read, -1 before the first read, and when it was read
+    private volatile long seenVersion = -1;
+    private volatile long checkedAt = 0;
+
+    public VersionCheck(VersionedResource kind, Long id, Duration interval) {
+        this.kind = kind;
+        this.id = id;
+        this.interval = interval;
+    }
+
+    /**
+     * Read the version if the interval has passed since it was last read.
+     * @param resourceVersions to read the version with
+     * @return true if the version has changed since it was last read, never on the first read
+     */
+    public boolean changed(ResourceVersions resourceVersions) {
+        long now = System.currentTimeMillis();
+        if (now - checkedAt < interval.toMillis()) {
+            return false;
+        }
+        checkedAt = now;
+        ResourceVersion version = resourceVersions.current(kind, id);
+        long current = version == null ? 0 : version.getVersion();
+        boolean changed = seenVersion >= 0 && current != seenVersion;
+        seenVersion = current;
+        return changed;
+    }
+}
@@ -0,0 +1,44 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import java.util.List;
+
+/**
+ * The kinds of resource that carry a {@link org.orph2020.pst.apiimpl.entities.ResourceVersion}, with the
+ * names of the path parameters that identify them in the REST API, and whether reading them is restricted
+ * to the investigators of the resource.
+ * <p>
+ * REFERENCE_DATA and SUBJECT_MAP are not REST resources: each is a single version (id 0) of everything
+ * held by the {@link ReferenceDataCache} and the SubjectPersonCache respectively, bumped by every write to
+ * it so that the other replicas notice, see {@link VersionCheck}.
+ */
+public enum VersionedResource {
+    PROPOSAL("proposal", List.of("proposalCode"), true),
+    CYCLE("cycle", List.of("cycleCode", "cycleId"), false),
+    REFERENCE_DATA("reference-data", List.of(), false),
+    SUBJECT_MAP("subject-map", List.of(), false);
+
+    private final String prefix;
+    private final List<String> pathParameters;
+    private final boolean restricted;
+
+    VersionedResource(String prefix, List<String> pathParameters, boolean restricted) {
+        this.prefix = prefix;
+        this.pathParameters = pathParameters;
+        this.restricted = restricted;
+    }
+
+    /**
+     * @return true if only the investigators of the resource may be told whether it has changed
+     */
+    public boolean isRestricted() {
+        return restricted;
+    }
+
+    public List<String> pathParameters() {
+        return pathParameters;
+    }
+
+    public String key(Long id) {
+        return prefix + ":" + id;
+    }
+}
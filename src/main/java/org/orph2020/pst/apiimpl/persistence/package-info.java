@@ -0,0 +1,5 @@
+/**
+ * Persistence-level support for the REST resources - caching, session modes and other behaviour
+ * that applies across resources rather than to a single endpoint.
+ */
+package org.orph2020.pst.apiimpl.persistence;
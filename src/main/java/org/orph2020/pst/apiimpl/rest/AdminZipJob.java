@@ -0,0 +1,71 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.WebApplicationException;
+import org.ivoa.dm.proposal.management.SubmittedProposal;
+import org.orph2020.pst.apiimpl.jobs.JobContext;
+import org.orph2020.pst.apiimpl.jobs.JobHandler;
+import org.orph2020.pst.apiimpl.jobs.JobOutcome;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+
+import java.util.Map;
+
+/**
+ * Asynchronous {@link SubmittedProposalResource#downloadAdminZip}: compiles the TAC admin PDF of a
+ * submitted proposal, then zips it with the proposal and its supporting documents.
+ */
+@ApplicationScoped
+public class AdminZipJob implements JobHandler {
+
+    @Inject
+    EntityManager em;
+    @Inject
+    SecurityIdentity securityIdentity;
+    @Inject
+    ProposalResource proposalResource;
+    @Inject
+    JustificationsResource justificationsResource;
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    @Override
+    public JobType type() {
+        return JobType.ADMIN_ZIP;
+    }
+
+    @Override
+    public void checkSubmission(Long subjectId, Map<String, String> parameters) throws WebApplicationException {
+        if (!securityIdentity.hasRole("tac_admin")) {
+            throw new WebApplicationException("Only TAC administrators may download the admin zip", 403);
+        }
+        if (em.find(SubmittedProposal.class, subjectId) == null) {
+            throw new WebApplicationException("SubmittedProposal with id: " + subjectId + " not found", 404);
+        }
+    }
+
+    @Override
+    public JobOutcome run(JobContext context) throws Exception {
+        context.progress(10, "compiling PDF");
+        justificationsResource.createTACAdminPDF(context.subjectId());
+
+        context.checkCancelled();
+        context.progress(60, "writing zip file");
+        return QuarkusTransaction.requiringNew().call(() -> {
+            SubmittedProposal proposal = em.find(SubmittedProposal.class, context.subjectId());
+            String filename = proposal.getProposalCode() + "."
+                    + proposal.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_")
+                        .substring(0,  Math.min(proposal.getTitle().length(), 30))
+                    + ".zip";
+
+            proposalDocumentStore.fetchFile(context.resultDirectory()).mkdirs();
+            proposalResource.CreateZipFile(proposalDocumentStore.getStoreRoot() + context.resultDirectory()
+                    + filename, proposal, false, false);
+
+            return JobOutcome.file(context.resultDirectory() + filename, filename, "application/zip");
+        });
+    }
+}
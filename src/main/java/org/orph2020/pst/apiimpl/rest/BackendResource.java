@@ -2,6 +2,7 @@ package org.orph2020.pst.apiimpl.rest;
 
 
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -11,6 +12,8 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.management.Backend;
 import org.ivoa.dm.proposal.management.Observatory;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.persistence.EvictsReferenceData;
+import org.orph2020.pst.apiimpl.persistence.ReferenceDataCache;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import java.util.List;
@@ -24,8 +27,12 @@ import java.util.List;
 @Path("observatories/{observatoryId}/backends")
 @Tag(name = "observatory-backends" )
 @RolesAllowed({"tac_admin", "tac_member"}) //TODO: Should some of these endpoints be obs_administration only?
+@EvictsReferenceData
 public class BackendResource extends ObjectResourceBase{
 
+    @Inject
+    ReferenceDataCache referenceDataCache;
+
     //BACKEND **************************************************************************************
 
     @GET
@@ -35,8 +42,9 @@ public class BackendResource extends ObjectResourceBase{
             throws WebApplicationException
     {
         if (name == null) {
-            return getObjectIdentifiers(
-                    "SELECT b._id,b.name FROM Observatory o Inner Join o.backends b WHERE o._id = "+observatoryId+" ORDER BY b.name");
+            return referenceDataCache.identifiers("observatory:" + observatoryId + ":backends",
+                    () -> getObjectIdentifiers(
+                    "SELECT b._id,b.name FROM Observatory o Inner Join o.backends b WHERE o._id = "+observatoryId+" ORDER BY b.name"));
         } else {
             return getObjectIdentifiers(
                     "SELECT b._id,b.name FROM Observatory o Inner Join o.backends b WHERE o._id = "+observatoryId+" and b.name like '"+name+"' ORDER BY b.name");
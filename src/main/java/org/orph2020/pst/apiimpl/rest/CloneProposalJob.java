@@ -0,0 +1,53 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.WebApplicationException;
+import org.ivoa.dm.proposal.prop.ObservingProposal;
+import org.orph2020.pst.apiimpl.jobs.JobContext;
+import org.orph2020.pst.apiimpl.jobs.JobHandler;
+import org.orph2020.pst.apiimpl.jobs.JobOutcome;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+import org.orph2020.pst.common.json.ObjectIdentifier;
+
+import java.util.Map;
+
+/**
+ * Asynchronous {@link ProposalResource#cloneObservingProposal}, the result is the identifier of the clone.
+ */
+@ApplicationScoped
+public class CloneProposalJob implements JobHandler {
+
+    @Inject
+    EntityManager em;
+    @Inject
+    ObjectMapper mapper;
+    @Inject
+    ProposalResource proposalResource;
+    @Inject
+    CurrentUser currentUser;
+
+    @Override
+    public JobType type() {
+        return JobType.CLONE_PROPOSAL;
+    }
+
+    @Override
+    public void checkSubmission(Long subjectId, Map<String, String> parameters) throws WebApplicationException {
+        if (em.find(ObservingProposal.class, subjectId) == null) {
+            throw new WebApplicationException("ObservingProposal with id: " + subjectId + " not found", 404);
+        }
+        if (!currentUser.isInvestigatorOf(subjectId)) {
+            throw new WebApplicationException("You are not an investigator of this proposal", 403);
+        }
+    }
+
+    @Override
+    public JobOutcome run(JobContext context) throws Exception {
+        context.progress(10, "cloning proposal and documents");
+        ObservingProposal clone = proposalResource.cloneObservingProposal(context.subjectId());
+        return JobOutcome.json(mapper.writeValueAsString(new ObjectIdentifier(clone.getId(), clone.getTitle())));
+    }
+}
@@ -0,0 +1,73 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.ivoa.dm.proposal.prop.AbstractProposal;
+import org.orph2020.pst.apiimpl.jobs.JobContext;
+import org.orph2020.pst.apiimpl.jobs.JobHandler;
+import org.orph2020.pst.apiimpl.jobs.JobOutcome;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Asynchronous {@link JustificationsResource#createPDFLaTex}, parameters "warningsAsErrors" and
+ * "submittedProposal". The result is the JSON string the synchronous operation returns: the compilation
+ * problems for the user to fix, or the page count.
+ */
+@ApplicationScoped
+public class CompileJustificationJob implements JobHandler {
+
+    @Inject
+    EntityManager em;
+    @Inject
+    CurrentUser currentUser;
+    @Inject
+    JustificationsResource justificationsResource;
+
+    @Override
+    public JobType type() {
+        return JobType.COMPILE_JUSTIFICATION;
+    }
+
+    @Override
+    public void checkSubmission(Long subjectId, Map<String, String> parameters) throws WebApplicationException {
+        if (em.find(AbstractProposal.class, subjectId) == null) {
+            throw new WebApplicationException("Proposal with id: " + subjectId + " not found", 404);
+        }
+        if (!currentUser.isInvestigatorOf(subjectId)) {
+            throw new WebApplicationException("You are not an investigator of this proposal", 403);
+        }
+    }
+
+    @Override
+    public JobOutcome run(JobContext context) throws Exception {
+        context.progress(10, "running latexmk");
+        Response response = null;
+        while (response == null) {
+            try {
+                response = justificationsResource.createPDFLaTex(context.subjectId(),
+                        context.booleanParameter("warningsAsErrors"), context.booleanParameter("submittedProposal"));
+            } catch (WebApplicationException e) {
+                // the compiler is busy with synchronous requests, wait our turn rather than fail the job
+                String retryAfter = e.getResponse().getHeaderString("Retry-After");
+                if (e.getResponse().getStatus() != 429 || retryAfter == null) {
+                    throw e;
+                }
+                context.progress(10, "waiting for the LaTeX compiler");
+                Thread.sleep(Long.parseLong(retryAfter) * 1000L);
+                context.checkCancelled();
+            }
+        }
+
+        String result = null;
+        if (response.getEntity() instanceof byte[] json) {
+            result = new String(json, StandardCharsets.UTF_8);
+        }
+        return JobOutcome.json(result);
+    }
+}
@@ -0,0 +1,21 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a GET endpoint whose response is determined by the version of a single proposal or cycle,
+ * identified by a path parameter. Such endpoints get an ETag header (and Last-Modified, for resources
+ * that are not restricted to their investigators), and answer If-None-Match / If-Modified-Since requests
+ * with 304 Not Modified without running the endpoint.
+ * @see ConditionalGetFilter
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+    VersionedResource value();
+}
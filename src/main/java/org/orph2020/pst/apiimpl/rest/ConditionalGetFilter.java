@@ -0,0 +1,118 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+import org.orph2020.pst.apiimpl.entities.ResourceVersion;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+
+import java.security.Principal;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Conditional GET support for the endpoints annotated with {@link ConditionalGet}.
+ * <p>
+ * The ETag is derived from the version of the resource and the authenticated user. A 304 is answered
+ * without running the endpoint, so for {@link VersionedResource#isRestricted() restricted} resources the
+ * filter first checks that the user is an investigator of the resource; anyone else falls through to the
+ * endpoint and its own checks. Restricted resources are validated by ETag only, as a Last-Modified date
+ * would tell a client when a resource it cannot read last changed.
+ */
+public class ConditionalGetFilter {
+
+    private static final String VALIDATORS_PROPERTY = ConditionalGetFilter.class.getName() + ".validators";
+
+    private record Validators(EntityTag entityTag, Date lastModified) {}
+
+    @Inject
+    ResourceVersions resourceVersions;
+
+    @Inject
+    CurrentUser currentUser;
+
+    @ServerRequestFilter
+    public Response evaluatePreconditions(ContainerRequestContext requestContext, ResourceInfo resourceInfo) {
+        if (!"GET".equals(requestContext.getMethod()) || resourceInfo.getResourceMethod() == null) {
+            return null;
+        }
+        ConditionalGet conditionalGet = resourceInfo.getResourceMethod().getAnnotation(ConditionalGet.class);
+        if (conditionalGet == null) {
+            return null;
+        }
+
+        VersionedResource kind = conditionalGet.value();
+        Long id = resourceId(requestContext, kind);
+        if (id == null) {
+            return null;
+        }
+        Principal principal = requestContext.getSecurityContext().getUserPrincipal();
+        if (kind.isRestricted() && (principal == null || !currentUser.isInvestigatorOf(id))) {
+            return null; // no validators, the endpoint decides what the user may see
+        }
+
+        ResourceVersion version = resourceVersions.current(kind, id);
+        Validators validators = new Validators(
+                entityTag(kind.key(id), version, principal),
+                version != null && !kind.isRestricted() ? version.getLastModified() : null
+        );
+        requestContext.setProperty(VALIDATORS_PROPERTY, validators);
+
+        Response.ResponseBuilder notModified = validators.lastModified() != null
+                ? requestContext.getRequest().evaluatePreconditions(validators.lastModified(), validators.entityTag())
+                : requestContext.getRequest().evaluatePreconditions(validators.entityTag());
+        if (notModified == null) {
+            return null;
+        }
+        return addValidators(notModified, validators).build();
+    }
+
+    @ServerResponseFilter
+    public void addValidators(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (responseContext.getStatus() != Response.Status.OK.getStatusCode()
+                || !(requestContext.getProperty(VALIDATORS_PROPERTY) instanceof Validators validators)) {
+            return;
+        }
+        responseContext.getHeaders().putSingle(HttpHeaders.ETAG, validators.entityTag());
+        if (validators.lastModified() != null) {
+            responseContext.getHeaders().putSingle(HttpHeaders.LAST_MODIFIED, validators.lastModified());
+        }
+        // clients must revalidate, responses are user specific
+        responseContext.getHeaders().putSingle(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+    }
+
+    private Response.ResponseBuilder addValidators(Response.ResponseBuilder builder, Validators validators) {
+        builder.tag(validators.entityTag()).header(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (validators.lastModified() != null) {
+            builder.lastModified(validators.lastModified());
+        }
+        return builder;
+    }
+
+    private static Long resourceId(ContainerRequestContext requestContext, VersionedResource kind) {
+        for (String name : kind.pathParameters()) {
+            String value = requestContext.getUriInfo().getPathParameters().getFirst(name);
+            if (value != null) {
+                try {
+                    return Long.valueOf(value);
+                } catch (NumberFormatException e) {
+                    return null; // let the endpoint report the bad parameter
+                }
+            }
+        }
+        return null;
+    }
+
+    private static EntityTag entityTag(String key, ResourceVersion version, Principal principal) {
+        long versionNumber = version != null ? version.getVersion() : 0;
+        int user = Objects.hash(key, principal != null ? principal.getName() : null);
+        return new EntityTag(versionNumber + "-" + Integer.toHexString(user), true);
+    }
+}
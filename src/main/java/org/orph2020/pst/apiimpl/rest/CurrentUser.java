@@ -0,0 +1,58 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.ivoa.dm.proposal.prop.Person;
+
+/**
+ * The Person making the current request. The JWT subject is resolved at most once per request,
+ * via the cross-request {@link SubjectPersonCache}.
+ */
+@RequestScoped
+public class CurrentUser {
+
+    @Inject
+    JsonWebToken userInfo;
+
+    @Inject
+    SubjectPersonCache subjectPersonCache;
+
+    @Inject
+    EntityManager em;
+
+    private Long personId;
+
+    /**
+     * @return the database id of the Person associated with the authenticated user
+     */
+    public Long personId() {
+        if (personId == null) {
+            personId = subjectPersonCache.personId(userInfo.getSubject());
+        }
+        return personId;
+    }
+
+    /**
+     * @return the Person associated with the authenticated user, as managed by the current
+     * persistence context
+     */
+    public Person person() {
+        return em.find(Person.class, personId());
+    }
+
+    /**
+     * @param proposalId the id of an ObservingProposal or SubmittedProposal
+     * @return true if the authenticated user is an investigator of the proposal
+     */
+    public boolean isInvestigatorOf(Long proposalId) {
+        Long count = em.createQuery(
+                        "select count(i) from AbstractProposal o join o.investigators i "
+                                + "where o._id = :pid and i.person._id = :uid", Long.class)
+                .setParameter("pid", proposalId)
+                .setParameter("uid", personId())
+                .getSingleResult();
+        return count > 0;
+    }
+}
@@ -0,0 +1,24 @@
+package org.orph2020.pst.apiimpl.rest;
+
+/**
+ * Two targets of different proposals that are close enough to be the same source.
+ */
+public class DuplicateTargetPair {
+
+    public TargetPositionHit first;
+
+    public TargetPositionHit second;
+
+    /**
+     * the separation of the targets in arcseconds
+     */
+    public double separation;
+
+    public DuplicateTargetPair() {}
+
+    public DuplicateTargetPair(TargetPositionHit first, TargetPositionHit second, double separation) {
+        this.first = first;
+        this.second = second;
+        this.separation = separation;
+    }
+}
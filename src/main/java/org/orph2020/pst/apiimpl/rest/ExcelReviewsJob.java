@@ -0,0 +1,62 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.ivoa.dm.proposal.management.ProposalCycle;
+import org.orph2020.pst.apiimpl.jobs.JobContext;
+import org.orph2020.pst.apiimpl.jobs.JobHandler;
+import org.orph2020.pst.apiimpl.jobs.JobOutcome;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+/**
+ * Asynchronous {@link ProposalCyclesResource#ExcelReviews}, the result is the spreadsheet.
+ */
+@ApplicationScoped
+public class ExcelReviewsJob implements JobHandler {
+
+    @Inject
+    EntityManager em;
+    @Inject
+    ProposalCyclesResource proposalCyclesResource;
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    @Override
+    public JobType type() {
+        return JobType.EXCEL_REVIEWS;
+    }
+
+    @Override
+    public void checkSubmission(Long subjectId, Map<String, String> parameters) throws WebApplicationException {
+        if (em.find(ProposalCycle.class, subjectId) == null) {
+            throw new WebApplicationException("ProposalCycle with id: " + subjectId + " not found", 404);
+        }
+    }
+
+    @Override
+    public JobOutcome run(JobContext context) throws Exception {
+        context.progress(10, "writing spreadsheet");
+        Response response = QuarkusTransaction.requiringNew()
+                .call(() -> proposalCyclesResource.ExcelReviews(context.subjectId()));
+        if (response.getStatus() != 200 || !(response.getEntity() instanceof File workbook)) {
+            throw new WebApplicationException("unable to create the spreadsheet", 500);
+        }
+
+        // move it out of the shared location the synchronous operation writes to
+        File result = proposalDocumentStore.fetchFile(context.resultDirectory() + workbook.getName());
+        Files.createDirectories(result.getParentFile().toPath());
+        Files.move(workbook.toPath(), result.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        return JobOutcome.file(context.resultDirectory() + result.getName(), result.getName(),
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    }
+}
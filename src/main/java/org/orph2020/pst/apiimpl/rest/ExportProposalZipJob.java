@@ -0,0 +1,63 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.WebApplicationException;
+import org.ivoa.dm.proposal.prop.ObservingProposal;
+import org.orph2020.pst.apiimpl.jobs.JobContext;
+import org.orph2020.pst.apiimpl.jobs.JobHandler;
+import org.orph2020.pst.apiimpl.jobs.JobOutcome;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+
+import java.util.Map;
+
+/**
+ * Asynchronous {@link ProposalResource#exportProposalZip}, the result is the zip file.
+ */
+@ApplicationScoped
+public class ExportProposalZipJob implements JobHandler {
+
+    @Inject
+    EntityManager em;
+    @Inject
+    CurrentUser currentUser;
+    @Inject
+    ProposalResource proposalResource;
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    @Override
+    public JobType type() {
+        return JobType.EXPORT_PROPOSAL_ZIP;
+    }
+
+    @Override
+    public void checkSubmission(Long subjectId, Map<String, String> parameters) throws WebApplicationException {
+        if (em.find(ObservingProposal.class, subjectId) == null) {
+            throw new WebApplicationException("ObservingProposal with id: " + subjectId + " not found", 404);
+        }
+        if (!currentUser.isInvestigatorOf(subjectId)) {
+            throw new WebApplicationException("You are not an investigator of this proposal", 403);
+        }
+    }
+
+    @Override
+    public JobOutcome run(JobContext context) throws Exception {
+        context.progress(10, "writing zip file");
+        return QuarkusTransaction.requiringNew().call(() -> {
+            ObservingProposal proposal = em.find(ObservingProposal.class, context.subjectId());
+            String filename = "Export."
+                    + proposal.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_")
+                        .substring(0,  Math.min(proposal.getTitle().length(), 30))
+                    + ".zip";
+
+            proposalDocumentStore.fetchFile(context.resultDirectory()).mkdirs();
+            proposalResource.CreateZipFile(proposalDocumentStore.getStoreRoot() + context.resultDirectory()
+                    + filename, proposal, false, true);
+
+            return JobOutcome.file(context.resultDirectory() + filename, filename, "application/zip");
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package org.orph2020.pst.apiimpl.rest;
 
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.management.Instrument;
@@ -8,6 +9,8 @@ import org.ivoa.dm.proposal.management.InstrumentKind;
 import org.ivoa.dm.proposal.management.Observatory;
 import org.ivoa.dm.proposal.prop.WikiDataId;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.persistence.EvictsReferenceData;
+import org.orph2020.pst.apiimpl.persistence.ReferenceDataCache;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import jakarta.persistence.TypedQuery;
@@ -24,8 +27,12 @@ import java.util.List;
 @Path("observatories/{observatoryId}/instruments")
 @Tag(name = "observatory-instruments")
 @Produces(MediaType.APPLICATION_JSON)
+@EvictsReferenceData
 public class InstrumentResource extends ObjectResourceBase {
 
+    @Inject
+    ReferenceDataCache referenceDataCache;
+
     private Instrument findInstrumentInList(List<Instrument> instruments, long instrumentId ) {
         return (Instrument) findObjectInList(instrumentId, instruments);
     }
@@ -46,7 +53,8 @@ public class InstrumentResource extends ObjectResourceBase {
                                                             @RestQuery String name)
     {
         if (name == null) {
-            return getObjectIdentifiers("SELECT i._id,i.name FROM Observatory o Inner Join o.instruments i WHERE o._id = "+observatoryId+" ORDER BY i.name");
+            return referenceDataCache.identifiers("observatory:" + observatoryId + ":instruments",
+                    () -> getObjectIdentifiers("SELECT i._id,i.name FROM Observatory o Inner Join o.instruments i WHERE o._id = "+observatoryId+" ORDER BY i.name"));
         } else {
             return getObjectIdentifiers("SELECT i._id,i.name FROM Observatory o Inner Join o.instruments i WHERE o._id = "+observatoryId+" and i.name like '"+name+"' ORDER BY i.name");
         }
@@ -0,0 +1,53 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import org.orph2020.pst.apiimpl.entities.Job;
+import org.orph2020.pst.apiimpl.jobs.JobStatus;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+
+import java.util.Date;
+
+/**
+ * The state of a job, as polled by clients.
+ * @see JobResource
+ */
+public class JobInfo {
+
+    public Long id;
+    public JobType type;
+    public Long subjectId;
+    public JobStatus status;
+
+    /**
+     * percentage complete, as last reported by the job
+     */
+    public int progress;
+
+    /**
+     * what the job is doing, or why it failed
+     */
+    public String message;
+
+    /**
+     * true if the job has succeeded and its result can be downloaded from jobs/{id}/result
+     */
+    public boolean resultAvailable;
+
+    public Date created;
+    public Date started;
+    public Date finished;
+
+    public JobInfo() {}
+
+    public JobInfo(Job job) {
+        this.id = job.getId();
+        this.type = job.getType();
+        this.subjectId = job.getSubjectId();
+        this.status = job.getStatus();
+        this.progress = job.getProgress();
+        this.message = job.getMessage();
+        this.resultAvailable = job.getStatus() == JobStatus.SUCCEEDED;
+        this.created = job.getCreated();
+        this.started = job.getStarted();
+        this.finished = job.getFinished();
+    }
+}
@@ -0,0 +1,123 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.orph2020.pst.apiimpl.entities.Job;
+import org.orph2020.pst.apiimpl.jobs.JobQueue;
+import org.orph2020.pst.apiimpl.jobs.JobRunner;
+import org.orph2020.pst.apiimpl.jobs.JobStatus;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Asynchronous versions of the long-running operations (clone, zip exports, PDF compilation, review
+ * spreadsheet). A submitted job is queued and run by whichever replica claims it first; the client
+ * polls the job and downloads the result when it has succeeded. Users only see their own jobs.
+ */
+@Path("jobs")
+@Tag(name = "jobs")
+@Produces(MediaType.APPLICATION_JSON)
+@RolesAllowed("default-roles-orppst")
+public class JobResource extends ObjectResourceBase {
+
+    @Inject
+    JobQueue jobQueue;
+    @Inject
+    JobRunner jobRunner;
+    @Inject
+    SecurityIdentity securityIdentity;
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    @POST
+    @Operation(summary = "submit a job, returns straight away with the job to poll")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response submitJob(JobSubmission submission)
+            throws WebApplicationException
+    {
+        if (submission == null || submission.type == null || submission.subjectId == null) {
+            throw new WebApplicationException("A job needs a type and a subjectId", 400);
+        }
+        if (!jobRunner.hasHandler(submission.type)) {
+            throw new WebApplicationException("Jobs of type " + submission.type + " cannot be submitted", 400);
+        }
+
+        jobRunner.handler(submission.type).checkSubmission(submission.subjectId, submission.parameters);
+
+        Job job = jobQueue.submit(submission.type, submission.subjectId, submission.parameters,
+                securityIdentity.getPrincipal().getName(), securityIdentity.getRoles());
+
+        return Response.accepted(new JobInfo(job))
+                .location(URI.create("jobs/" + job.getId()))
+                .build();
+    }
+
+    @GET
+    @Operation(summary = "get the jobs of the authenticated user, most recent first")
+    public List<JobInfo> getJobs()
+    {
+        return jobQueue.jobsOf(securityIdentity.getPrincipal().getName()).stream()
+                .map(JobInfo::new)
+                .toList();
+    }
+
+    @GET
+    @Path("{jobId}")
+    @Operation(summary = "get the status and progress of the job")
+    public JobInfo getJob(@PathParam("jobId") Long jobId)
+            throws WebApplicationException
+    {
+        return new JobInfo(ownJob(jobId));
+    }
+
+    @DELETE
+    @Path("{jobId}")
+    @Operation(summary = "cancel the job, a running job stops at its next checkpoint")
+    public JobInfo cancelJob(@PathParam("jobId") Long jobId)
+            throws WebApplicationException
+    {
+        ownJob(jobId);
+        return new JobInfo(jobQueue.cancel(jobId));
+    }
+
+    @GET
+    @Path("{jobId}/result")
+    @Operation(summary = "download the result of a job that has succeeded, either a file or JSON")
+    @Produces({MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON})
+    public Response getJobResult(@PathParam("jobId") Long jobId)
+            throws WebApplicationException
+    {
+        Job job = ownJob(jobId);
+        if (job.getStatus() != JobStatus.SUCCEEDED) {
+            throw new WebApplicationException("Job " + jobId + " has no result, it is " + job.getStatus(), 409);
+        }
+
+        if (job.getResultPath() == null) {
+            return Response.ok(job.getResult(), MediaType.APPLICATION_JSON).build();
+        }
+
+        File result = proposalDocumentStore.fetchFile(job.getResultPath());
+        if (!result.exists()) {
+            throw new WebApplicationException("The result of job " + jobId + " has been removed", 410);
+        }
+        return Response.ok(result, job.getResultMediaType())
+                .header("Content-Disposition", "attachment; filename=\"" + job.getResultFilename() + "\"")
+                .build();
+    }
+
+    private Job ownJob(Long jobId) {
+        Job job = jobQueue.find(jobId);
+        if (job == null || !job.getOwner().equals(securityIdentity.getPrincipal().getName())) {
+            throw new WebApplicationException("Job with id: " + jobId + " not found", 404);
+        }
+        return job;
+    }
+}
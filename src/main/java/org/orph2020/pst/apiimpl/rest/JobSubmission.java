@@ -0,0 +1,27 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import org.orph2020.pst.apiimpl.jobs.JobType;
+
+import java.util.Map;
+
+/**
+ * A request to run a job.
+ * @see JobResource
+ */
+public class JobSubmission {
+
+    /**
+     * what to do
+     */
+    public JobType type;
+
+    /**
+     * the id of the object to do it to - the (observing or submitted) proposal or, for EXCEL_REVIEWS, the cycle
+     */
+    public Long subjectId;
+
+    /**
+     * optional parameters, e.g. "warningsAsErrors" for COMPILE_JUSTIFICATION
+     */
+    public Map<String, String> parameters;
+}
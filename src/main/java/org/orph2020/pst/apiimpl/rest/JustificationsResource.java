@@ -1,6 +1,9 @@
 package org.orph2020.pst.apiimpl.rest;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -8,19 +11,21 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.apache.commons.io.FileUtils;
-import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.management.SubmittedProposal;
 import org.ivoa.dm.proposal.prop.*;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.persistence.ProposalFetchProfile;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
 
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /*
     Dev note: there are two "types" of Justification: 'scientific' and 'technical', and these
@@ -46,9 +51,15 @@ public class JustificationsResource extends ObjectResourceBase {
     @Inject
     ProposalResource proposalResource;
     @Inject
-    SubjectMapResource subjectMapResource;
+    CurrentUser currentUser;
     @Inject
-    JsonWebToken userInfo;
+    MeterRegistry meterRegistry;
+    @Inject
+    LatexCompileScheduler latexCompileScheduler;
+    @Inject
+    LatexCompileCache latexCompileCache;
+    @Inject
+    ResourceVersions resourceVersions;
 
     @GET
     @Path("{which}")
@@ -159,7 +170,6 @@ public class JustificationsResource extends ObjectResourceBase {
     @RolesAllowed({"tac_admin"})
     @Operation(summary = "create a PDF summary of the whole proposal, for TAC administrators only")
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional(rollbackOn = {WebApplicationException.class})
     public Response createTACAdminPDF(@PathParam("proposalCode") Long proposalCode)
         throws WebApplicationException, IOException
     {
@@ -172,18 +182,17 @@ public class JustificationsResource extends ObjectResourceBase {
     @RolesAllowed({"tac_member", "tac_admin"})
     @Operation(summary = "create and download an anonymised summary of the whole proposal in a zip with compiled justifications, for reviewers only")
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional(rollbackOn = {WebApplicationException.class})
     public Response createReviewPDF(@PathParam("proposalCode") Long proposalCode)
             throws WebApplicationException, IOException
     {
         // Access permission check, is this user a reviewer for this submitted proposal?
         SubmittedProposal proposal = findObject(SubmittedProposal.class, proposalCode);
         AtomicBoolean foundReviewer = new AtomicBoolean(false);
+        Long personId = currentUser.personId();
 
         // Check I'm a reviewer
         proposal.getReviews().forEach(review -> {
-            if(Objects.equals(review.getReviewer().getPerson().getId(),
-                    subjectMapResource.subjectMap(userInfo.getSubject()).getPerson().getId()))
+            if(Objects.equals(review.getReviewer().getPerson().getId(), personId))
                 foundReviewer.set(true);
         });
 
@@ -199,15 +208,17 @@ public class JustificationsResource extends ObjectResourceBase {
     @RolesAllowed({"tac_member", "tac_admin"})
     @Operation(summary = "create and download an anonymised summary in a zip with compiled justifications, for reviewers only")
     @Produces(MediaType.APPLICATION_OCTET_STREAM)
-    @Transactional(rollbackOn = {WebApplicationException.class})
     public Response downloadReviewerZip(@PathParam("proposalCode") Long proposalCode)
             throws WebApplicationException, IOException
     {
         createReviewPDF(proposalCode);
+        //the PDF was saved in a transaction of its own, so the proposal is read again
+        em.clear();
 
-        SubmittedProposal proposal = findObject(SubmittedProposal.class, proposalCode);
+        SubmittedProposal proposal = fetchProfile(findObject(SubmittedProposal.class, proposalCode),
+                ProposalFetchProfile.REVIEW);
 
-        return Response.ok(proposalResource.CreateZipFile("Review.zip", proposal, true, false ))
+        return Response.ok(proposalResource.zipStream(proposal, true, false))
                 .header("Content-Disposition", "attachment; filename=" + "Review.zip")
                 .build();
 
@@ -217,7 +228,6 @@ public class JustificationsResource extends ObjectResourceBase {
     @Path("latexPdf")
     @Operation(summary = "create PDF of the LaTex Justification from supplied files, we recommend using 'warningsAsErrors=true'")
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional(rollbackOn={WebApplicationException.class})
     public Response createPDFLaTex(@PathParam("proposalCode") Long proposalCode,
                                    @RestQuery Boolean warningsAsErrors,
                                    @RestQuery Boolean submittedProposal
@@ -228,8 +238,45 @@ public class JustificationsResource extends ObjectResourceBase {
 
     }
 
+    /**
+     * Compile the LaTeX justification of the proposal, when the {@link LatexCompileScheduler} gives it a turn,
+     * unless the {@link LatexCompileCache} already has the PDF of the same inputs. Must NOT be called in a
+     * transaction, as waiting for a turn and compiling take longer than the transaction timeout: the
+     * proposal is read outside a transaction and the PDF is saved in a short transaction of its own.
+     * @throws WebApplicationException 409 if the proposal is already being compiled, 429 if the compiler is busy
+     */
     public Response createPDFfile(Long proposalCode, Boolean warningsAsErrors, Boolean submittedProposal, String texFileName)
         throws WebApplicationException, IOException {
+        AbstractProposal proposal = findObject(AbstractProposal.class, proposalCode);
+        justificationIsLatex(proposalCode);
+
+        String observingCycleName = observingCycleName(proposalCode, submittedProposal);
+        String bibFile = bibFile(proposalCode);
+        String cacheKey = compileCacheKey(proposal, observingCycleName, bibFile, texFileName);
+        Optional<LatexCompileCache.Entry> cached = latexCompileCache.lookup(proposalCode, cacheKey);
+        if (cached.isPresent()) {
+            if (Boolean.TRUE.equals(warningsAsErrors) && !cached.get().warnings().isEmpty()) {
+                return responseWrapper(cached.get().warnings(), 200);
+            }
+            //copied, as the entry stays in the cache
+            java.nio.file.Path copy = Files.createTempFile(
+                    proposalDocumentStore.fetchFile(supportingDocumentsPath(proposalCode)).toPath(),
+                    "." + jobName, ".tmp");
+            Files.copy(cached.get().pdf().toPath(), copy, StandardCopyOption.REPLACE_EXISTING);
+            return savePdf(proposalCode, copy.toFile(), cached.get().pageCount());
+        }
+
+        return latexCompileScheduler.schedule(proposalCode,
+                () -> compilePDFfile(proposalCode, proposal, observingCycleName, bibFile, cacheKey,
+                        warningsAsErrors, texFileName));
+    }
+
+    /**
+     * Compile the inputs read by createPDFfile, whose key in the LatexCompileCache is cacheKey.
+     */
+    private Response compilePDFfile(Long proposalCode, AbstractProposal proposal, String observingCycleName,
+                                    String bibFile, String cacheKey, Boolean warningsAsErrors, String texFileName)
+        throws WebApplicationException, IOException {
         // NOTICE: we return "Response.ok" regardless of the exit status of the Latex command because
         // this API call has functioned correctly; it is the user-defined files that need attention.
         // Errors are flagged back to the user as a simple string message containing the list of issues.
@@ -242,21 +289,6 @@ public class JustificationsResource extends ObjectResourceBase {
         // benefit from a speed-up. As Justifications are intended to be only a handful of A4
         // pages in length, this is not a problem.
 
-        AbstractProposal proposal = findObject(AbstractProposal.class, proposalCode);
-
-        String observingCycleName = submittedProposal ?
-                findObject(SubmittedProposal.class, proposalCode).getProposalCode() : 
-                null;
-
-        Set<String> bibFileList = proposalDocumentStore.listFilesIn(
-                proposalDocumentStore.getSupportingDocumentsPath(proposalCode), Collections.singletonList("bib")
-        );
-
-        //this shouldn't happen but check anyway
-        if (bibFileList.size() > 1) {
-            throw new WebApplicationException("Multiple bib files found");
-        }
-
         //Gather together everything needed to successfully compile PDF output
         String workingDirectory = proposalDocumentStore.createLatexWorkingDirectory(
                 proposalCode,
@@ -265,11 +297,9 @@ public class JustificationsResource extends ObjectResourceBase {
                 proposal.getScientificJustification().getText(),
                 proposal.getTechnicalJustification().getText(),
                 texFileName,
-                bibFileList.isEmpty() ? null : bibFileList.iterator().next()
+                bibFile
         );
 
-        justificationIsLatex(proposalCode);
-
         File mainTex = proposalDocumentStore.fetchFile(justificationsPath(proposalCode) + "/" + mainTexFileName);
 
         if (!mainTex.exists()) {
@@ -279,15 +309,29 @@ public class JustificationsResource extends ObjectResourceBase {
         ProcessBuilder processBuilder = getLatexmkProcessBuilder(mainTex.getAbsolutePath());
 
         try {
+            Timer.Sample latexmkRun = Timer.start(meterRegistry);
             Process process = processBuilder.start();
 
-            int exitCode = process.waitFor();
+            if (!process.waitFor(latexCompileScheduler.timeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                // latexmk runs pdflatex and bibtex as child processes
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly().waitFor();
+                latexmkRun.stop(meterRegistry.timer("pst.latexmk", "exitCode", "timeout"));
+                FileUtils.deleteDirectory(new File(workingDirectory)); //clean up latex working directory
+                return responseWrapper(String.format(
+                        "LaTeX compilation did not finish within %d seconds and was stopped, "
+                                + "please check your justification for loops or very large figures",
+                        latexCompileScheduler.timeout().toSeconds()), 200);
+            }
+            int exitCode = process.exitValue();
+            latexmkRun.stop(meterRegistry.timer("pst.latexmk", "exitCode", String.valueOf(exitCode)));
 
             File logFile = proposalDocumentStore
                     .fetchFile(justificationsPath(proposalCode) + "/out/" + jobName + ".log");
 
-            List<String> warnings = findLatexWarnings(Files.readString(logFile.toPath()));
-            List<String> bibWarnings = findNatBibWarnings(Files.readString(logFile.toPath()));
+            String log = Files.readString(logFile.toPath());
+            List<String> warnings = LatexLogScanner.findLatexWarnings(log);
+            List<String> bibWarnings = LatexLogScanner.findNatBibWarnings(log);
 
             StringBuilder errorsStringBuilder = new StringBuilder();
 
@@ -297,7 +341,7 @@ public class JustificationsResource extends ObjectResourceBase {
             //if there are latex errors, stop and return to user
             if (exitCode != 0) {
                 //find the errors in the main log file
-                List<String> errors = scanLogForErrors(logFile);
+                List<String> errors = LatexLogScanner.scanLogForErrors(log);
 
                 if (!errors.isEmpty()) {
                     errorsStringBuilder
@@ -310,7 +354,7 @@ public class JustificationsResource extends ObjectResourceBase {
                         justificationsPath(proposalCode) + "/out/" + jobName + ".blg");
 
                 if (bibTexLogFile.exists()) {
-                    List<String> bibTexWarnings = scanBibTexLogForDetails(Files.readString(bibTexLogFile.toPath()));
+                    List<String> bibTexWarnings = LatexLogScanner.scanBibTexLogForDetails(Files.readString(bibTexLogFile.toPath()));
 
                     if (!bibTexWarnings.isEmpty()) {
                         errorsStringBuilder
@@ -323,28 +367,16 @@ public class JustificationsResource extends ObjectResourceBase {
             }
 
             //here exitCode is zero i.e., no errors
-            //if the user selects 'warningsAsErrors' and there are warnings, stop and return to user
-            if (warningsAsErrors && (!warnings.isEmpty() || !bibWarnings.isEmpty())) {
-                if (!warnings.isEmpty() ) {
-                    errorsStringBuilder
-                            .append("You have LaTeX compilation warnings:\n")
-                            .append(String.join("\n", warnings))
-                            .append("\n\n");
-                }
-
-                if (!bibWarnings.isEmpty() ) {
-                    if (bibFileList.isEmpty()) {
-                        errorsStringBuilder
-                                .append("No Bibliography (.bib) file found, hence ...\n");
-                    }
-                    errorsStringBuilder
-                            .append("You have BibTex warnings:\n")
-                            .append(String.join("\n", bibWarnings))
-                            .append("\n\n");
-                }
+            //the PDF is cached with its warnings, whether or not they are errors this time
+            String warningsMessage = warningsMessage(warnings, bibWarnings, bibFile == null);
+            latexCompileCache.store(proposalCode, cacheKey,
+                    proposalDocumentStore.fetchFile(justificationsPath(proposalCode) + "/out/" + jobName + ".pdf"),
+                    LatexLogScanner.scanLogForPageNumber(logFile, jobName), warningsMessage);
 
+            //if the user selects 'warningsAsErrors' and there are warnings, stop and return to user
+            if (Boolean.TRUE.equals(warningsAsErrors) && !warningsMessage.isEmpty()) {
                 FileUtils.deleteDirectory(new File(workingDirectory)); //clean up latex working directory
-                return responseWrapper(errorsStringBuilder.toString(), 200);
+                return responseWrapper(warningsMessage, 200);
             }
 
 
@@ -357,40 +389,120 @@ public class JustificationsResource extends ObjectResourceBase {
         File logFile = proposalDocumentStore
                 .fetchFile(justificationsPath(proposalCode) + "/out/" + jobName + ".log");
 
-        String pageCount = scanLogForPageNumber(logFile);
+        String pageCount = LatexLogScanner.scanLogForPageNumber(logFile, jobName);
 
         //fetch the output PDF of the Justification
         File output = proposalDocumentStore
                 .fetchFile(justificationsPath(proposalCode) + "/out/" + jobName + ".pdf");
 
-        String destinationFile = proposalDocumentStore.getSupportingDocumentsPath(proposalCode) +
-                jobName+ ".pdf";
+        Response response = savePdf(proposalCode, output, pageCount);
 
-        List<SupportingDocument> supportingDocuments = proposal.getSupportingDocuments();
+        //clean up the workingDirectory
+        FileUtils.deleteDirectory(new File(workingDirectory));
 
-        SupportingDocument supportingDocument = supportingDocuments.stream()
-                .filter(s -> s.getLocation()
-                        .equals(proposalDocumentStore.getStoreRoot() + destinationFile))
-                .findFirst().orElse(null);
+        return response;
+    }
 
-        if (supportingDocument == null) {
-            //add "justification.pdf" as a new supporting document
-            addNewChildObject(
-                    proposal,
-                    new SupportingDocument(output.getName(),
-                            proposalDocumentStore.getStoreRoot() + destinationFile),
-                    proposal::addToSupportingDocuments);
-        }  //else the file is just being replaced with the latest version
+    private String observingCycleName(Long proposalCode, Boolean submittedProposal) {
+        return Boolean.TRUE.equals(submittedProposal) ?
+                findObject(SubmittedProposal.class, proposalCode).getProposalCode() :
+                null;
+    }
 
-        //move output to the 'supportingDocuments' level
-        proposalDocumentStore.moveFile(output, destinationFile);
+    /**
+     * @return the name of the '.bib' file in the supporting documents, null if there is none
+     */
+    private String bibFile(Long proposalCode) throws IOException {
+        Set<String> bibFileList = proposalDocumentStore.listFilesIn(
+                proposalDocumentStore.getSupportingDocumentsPath(proposalCode), Collections.singletonList("bib")
+        );
 
-        //clean up the workingDirectory
-        FileUtils.deleteDirectory(new File(workingDirectory));
+        //this shouldn't happen but check anyway
+        if (bibFileList.size() > 1) {
+            throw new WebApplicationException("Multiple bib files found");
+        }
+        return bibFileList.isEmpty() ? null : bibFileList.iterator().next();
+    }
+
+    private String compileCacheKey(AbstractProposal proposal, String observingCycleName, String bibFile,
+                                   String texFileName) throws IOException {
+        return latexCompileCache.key(
+                proposal.getId(),
+                texFileName,
+                proposal.getTitle(),
+                observingCycleName,
+                proposal.getScientificJustification().getText(),
+                proposal.getTechnicalJustification().getText(),
+                bibFile,
+                jobName + ".pdf"
+        );
+    }
+
+    /**
+     * Save the compiled PDF as the "compiledJustification.pdf" supporting document of the proposal, in a
+     * transaction of its own.
+     * @param pdf the compiled PDF, moved into place
+     * @param pageCount the page count from the log
+     * @return the success message for the user
+     */
+    private Response savePdf(Long proposalCode, File pdf, String pageCount) {
+        String outputName = jobName + ".pdf";
+        String destinationFile = proposalDocumentStore.getSupportingDocumentsPath(proposalCode) +
+                jobName+ ".pdf";
+
+        QuarkusTransaction.requiringNew().run(() -> {
+            AbstractProposal proposal = findObject(AbstractProposal.class, proposalCode);
+            List<SupportingDocument> supportingDocuments = proposal.getSupportingDocuments();
+
+            SupportingDocument supportingDocument = supportingDocuments.stream()
+                    .filter(s -> s.getLocation()
+                            .equals(proposalDocumentStore.getStoreRoot() + destinationFile))
+                    .findFirst().orElse(null);
+
+            if (supportingDocument == null) {
+                //add "justification.pdf" as a new supporting document
+                addNewChildObject(
+                        proposal,
+                        new SupportingDocument(outputName,
+                                proposalDocumentStore.getStoreRoot() + destinationFile),
+                        proposal::addToSupportingDocuments);
+            }  //else the file is just being replaced with the latest version
+
+            //move output to the 'supportingDocuments' level
+            proposalDocumentStore.moveFile(pdf, destinationFile);
+            //not a transactional endpoint, so the version is not bumped by the interceptor
+            resourceVersions.bump(VersionedResource.PROPOSAL, proposalCode);
+        });
 
         return responseWrapper(
                 String.format("Latex compilation successful!\nPDF output file saved as: %s\nPage count: %s",
-                output.getName(), pageCount), 200);
+                outputName, pageCount), 200);
+    }
+
+    /**
+     * The warnings of a successful compilation as they are reported with 'warningsAsErrors'.
+     * @return the message, empty if there are no warnings
+     */
+    private static String warningsMessage(List<String> warnings, List<String> bibWarnings, boolean noBibFile) {
+        StringBuilder message = new StringBuilder();
+        if (!warnings.isEmpty()) {
+            message
+                    .append("You have LaTeX compilation warnings:\n")
+                    .append(String.join("\n", warnings))
+                    .append("\n\n");
+        }
+
+        if (!bibWarnings.isEmpty()) {
+            if (noBibFile) {
+                message
+                        .append("No Bibliography (.bib) file found, hence ...\n");
+            }
+            message
+                    .append("You have BibTex warnings:\n")
+                    .append(String.join("\n", bibWarnings))
+                    .append("\n\n");
+        }
+        return message.toString();
     }
 
     @GET
@@ -466,114 +578,6 @@ public class JustificationsResource extends ObjectResourceBase {
         );
     }
 
-    /**
-     * Function to find the "LaTeX Warning"s in the provided string. The input string should
-     * be specifically obtained from the output log file of 'latexmk'
-     *
-     * @param searchStr String to search
-     * @return List of Strings containing distinct warnings
-     */
-    private List<String> findLatexWarnings(String searchStr) {
-        Matcher matcher = Pattern
-                .compile("^LaTeX Warning.*$", Pattern.MULTILINE)
-                .matcher(searchStr);
-        List<String> list = new ArrayList<>();
-        //"LaTex Warning"s have the details on the same line
-        while (matcher.find()) {
-            list.add(matcher.group());
-        }
-        return list.stream().distinct().toList();
-    }
-
-    /**
-     * Function to find the "package natbib warning"s in the provided string. The input string should
-     * be specifically obtained from the output log file of 'latexmk'
-     *
-     * @param searchStr String to search
-     * @return List of Strings containing distinct warnings
-     */
-    private List<String> findNatBibWarnings(String searchStr) {
-        Matcher matcher = Pattern
-                .compile("^Package natbib Warning.*\\s.*\\.$", Pattern.MULTILINE)
-                .matcher(searchStr);
-        List<String> list = new ArrayList<>();
-        //remove any literal newlines
-        while (matcher.find()) {
-            list.add(matcher.group().replaceAll("\n", ""));
-        }
-        return list.stream().distinct().toList();
-    }
-
-    /**
-     * Function to scan the latexmk log file for errors generated during compilation of the output
-     *
-     * @param file File the log file
-     * @return List of Strings containing distinct errors
-     * @throws FileNotFoundException thrown by Scanner constructor if the input file does not exist
-     */
-    private List<String> scanLogForErrors(File file)
-            throws FileNotFoundException {
-        List<String> list = new ArrayList<>();
-        Scanner scanner = new Scanner(file);
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            //most errors start with "! " - "Runaway argument?" does not
-            if (line.contains("! ")) {
-                if (line.contains("LaTeX Error")) {
-                    // "LaTeX Error"s contain the details on the current line
-                    list.add(line);
-                } else if (scanner.hasNextLine()) {
-                    // other errors have the details on the next line
-                    list.add(line + ": " + scanner.nextLine());
-                }
-            } else if (line.contains("Runaway argument?")) {
-                list.add(line + " - " + scanner.nextLine() + " - have you forgotten a '}'?");
-            }
-        }
-        scanner.close();
-        return list.stream().distinct().toList();
-    }
-
-    private String scanLogForPageNumber(File file) throws WebApplicationException {
-        try {
-            Scanner scanner = new Scanner(file);
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                //all errors start with "! "
-                if (line.contains("Output written on out/" + jobName + ".pdf")) {
-                    scanner.close();
-                    Pattern pattern = Pattern.compile("\\d+ page|pages");
-                    Matcher matcher = pattern.matcher(line);
-                    if (matcher.find()) {
-                        return matcher.group();
-                    } else {
-                        throw new WebApplicationException(
-                                String.format("No page count found in log file: %s", file.getName()));
-                    }
-                }
-            }
-            scanner.close();
-            throw new WebApplicationException(
-                    String.format("No page count found in log file: %s", file.getName())
-            );
-        } catch (FileNotFoundException e) {
-            throw new WebApplicationException(e);
-        }
-    }
-
-    private List<String> scanBibTexLogForDetails(String searchStr) throws WebApplicationException {
-        Matcher matcher = Pattern
-                .compile("^I was expecting .*$", Pattern.MULTILINE)
-                .matcher(searchStr);
-        List<String> list = new ArrayList<>();
-        //the message is on the same line
-        while (matcher.find()) {
-            list.add(matcher.group());
-        }
-        return list.stream().distinct().toList();
-    }
-
-
     /**
      * Checks that the Justification exists and has Latex format
      *
@@ -0,0 +1,226 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the PDFs of successful LaTeX justification compilations, keyed by a SHA-256 hash of everything
+ * 'latexmk' reads - the templates, the title and cycle in the header, the justification texts, the
+ * bibliography and the images in the supporting documents - so that compiling an unchanged justification
+ * again returns the stored PDF without running 'latexmk'. The images, which can be large PDFs, are not
+ * read: they are keyed on their name, size and modification time, so an image that is uploaded again
+ * unchanged only costs one more compilation.
+ * <p>
+ * The entries of a proposal are kept in its store under "latexCache/", as "&lt;hash&gt;.pdf" with the page
+ * count and the compilation warnings in "&lt;hash&gt;.properties". Only the latest few entries are kept.
+ */
+@ApplicationScoped
+public class LatexCompileCache {
+
+    static final String cachePath = "latexCache/";
+
+    // entries kept per proposal, so that e.g. the TAC admin and a reviewer's copies do not evict each other
+    static final int ENTRIES_PER_PROPOSAL = 3;
+
+    // the files that can be included with \includegraphics from the supporting documents
+    private static final List<String> imageExtensions = List.of("png", "jpg", "jpeg", "pdf", "eps");
+
+    // the classpath resources copied into every working directory, see createLatexWorkingDirectory
+    private static final List<String> fixedResources = List.of(
+            "astronomyJournalAbbreviations.tex", "polaris.bst", "justificationsHeaderTemplate.tex");
+
+    /**
+     * A stored compilation.
+     * @param pdf the compiled PDF
+     * @param pageCount the page count from the log
+     * @param warnings the LaTeX and BibTeX warnings, as reported with 'warningsAsErrors', empty if none
+     */
+    public record Entry(File pdf, String pageCount, String warnings) {}
+
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    // the hashes of the classpath resources by name, they do not change while the service runs
+    private final Map<String, byte[]> resourceHashes = new ConcurrentHashMap<>();
+
+    /**
+     * Compute the key of a compilation of the proposal's justifications.
+     * @param proposalCode the proposal
+     * @param templateFilename the main template, a classpath resource
+     * @param proposalTitle the title in the header
+     * @param observingCycleName the cycle in the header, can be null
+     * @param scientificText the scientific justification
+     * @param technicalText the technical justification
+     * @param referencesFilename the '.bib' file in the supporting documents, can be null
+     * @param outputFilename the name of the compiled PDF in the supporting documents, which is not an input
+     * @return the hex SHA-256 of the inputs
+     * @throws IOException if the references file cannot be read
+     */
+    public String key(Long proposalCode, String templateFilename, String proposalTitle, String observingCycleName,
+                      String scientificText, String technicalText, String referencesFilename,
+                      String outputFilename)
+            throws IOException {
+        MessageDigest digest = sha256();
+        update(digest, templateFilename);
+        digest.update(resourceHash(templateFilename));
+        for (String resource : fixedResources) {
+            digest.update(resourceHash(resource));
+        }
+        update(digest, proposalTitle);
+        update(digest, observingCycleName);
+        update(digest, scientificText);
+        update(digest, technicalText);
+
+        String supportingDocuments = proposalDocumentStore.getSupportingDocumentsPath(proposalCode);
+        update(digest, referencesFilename);
+        if (referencesFilename != null) {
+            updateWithFile(digest, proposalDocumentStore.fetchFile(supportingDocuments + referencesFilename));
+        }
+
+        // in name order so the key does not depend on the order of the directory listing
+        Set<String> images = new TreeSet<>(proposalDocumentStore.listFilesIn(supportingDocuments, imageExtensions));
+        images.remove(outputFilename);
+        for (String image : images) {
+            update(digest, image);
+            updateWithStamp(digest, proposalDocumentStore.fetchFile(supportingDocuments + image));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @param proposalCode the proposal
+     * @param key the key of the compilation
+     * @return the stored compilation, empty if there is none
+     */
+    public Optional<Entry> lookup(Long proposalCode, String key) {
+        File pdf = proposalDocumentStore.fetchFile(proposalCode + "/" + cachePath + key + ".pdf");
+        File properties = proposalDocumentStore.fetchFile(proposalCode + "/" + cachePath + key + ".properties");
+        if (!pdf.exists() || !properties.exists()) {
+            meterRegistry.counter("pst.latex.cache", "outcome", "miss").increment();
+            return Optional.empty();
+        }
+        try (Reader in = Files.newBufferedReader(properties.toPath(), StandardCharsets.UTF_8)) {
+            Properties p = new Properties();
+            p.load(in);
+            meterRegistry.counter("pst.latex.cache", "outcome", "hit").increment();
+            // touched so that the pruning keeps the entries in use
+            properties.setLastModified(System.currentTimeMillis());
+            return Optional.of(new Entry(pdf, p.getProperty("pageCount"), p.getProperty("warnings", "")));
+        } catch (IOException e) {
+            Log.warnf(e, "unable to read the LaTeX cache entry %s", properties);
+            meterRegistry.counter("pst.latex.cache", "outcome", "miss").increment();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store a successful compilation, replacing the oldest entries of the proposal beyond
+     * ENTRIES_PER_PROPOSAL. A failure to store is logged, the compilation itself has succeeded.
+     * @param proposalCode the proposal
+     * @param key the key of the compilation
+     * @param pdf the compiled PDF, copied into the cache
+     * @param pageCount the page count from the log
+     * @param warnings the warnings message, empty if none
+     */
+    public void store(Long proposalCode, String key, File pdf, String pageCount, String warnings) {
+        try {
+            Path directory = proposalDocumentStore.fetchFile(proposalCode + "/" + cachePath).toPath();
+            Files.createDirectories(directory);
+
+            Properties p = new Properties();
+            p.setProperty("pageCount", pageCount);
+            p.setProperty("warnings", warnings);
+
+            // the properties are written last, an entry without them is not used
+            Path pdfTemp = Files.createTempFile(directory, "." + key, ".tmp");
+            Files.copy(pdf.toPath(), pdfTemp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(pdfTemp, directory.resolve(key + ".pdf"),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            Path propertiesTemp = Files.createTempFile(directory, "." + key, ".tmp");
+            try (Writer out = Files.newBufferedWriter(propertiesTemp, StandardCharsets.UTF_8)) {
+                p.store(out, null);
+            }
+            Files.move(propertiesTemp, directory.resolve(key + ".properties"),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            prune(directory.toFile());
+        } catch (IOException e) {
+            Log.warnf(e, "unable to store the LaTeX compilation of proposal %d", proposalCode);
+        }
+    }
+
+    private void prune(File directory) {
+        File[] entries = directory.listFiles((d, n) -> n.endsWith(".properties"));
+        if (entries == null || entries.length <= ENTRIES_PER_PROPOSAL) {
+            return;
+        }
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = ENTRIES_PER_PROPOSAL; i < entries.length; i++) {
+            String key = entries[i].getName().substring(0, entries[i].getName().length() - ".properties".length());
+            if (!entries[i].delete() || !new File(directory, key + ".pdf").delete()) {
+                Log.warnf("unable to remove the LaTeX cache entry %s", key);
+            }
+        }
+    }
+
+    private byte[] resourceHash(String name) {
+        return resourceHashes.computeIfAbsent(name, n -> {
+            MessageDigest digest = sha256();
+            try (InputStream in = Objects.requireNonNull(
+                    LatexCompileCache.class.getResourceAsStream("/" + n), n)) {
+                digest.update(in.readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return digest.digest();
+        });
+    }
+
+    // the length first, so that the boundaries between the values are part of the hash
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) 1);
+        digest.update(Long.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private static void updateWithFile(MessageDigest digest, File file) throws IOException {
+        update(digest, Long.toString(file.length()));
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(new FileInputStream(file)), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void updateWithStamp(MessageDigest digest, File file) {
+        update(digest, Long.toString(file.length()));
+        update(digest, Long.toString(file.lastModified()));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
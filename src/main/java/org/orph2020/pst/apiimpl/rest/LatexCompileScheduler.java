@@ -0,0 +1,183 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of 'latexmk' compilations running at once on this replica.
+ * <p>
+ * At most "pst.latex.pool-size" compilations run, and at most "pst.latex.queue-size" more wait for a turn,
+ * each for up to "pst.latex.queue-timeout". A request that finds the queue full, or that waits too long,
+ * is refused with a 429 and a Retry-After estimated from the recent compile times; the asynchronous
+ * COMPILE_JUSTIFICATION job is the alternative for clients that would rather not retry. A proposal that is
+ * already being compiled, on any replica, is refused with a 409, as both compilations would share its
+ * working directory: each compilation holds a session level Postgres advisory lock on the proposal, on a
+ * connection of its own, as compilations must not run in a transaction (they take far longer than the
+ * transaction timeout).
+ * <p>
+ * The queue depth, the running compilations, the queue wait and the refusals are published as the
+ * "pst.latex.*" meters.
+ */
+@ApplicationScoped
+public class LatexCompileScheduler {
+
+    /**
+     * A compilation, run when its turn comes.
+     */
+    @FunctionalInterface
+    public interface Compilation<T> {
+        T run() throws IOException;
+    }
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @ConfigProperty(name = "pst.latex.pool-size", defaultValue = "2")
+    int poolSize;
+
+    @ConfigProperty(name = "pst.latex.queue-size", defaultValue = "8")
+    int queueSize;
+
+    @ConfigProperty(name = "pst.latex.queue-timeout", defaultValue = "PT30S")
+    Duration queueTimeout;
+
+    @ConfigProperty(name = "pst.latex.timeout", defaultValue = "PT2M")
+    Duration timeout;
+
+    // places in the pool and the queue, and turns in the pool
+    private Semaphore admitted;
+    private Semaphore running;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    // moving average of the time a compilation takes, for the retry hint
+    private volatile double averageSeconds = 10.0;
+
+    @PostConstruct
+    void init() {
+        admitted = new Semaphore(poolSize + queueSize);
+        running = new Semaphore(poolSize, true);
+        meterRegistry.gauge("pst.latex.queue.depth", waiting);
+        meterRegistry.gauge("pst.latex.running", running, s -> poolSize - s.availablePermits());
+    }
+
+    /**
+     * @return the longest a single 'latexmk' run may take before it is killed
+     */
+    public Duration timeout() {
+        return timeout;
+    }
+
+    /**
+     * Run the compilation of the proposal when a place in the pool is free. Must NOT be called in a
+     * transaction, the compilation should use short transactions of its own to save its results.
+     * @param proposalCode the proposal being compiled
+     * @param compilation the compilation
+     * @return the result of the compilation
+     * @throws WebApplicationException 409 if the proposal is already being compiled, 429 if the pool is busy
+     * @throws IOException from the compilation
+     */
+    public <T> T schedule(Long proposalCode, Compilation<T> compilation) throws IOException {
+        if (!admitted.tryAcquire()) {
+            throw busy("queue-full");
+        }
+        try {
+            return runInTurn(proposalCode, compilation);
+        } finally {
+            admitted.release();
+        }
+    }
+
+    private <T> T runInTurn(Long proposalCode, Compilation<T> compilation) throws IOException {
+        Timer.Sample queued = Timer.start(meterRegistry);
+        waiting.incrementAndGet();
+        boolean turn;
+        try {
+            turn = running.tryAcquire(queueTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebApplicationException("interrupted waiting to compile", 503);
+        } finally {
+            waiting.decrementAndGet();
+            queued.stop(meterRegistry.timer("pst.latex.queue.wait"));
+        }
+        if (!turn) {
+            throw busy("queue-timeout");
+        }
+
+        long start = System.nanoTime();
+        try {
+            return runLocked(proposalCode, compilation);
+        } finally {
+            running.release();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            averageSeconds = 0.8 * averageSeconds + 0.2 * seconds;
+        }
+    }
+
+    private <T> T runLocked(Long proposalCode, Compilation<T> compilation) throws IOException {
+        String key = "latex:" + proposalCode;
+        try (Connection connection = dataSource.getConnection()) {
+            if (!advisoryLock(connection, "select pg_try_advisory_lock(hashtext(?))", key)) {
+                refuse("in-progress");
+                throw new WebApplicationException(
+                        "The justification of this proposal is already being compiled, please wait for it to finish",
+                        409);
+            }
+            try {
+                return compilation.run();
+            } finally {
+                advisoryLock(connection, "select pg_advisory_unlock(hashtext(?))", key);
+            }
+        } catch (SQLException e) {
+            throw new WebApplicationException(e.getMessage(), 500);
+        }
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, key);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    private WebApplicationException busy(String reason) {
+        refuse(reason);
+        // the time for the compilations ahead to go through the pool, at least a second
+        long retryAfter = Math.max(1L,
+                (long) Math.ceil(averageSeconds * (1 + (double) waiting.get() / poolSize)));
+        Log.infof("refused a LaTeX compilation (%s), retry after %ds", reason, retryAfter);
+        return new WebApplicationException(
+                "The LaTeX compiler is busy, please try again later or compile asynchronously",
+                Response.status(Response.Status.TOO_MANY_REQUESTS)
+                        .header("Retry-After", String.valueOf(retryAfter))
+                        .build());
+    }
+
+    private void refuse(String reason) {
+        meterRegistry.counter("pst.latex.refused", "reason", reason).increment();
+    }
+}
@@ -0,0 +1,137 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import jakarta.ws.rs.WebApplicationException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scans the log files written by 'latexmk' (and BibTeX) when compiling the justifications
+ * for the warnings, errors and page count reported back to the user.
+ */
+final class LatexLogScanner {
+
+    private static final Pattern LATEX_WARNING = Pattern.compile("^LaTeX Warning.*$", Pattern.MULTILINE);
+    private static final Pattern NATBIB_WARNING =
+            Pattern.compile("^Package natbib Warning.*\\s.*\\.$", Pattern.MULTILINE);
+    private static final Pattern BIBTEX_DETAIL = Pattern.compile("^I was expecting .*$", Pattern.MULTILINE);
+    private static final Pattern PAGE_COUNT = Pattern.compile("\\d+ page|pages");
+
+    private LatexLogScanner() {}
+
+    /**
+     * Function to find the "LaTeX Warning"s in the provided string. The input string should
+     * be specifically obtained from the output log file of 'latexmk'
+     *
+     * @param searchStr String to search
+     * @return List of Strings containing distinct warnings
+     */
+    static List<String> findLatexWarnings(String searchStr) {
+        Matcher matcher = LATEX_WARNING.matcher(searchStr);
+        List<String> list = new ArrayList<>();
+        //"LaTex Warning"s have the details on the same line
+        while (matcher.find()) {
+            list.add(matcher.group());
+        }
+        return list.stream().distinct().toList();
+    }
+
+    /**
+     * Function to find the "package natbib warning"s in the provided string. The input string should
+     * be specifically obtained from the output log file of 'latexmk'
+     *
+     * @param searchStr String to search
+     * @return List of Strings containing distinct warnings
+     */
+    static List<String> findNatBibWarnings(String searchStr) {
+        Matcher matcher = NATBIB_WARNING.matcher(searchStr);
+        List<String> list = new ArrayList<>();
+        //remove any literal newlines
+        while (matcher.find()) {
+            list.add(matcher.group().replaceAll("\n", ""));
+        }
+        return list.stream().distinct().toList();
+    }
+
+    /**
+     * Function to find the details of BibTeX problems in the provided string, obtained from the
+     * BibTeX log (.blg) file
+     *
+     * @param searchStr String to search
+     * @return List of Strings containing distinct problems
+     */
+    static List<String> scanBibTexLogForDetails(String searchStr) {
+        Matcher matcher = BIBTEX_DETAIL.matcher(searchStr);
+        List<String> list = new ArrayList<>();
+        //the message is on the same line
+        while (matcher.find()) {
+            list.add(matcher.group());
+        }
+        return list.stream().distinct().toList();
+    }
+
+    /**
+     * Function to scan the latexmk log for errors generated during compilation of the output
+     *
+     * @param log the contents of the log file
+     * @return List of Strings containing distinct errors
+     */
+    static List<String> scanLogForErrors(String log) {
+        try (Scanner scanner = new Scanner(log)) {
+            return scanLogForErrors(scanner);
+        }
+    }
+
+    private static List<String> scanLogForErrors(Scanner scanner) {
+        List<String> list = new ArrayList<>();
+        while (scanner.hasNextLine()) {
+            String line = scanner.nextLine();
+            //most errors start with "! " - "Runaway argument?" does not
+            if (line.contains("! ")) {
+                if (line.contains("LaTeX Error")) {
+                    // "LaTeX Error"s contain the details on the current line
+                    list.add(line);
+                } else if (scanner.hasNextLine()) {
+                    // other errors have the details on the next line
+                    list.add(line + ": " + scanner.nextLine());
+                }
+            } else if (line.contains("Runaway argument?")) {
+                list.add(line + " - " + scanner.nextLine() + " - have you forgotten a '}'?");
+            }
+        }
+        return list.stream().distinct().toList();
+    }
+
+    /**
+     * Finds the page count of the output PDF in the latexmk log file
+     *
+     * @param file the log file
+     * @param jobName the base name of the output PDF
+     * @return the page count as written in the log e.g., "3 page"
+     * @throws WebApplicationException if the log file does not exist or has no page count
+     */
+    static String scanLogForPageNumber(File file, String jobName) throws WebApplicationException {
+        try (Scanner scanner = new Scanner(file)) {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                if (line.contains("Output written on out/" + jobName + ".pdf")) {
+                    Matcher matcher = PAGE_COUNT.matcher(line);
+                    if (matcher.find()) {
+                        return matcher.group();
+                    }
+                    break;
+                }
+            }
+            throw new WebApplicationException(
+                    String.format("No page count found in log file: %s", file.getName())
+            );
+        } catch (FileNotFoundException e) {
+            throw new WebApplicationException(e);
+        }
+    }
+}
@@ -1,23 +1,38 @@
 package org.orph2020.pst.apiimpl.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.quarkus.arc.ArcUndeclaredThrowableException;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import org.ivoa.dm.proposal.prop.AbstractProposal;
 import org.ivoa.vodml.jaxb.XmlIdManagement;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
 import org.jboss.logging.Logger;
+import org.orph2020.pst.apiimpl.persistence.ProposalFetchProfile;
+import org.orph2020.pst.apiimpl.persistence.ReadOnlyForGet;
+import org.orph2020.pst.apiimpl.persistence.TracksResourceVersions;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import jakarta.inject.Inject;
 import jakarta.persistence.*;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import jakarta.ws.rs.ext.ExceptionMapper;
 import jakarta.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
+@ReadOnlyForGet
+@TracksResourceVersions
 abstract public class ObjectResourceBase {
     @PersistenceContext
     protected EntityManager em;  // exists for the application lifetime no need to close
@@ -26,6 +41,9 @@ abstract public class ObjectResourceBase {
     protected ObjectMapper mapper;
 
 
+    // number of statements per JDBC batch, and of children per flush, in addNewChildObjects
+    protected static final int BULK_BATCH_SIZE = 500;
+
     protected static final String NON_ASSOCIATE_ID =
             "%s with id: %d is not associated with the %s with id: %d";
 
@@ -33,8 +51,12 @@ abstract public class ObjectResourceBase {
             "%s with identifier: %s is not associated with the %s with id: %d";
 
     protected List<ObjectIdentifier> getObjectIdentifiers(String queryStr){
+        return getObjectIdentifiers(em.createQuery(queryStr));
+    }
+
+    // for (named) queries with bound parameters returning (id, name) rows
+    protected List<ObjectIdentifier> getObjectIdentifiers(Query query){
         List<ObjectIdentifier> result = new ArrayList<>();
-        Query query = em.createQuery(queryStr);
         List<Object[]> results = query.getResultList();
         for (Object[] r : results)
         {
@@ -44,6 +66,38 @@ abstract public class ObjectResourceBase {
         return result;
     }
 
+    /**
+     * Runs a keyset paginated query, see {@link PageRequest} for the parameters the query must take.
+     * @param query the paginated query, rows must have the id in column 0
+     * @param countQuery the count query with the same filters, run only if the total was requested
+     * @param pageRequest the page requested
+     * @param sortKeyColumn the column of the rows holding the sort key (which must be a string)
+     * @param rowMapper creates the item from a row
+     * @return the page
+     */
+    protected <T> Page<T> getPage(Query query, Query countQuery, PageRequest pageRequest,
+                                  int sortKeyColumn, Function<Object[], T> rowMapper)
+    {
+        pageRequest.bind(query);
+        List<Object[]> rows = query.getResultList();
+
+        String nextCursor = null;
+        if (rows.size() > pageRequest.size()) {
+            rows = rows.subList(0, pageRequest.size());
+            Object[] last = rows.get(rows.size() - 1);
+            nextCursor = PageRequest.cursorFor((String) last[sortKeyColumn], (Long) last[0]);
+        }
+
+        Long total = pageRequest.includeTotal() ? (Long) countQuery.getSingleResult() : null;
+
+        return new Page<>(rows.stream().map(rowMapper).toList(), nextCursor, total);
+    }
+
+    // for (named) paginated queries returning (id, name) rows ordered by (name, id)
+    protected Page<ObjectIdentifier> getObjectIdentifierPage(Query query, Query countQuery, PageRequest pageRequest) {
+        return getPage(query, countQuery, pageRequest, 1, r -> new ObjectIdentifier((Long) r[0], (String) r[1]));
+    }
+
     // Uses the three parameter ObjectIdentifier constructor
     protected List<ObjectIdentifier> getObjectIdentifiersAlt(Query query){
         List<ObjectIdentifier> result = new ArrayList<>();
@@ -66,6 +120,22 @@ abstract public class ObjectResourceBase {
         return object;
     }
 
+    /**
+     * Loads the parts of the proposal in the fetch profile, so that they are not loaded one lazy
+     * association at a time when the proposal is serialised or copied.
+     * @param proposal the (managed) proposal
+     * @param profile what to load
+     * @return the proposal
+     */
+    protected <T extends AbstractProposal> T fetchProfile(T proposal, ProposalFetchProfile profile) {
+        for (String fetch : profile.queries()) {
+            em.createNamedQuery(fetch)
+                    .setParameter("id", proposal.getId())
+                    .getResultList();
+        }
+        return proposal;
+    }
+
     protected <T,S> T findChildByQuery(Class<S> parentType, Class<T> childType, String childParameter,
                                      long parentId, long childId)
     {
@@ -120,8 +190,78 @@ abstract public class ObjectResourceBase {
         return jsonObject;
     }
 
+    /**
+     * Serializes the given object as JSON directly onto the given stream, no intermediate String is
+     * built. The stream is left open so that this may be used for e.g. individual zip entries.
+     * @param object the object to serialize
+     * @param outputStream the stream to write to
+     * @throws IOException if writing to the stream fails
+     * @throws WebApplicationException (422) if the object cannot be serialized
+     */
+    protected <T> void writeAsJson(T object, OutputStream outputStream)
+            throws IOException, WebApplicationException
+    {
+        try {
+            mapper.writer()
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValue(outputStream, object);
+        } catch (JsonProcessingException e) {
+            throw new WebApplicationException(e.getMessage(), 422);
+        }
+    }
+
+    /**
+     * Serializes the given object as UTF-8 JSON, without the intermediate String of writeAsJsonString.
+     * @param object the object to serialize
+     * @return the JSON document
+     * @throws WebApplicationException (422) if the object cannot be serialized
+     */
+    protected <T> byte[] writeAsJsonBytes(T object)
+            throws WebApplicationException
+    {
+        try {
+            return mapper.writeValueAsBytes(object);
+        } catch (JsonProcessingException e) {
+            throw new WebApplicationException(e.getMessage(), 422);
+        }
+    }
+
+    /**
+     * Creates a response entity that serializes the given object straight into the HTTP output
+     * stream when the response is written, rather than holding the whole JSON document on the heap.
+     * <p>
+     * The object is serialized after the resource method has returned, i.e. after its transaction has
+     * committed, and a failure can only truncate the response as the status has already been sent. So
+     * only pass DTOs or entities that are fully loaded, e.g. with ProposalFetchProfile.FULL, or that
+     * belong to the request scoped session of a method that does not run in a transaction.
+     * @param object the object to serialize
+     * @return the streaming entity
+     */
+    protected <T> StreamingOutput writeAsJsonStream(T object) {
+        return outputStream -> writeAsJson(object, outputStream);
+    }
+
+    /**
+     * Creates a response with the object as its JSON entity, streamed to the client when the response is
+     * written. Methods that do not run in a transaction use the request scoped session, which is still
+     * open then. In a transaction the session closes when the method returns, so the object is first
+     * walked here as the response will be, into a null stream: that loads the lazy associations while
+     * they still can be, and a serialization failure becomes a 422 rather than a truncated response,
+     * without holding the document on the heap. Scalars (e.g. a title) are small and are written at once.
+     */
     protected <T> Response responseWrapper(T object, int statusCode) {
-        return Response.ok(writeAsJsonString(object)).status(statusCode).build();
+        if (object == null || object instanceof CharSequence || object instanceof Number
+                || object instanceof Boolean || object instanceof Date || object instanceof Enum<?>) {
+            return Response.status(statusCode).entity(writeAsJsonBytes(object)).build();
+        }
+        if (QuarkusTransaction.isActive()) {
+            try {
+                writeAsJson(object, OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new WebApplicationException(e.getMessage(), 500); // not thrown by a null stream
+            }
+        }
+        return Response.status(statusCode).entity(writeAsJsonStream(object)).build();
     }
 
     /**
@@ -171,6 +311,96 @@ abstract public class ObjectResourceBase {
         return child;
     }
 
+    /**
+     * Bulk version of {@link #addNewChildObject}, for adding many children (e.g. an uploaded target list)
+     * to the same parent. The children are persisted with JDBC batching and flushed in chunks rather
+     * than one by one, and the parent is merged once at the end. The flush mode of the session is
+     * restored afterwards.
+     * @param parent the (managed) parent object
+     * @param children the new children
+     * @param adder adds a child to the parent's collection
+     * @return the persisted children
+     */
+    protected <T,S> List<S> addNewChildObjects(T parent, List<S> children, Consumer<S> adder)
+    {
+        Session session = em.unwrap(Session.class);
+        FlushMode flushMode = session.getHibernateFlushMode();
+        Integer batchSize = session.getJdbcBatchSize();
+        try {
+            // with the configured flush mode 'always' every persist would flush the whole session
+            session.setHibernateFlushMode(FlushMode.COMMIT);
+            session.setJdbcBatchSize(BULK_BATCH_SIZE);
+
+            int count = 0;
+            for (S child : children) {
+                session.persist(child);
+                adder.accept(child);
+                if (++count % BULK_BATCH_SIZE == 0) {
+                    session.flush();
+                }
+            }
+            session.flush();
+        } finally {
+            session.setJdbcBatchSize(batchSize);
+            session.setHibernateFlushMode(flushMode);
+        }
+        em.merge(parent);
+        return children;
+    }
+
+    /**
+     * Persists a newly copied object graph, e.g. a cloned or submitted proposal. The graph is inserted by
+     * the cascade in one flush, with the inserts grouped by entity and sent in JDBC batches (which the
+     * driver rewrites into multi-row inserts), rather than a statement and round trip per row.
+     * @param copy the root of the copy
+     * @return the persisted root
+     */
+    protected <T> T persistCopy(T copy)
+            throws WebApplicationException
+    {
+        Session session = em.unwrap(Session.class);
+        FlushMode flushMode = session.getHibernateFlushMode();
+        Integer batchSize = session.getJdbcBatchSize();
+        try {
+            session.setHibernateFlushMode(FlushMode.COMMIT);
+            session.setJdbcBatchSize(BULK_BATCH_SIZE);
+            session.persist(copy);
+            session.flush();
+        } catch (PersistenceException e) {
+            // the copy is made by the server, so a failure to insert it is not the client's fault
+            throw new WebApplicationException(e.getMessage(), 500);
+        } finally {
+            session.setJdbcBatchSize(batchSize);
+            session.setHibernateFlushMode(flushMode);
+        }
+        return copy;
+    }
+
+    /**
+     * Deletes a proposal and everything it contains. The proposal is first loaded with the FULL fetch
+     * profile, so that the remove cascade does not load each collection separately, then the deletes are
+     * flushed in JDBC batches. The observations are removed first as they refer to other parts of the
+     * proposal.
+     * @param proposal the (managed) proposal
+     */
+    protected void removeProposalGraph(AbstractProposal proposal) {
+        fetchProfile(proposal, ProposalFetchProfile.FULL);
+        Session session = em.unwrap(Session.class);
+        FlushMode flushMode = session.getHibernateFlushMode();
+        Integer batchSize = session.getJdbcBatchSize();
+        try {
+            session.setHibernateFlushMode(FlushMode.COMMIT);
+            session.setJdbcBatchSize(BULK_BATCH_SIZE);
+            proposal.getObservations().forEach(session::remove);
+            session.flush();
+            session.remove(proposal);
+            session.flush();
+        } finally {
+            session.setJdbcBatchSize(batchSize);
+            session.setHibernateFlushMode(flushMode);
+        }
+    }
+
     protected <T,S> Response deleteChildObject(T parent, S child, Consumer<S> remover)
     {
 
@@ -219,7 +449,12 @@ abstract public class ObjectResourceBase {
                 exceptionJson.put("message",message);
             }
 
-            return Response.status(code).entity(exceptionJson).build();
+            Response.ResponseBuilder response = Response.status(code).entity(exceptionJson);
+            // keep the back-pressure hint of a 429 or 503, see LatexCompileScheduler
+            if (e instanceof WebApplicationException w && w.getResponse().getHeaderString("Retry-After") != null) {
+                response.header("Retry-After", w.getResponse().getHeaderString("Retry-After"));
+            }
+            return response.build();
         }
     }
 
@@ -7,6 +7,7 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.prop.*;
 import org.jboss.resteasy.reactive.ResponseStatus;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import jakarta.transaction.Transactional;
@@ -38,6 +39,7 @@ public class ObservationResource extends ObjectResourceBase {
         CalibrationObservation
     }
     @GET
+    @ConditionalGet(VersionedResource.PROPOSAL)
     @Operation(summary = "get the list of ObjectIdentifiers for the Observations associated with the given ObservingProposal, optionally provide a srcName as a query to get that particular Observation's identifier")
     public List<ObjectIdentifier> getObservations(@PathParam("proposalCode") Long proposalCode,
                                                   @RestQuery String srcName,
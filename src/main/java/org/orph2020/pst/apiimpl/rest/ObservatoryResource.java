@@ -4,6 +4,7 @@ package org.orph2020.pst.apiimpl.rest;
  */
 
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
@@ -11,6 +12,8 @@ import org.ivoa.vodml.stdtypes.Ivoid;
 import org.ivoa.dm.proposal.management.*;
 import org.ivoa.dm.proposal.prop.WikiDataId;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.persistence.EvictsReferenceData;
+import org.orph2020.pst.apiimpl.persistence.ReferenceDataCache;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import jakarta.transaction.Transactional;
@@ -24,8 +27,12 @@ import java.util.List;
 @Produces(MediaType.APPLICATION_JSON)
 @Path("observatories")
 @Tag(name = "observatories")
+@EvictsReferenceData
 public class ObservatoryResource extends ObjectResourceBase {
 
+    @Inject
+    ReferenceDataCache referenceDataCache;
+
     @GET
     @Operation(summary = "get all of the Observatories, optionally provide a name to find the specific Observatory")
     @APIResponse(
@@ -33,7 +40,8 @@ public class ObservatoryResource extends ObjectResourceBase {
     )
     public List<ObjectIdentifier> getObservatories(@RestQuery String name){
         if (name == null) {
-            return getObjectIdentifiers("SELECT o._id,o.name FROM Observatory o ORDER BY o.name");
+            return referenceDataCache.identifiers("observatories",
+                    () -> getObjectIdentifiers("SELECT o._id,o.name FROM Observatory o ORDER BY o.name"));
         } else {
             return getObjectIdentifiers("SELECT o._id,o.name FROM Observatory o WHERE o.name like '" +name+ "'ORDER BY o.name");
         }
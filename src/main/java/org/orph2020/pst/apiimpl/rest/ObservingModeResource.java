@@ -1,6 +1,7 @@
 package org.orph2020.pst.apiimpl.rest;
 
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
 import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.core.Response;
@@ -9,6 +10,8 @@ import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.management.Filter;
 import org.ivoa.dm.proposal.management.ObservingMode;
 import org.ivoa.dm.proposal.management.ProposalCycle;
+import org.orph2020.pst.apiimpl.persistence.EvictsReferenceData;
+import org.orph2020.pst.apiimpl.persistence.ReferenceDataCache;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import jakarta.persistence.TypedQuery;
@@ -30,8 +33,12 @@ and/or different backends.
 @Tag(name = "proposalCycles-observingModes")
 @Produces(MediaType.APPLICATION_JSON)
 @RolesAllowed("default-roles-orppst")
+@EvictsReferenceData
 public class ObservingModeResource extends ObjectResourceBase {
 
+    @Inject
+    ReferenceDataCache referenceDataCache;
+
     private ObservingMode findObservingModeByQuery(long cycleId, long modeId) {
         TypedQuery<ObservingMode>  q = em.createQuery(
                 "select om from ProposalCycle c join c.observingModes om where c._id = :cid and om._id = :mid",
@@ -50,9 +57,8 @@ public class ObservingModeResource extends ObjectResourceBase {
                 + "inner join c.observingModes om "
                 + "where c._id=" + cycleId + " order by om._id";
 
-        Query query = em.createQuery(qlString);
-
-        return getObjectIdentifiersAlt(query);
+        return referenceDataCache.identifiers("cycle:" + cycleId + ":observingModes",
+                () -> getObjectIdentifiersAlt(em.createQuery(qlString)));
     }
 
 
@@ -1,11 +1,15 @@
 package org.orph2020.pst.apiimpl.rest;
 
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.prop.Organization;
 import org.ivoa.dm.proposal.prop.WikiDataId;
 import org.ivoa.vodml.stdtypes.Ivoid;
+import org.orph2020.pst.apiimpl.persistence.EvictsReferenceData;
+import org.orph2020.pst.apiimpl.persistence.ReferenceDataCache;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import jakarta.transaction.Transactional;
@@ -17,12 +21,20 @@ import java.util.List;
 @Produces(MediaType.APPLICATION_JSON)
 @Path("organizations")
 @Tag(name = "organizations")
+@EvictsReferenceData
 public class OrganizationResource extends ObjectResourceBase {
 
+    @Inject
+    ReferenceDataCache referenceDataCache;
+
+    @Inject
+    ResourceVersions resourceVersions;
+
     @GET
     @Operation(summary= "get all Organizations stored in the database")
     public List<ObjectIdentifier> getOrganizations() {
-        return getObjectIdentifiers("SELECT o._id,o.name FROM Organization o ORDER BY o.name");
+        return referenceDataCache.identifiers("organizations",
+                () -> getObjectIdentifiers("SELECT o._id,o.name FROM Organization o ORDER BY o.name"));
     }
 
     @GET
@@ -52,6 +64,7 @@ public class OrganizationResource extends ObjectResourceBase {
     public Response deleteOrganization(@PathParam("id") Long id)
         throws WebApplicationException
     {
+        resourceVersions.bumpProposalsOfOrganization(id);
         return removeObject(Organization.class, id);
     }
 
@@ -67,6 +80,7 @@ public class OrganizationResource extends ObjectResourceBase {
         Organization organization = findObject(Organization.class, id);
 
         organization.setName(replacementName);
+        resourceVersions.bumpProposalsOfOrganization(id);
 
         return responseWrapper(organization, 201);
     }
@@ -83,6 +97,7 @@ public class OrganizationResource extends ObjectResourceBase {
         Organization organization = findObject(Organization.class, id);
 
         organization.setAddress(replacementAddress);
+        resourceVersions.bumpProposalsOfOrganization(id);
 
         return responseWrapper(organization, 201);
     }
@@ -99,6 +114,7 @@ public class OrganizationResource extends ObjectResourceBase {
         Organization organization = findObject(Organization.class, id);
 
         organization.setIvoid(new Ivoid(replacementIvoId));
+        resourceVersions.bumpProposalsOfOrganization(id);
 
         return responseWrapper(organization, 201);
     }
@@ -115,6 +131,7 @@ public class OrganizationResource extends ObjectResourceBase {
         Organization organization = findObject(Organization.class, id);
 
         organization.setWikiId(new WikiDataId(replacementWikiId));
+        resourceVersions.bumpProposalsOfOrganization(id);
 
         return responseWrapper(organization, 201);
     }
@@ -0,0 +1,34 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated list.
+ * @param <T> the type of the items
+ * @see PageRequest
+ */
+public class Page<T> {
+
+    /**
+     * the items of this page, at most the requested page size
+     */
+    public List<T> items;
+
+    /**
+     * pass as the "cursor" query parameter to get the next page, absent on the last page
+     */
+    public String nextCursor;
+
+    /**
+     * the number of items on all pages, only present if "includeTotal" was requested
+     */
+    public Long total;
+
+    public Page() {}
+
+    public Page(List<T> items, String nextCursor, Long total) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+}
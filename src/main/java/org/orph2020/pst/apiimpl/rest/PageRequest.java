@@ -0,0 +1,81 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import jakarta.persistence.Query;
+import jakarta.ws.rs.WebApplicationException;
+import org.jboss.resteasy.reactive.RestQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The query parameters of a keyset paginated list endpoint, used as a {@link jakarta.ws.rs.BeanParam}.
+ * <p>
+ * Paginated queries are ordered by (sort key, id) and take the parameters "afterKey" and "afterId",
+ * which are both null for the first page, e.g.
+ * <pre>
+ * and (:afterKey is null or coalesce(o.title,'') &gt; :afterKey
+ *      or (coalesce(o.title,'') = :afterKey and o._id &gt; :afterId))
+ * order by coalesce(o.title,''), o._id
+ * </pre>
+ * The cursor handed to the client is an opaque encoding of the (sort key, id) of the last row of a page.
+ * @see Page
+ */
+public class PageRequest {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final char SEPARATOR = '\u001f';
+
+    @RestQuery
+    Integer pageSize;
+
+    @RestQuery
+    String cursor;
+
+    @RestQuery
+    boolean includeTotal;
+
+    public int size() {
+        if (pageSize == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new WebApplicationException(
+                    String.format("pageSize must be between 1 and %d", MAX_PAGE_SIZE), 400);
+        }
+        return pageSize;
+    }
+
+    public boolean includeTotal() {
+        return includeTotal;
+    }
+
+    /**
+     * Binds the keyset parameters "afterKey" and "afterId" from the cursor, and limits the query to
+     * one row more than the page size, so that the existence of a next page can be detected.
+     * @param query the paginated query
+     */
+    public void bind(Query query) {
+        String afterKey = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf(SEPARATOR);
+                afterKey = decoded.substring(0, separator);
+                afterId = Long.valueOf(decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new WebApplicationException("invalid cursor", 400);
+            }
+        }
+        query.setParameter("afterKey", afterKey);
+        query.setParameter("afterId", afterId);
+        query.setMaxResults(size() + 1);
+    }
+
+    static String cursorFor(String sortKey, Long id) {
+        String raw = (sortKey == null ? "" : sortKey) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,6 +5,8 @@ package org.orph2020.pst.apiimpl.rest;
 
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
@@ -13,7 +15,10 @@ import org.ivoa.dm.proposal.prop.Organization;
 import org.ivoa.dm.proposal.prop.Person;
 import org.ivoa.dm.ivoa.StringIdentifier ;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
 import org.orph2020.pst.apiimpl.entities.SubjectMap;
+import org.orph2020.pst.apiimpl.persistence.EvictsReferenceData;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import jakarta.transaction.Transactional;
@@ -31,6 +36,12 @@ import java.util.stream.Collectors;
 @ApplicationScoped
 public class PersonResource extends ObjectResourceBase {
 
+   @Inject
+   SubjectPersonCache subjectPersonCache;
+
+   @Inject
+   ResourceVersions resourceVersions;
+
    private void checkEmail(String incomingEmail) {
       String qlString = "select p.eMail from Person p";
       TypedQuery<String> query = em.createQuery(qlString, String.class);
@@ -48,10 +59,20 @@ public class PersonResource extends ObjectResourceBase {
    @GET
    @Operation(summary = "get People from the database, optionally provide a name to find all the people with that name")
    public List<ObjectIdentifier> getPeople(@RestQuery String name) {
-      if(name == null)
-         return getObjectIdentifiers("SELECT o._id,o.fullName FROM Person o ORDER BY o.fullName");
-      else
-         return getObjectIdentifiers("SELECT o._id,o.fullName FROM Person o Where o.fullName like '"+name+"' ORDER BY o.fullName");
+      Query query = em.createNamedQuery(QueryRegistry.PEOPLE);
+      query.setParameter("name", name);
+      return getObjectIdentifiers(query);
+   }
+
+   @GET
+   @Path("page")
+   @Operation(summary = "get a page of People ordered by name, optionally provide a name to find the people with that name. Pass the 'nextCursor' of a page as 'cursor' to get the following page.")
+   public Page<ObjectIdentifier> getPeoplePage(@RestQuery String name, @BeanParam PageRequest pageRequest) {
+      Query query = em.createNamedQuery(QueryRegistry.PEOPLE_PAGE);
+      Query countQuery = em.createNamedQuery(QueryRegistry.PEOPLE_COUNT);
+      query.setParameter("name", name);
+      countQuery.setParameter("name", name);
+      return getObjectIdentifierPage(query, countQuery, pageRequest);
    }
 
    @GET
@@ -88,7 +109,9 @@ public class PersonResource extends ObjectResourceBase {
    @Operation(summary = "get a Person with the provided email address, no match returns id:0 name:Not found")
    public ObjectIdentifier getPersonByEmail(@RestQuery String email)
    {
-       List<ObjectIdentifier> people = getObjectIdentifiers("SELECT o._id,o.fullName FROM Person o Where lower(o.eMail) = lower('" + email + "')");
+       Query query = em.createNamedQuery(QueryRegistry.PERSON_BY_EMAIL);
+       query.setParameter("email", email);
+       List<ObjectIdentifier> people = getObjectIdentifiers(query);
       if(people.isEmpty())
           return new ObjectIdentifier(0, "Not found");
        return people.get(0);
@@ -105,6 +128,7 @@ public class PersonResource extends ObjectResourceBase {
    @Operation(summary = "create a new Person in the database")
    @Consumes(MediaType.APPLICATION_JSON)
    @Transactional(rollbackOn = {WebApplicationException.class})
+   @EvictsReferenceData // a new home institute is added to the organisations
    public Person createPerson(Person person)
            throws WebApplicationException
    {
@@ -119,12 +143,14 @@ public class PersonResource extends ObjectResourceBase {
    @Operation(summary = "create a new Person in the database from a keycloak 'user'")
    @Consumes(MediaType.APPLICATION_JSON)
    @Transactional(rollbackOn = {WebApplicationException.class})
+   @EvictsReferenceData
    public Person createPersonFromKeycloak(@PathParam("keycloakUid") String kcUid, Person person)
    {
       Person result = persistObject(person);
 
       //store the user's keycloak UID
       em.persist(new SubjectMap(person, kcUid));
+      subjectPersonCache.invalidate(kcUid);
 
       return result;
    }
@@ -137,6 +163,8 @@ public class PersonResource extends ObjectResourceBase {
    public Response deletePerson(@PathParam("id") Long id)
            throws WebApplicationException
    {
+      subjectPersonCache.invalidatePerson(id);
+      resourceVersions.bumpProposalsOfPerson(id);
       return removeObject(Person.class, id);
    }
 
@@ -152,6 +180,7 @@ public class PersonResource extends ObjectResourceBase {
       Person person = findObject(Person.class, personId);
 
       person.setFullName(replacementFullName);
+      resourceVersions.bumpProposalsOfPerson(personId);
 
       return responseWrapper(person, 201);
    }
@@ -171,6 +200,7 @@ public class PersonResource extends ObjectResourceBase {
       Person person = findObject(Person.class, personId);
 
       person.setEMail(replacementEMail);
+      resourceVersions.bumpProposalsOfPerson(personId);
 
       return responseWrapper(person, 201);
    }
@@ -187,6 +217,7 @@ public class PersonResource extends ObjectResourceBase {
       Person person = findObject(Person.class, personId);
 
       person.setOrcidId(new StringIdentifier(replacementOrcidId));
+      resourceVersions.bumpProposalsOfPerson(personId);
 
       return responseWrapper(person, 201);
    }
@@ -197,12 +228,14 @@ public class PersonResource extends ObjectResourceBase {
    @Consumes(MediaType.APPLICATION_JSON)
    @RolesAllowed("default-roles-orppst")
    @Transactional(rollbackOn = {WebApplicationException.class})
+   @EvictsReferenceData
    public Response updateHomeInstitute(@PathParam("id") Long personId, Organization replacementHomeInstitute)
       throws WebApplicationException
    {
       Person person = findObject(Person.class, personId);
 
       person.setHomeInstitute(replacementHomeInstitute);
+      resourceVersions.bumpProposalsOfPerson(personId);
 
       return responseWrapper(person, 201);
    }
@@ -19,6 +19,11 @@ import org.ivoa.dm.proposal.management.*;
 import org.ivoa.dm.proposal.management.Observatory;
 import org.jboss.logging.Logger;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.persistence.ProposalSearchIndex;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+import org.orph2020.pst.apiimpl.validation.ValidationEngine;
+import org.orph2020.pst.apiimpl.validation.ValidationReport;
 import org.orph2020.pst.common.json.CycleObservingTimeTotal;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 import org.orph2020.pst.common.json.ProposalCycleSynopsis;
@@ -39,13 +44,17 @@ public class ProposalCyclesResource extends ObjectResourceBase {
     private final Logger logger;
 
     @Inject
-    SubjectMapResource subjectMapResource;
+    CurrentUser currentUser;
     @Inject
     JsonWebToken userInfo;
     @Inject
     ProposalDocumentStore proposalDocumentStore;
+    @Inject
+    ValidationEngine validationEngine;
+    @Inject
+    ProposalSearchIndex proposalSearchIndex;
 
-    private static final String notOnTACmsg = "This endpoint is restricted to TAC members only";
+    static final String notOnTACmsg = "This endpoint is restricted to TAC members only";
 
     public ProposalCyclesResource(Logger logger) {
         this.logger = logger;
@@ -59,9 +68,6 @@ public class ProposalCyclesResource extends ObjectResourceBase {
     public boolean isCurrentUserOnTAC(ProposalCycle cycle)
             throws WebApplicationException
     {
-        // Get the current user details.
-        Long personId = subjectMapResource.subjectMap(userInfo.getSubject()).getPerson().getId();
-
         // An observatory administrator can do _anything_
         if(userInfo.getClaim("realm_access") != null) {
             String roleList = userInfo.getClaim("realm_access").toString();
@@ -71,6 +77,9 @@ public class ProposalCyclesResource extends ObjectResourceBase {
             }
         }
 
+        // Get the current user details.
+        Long personId = currentUser.personId();
+
         AtomicReference<Boolean> amIOnTheTAC = new AtomicReference<>(false);
 
         // See if user is member of the TAC
@@ -89,57 +98,25 @@ public class ProposalCyclesResource extends ObjectResourceBase {
     @RolesAllowed({"tac_member", "tac_admin"})
     public List<ObjectIdentifier> getMyTACMemberProposalCycles(@RestQuery boolean includeClosed, @RestQuery long observatoryId) {
         // Get the current user details.
-        Long personId = subjectMapResource.subjectMap(userInfo.getSubject()).getPerson().getId();
-        List<ObjectIdentifier> matchedCycles = new ArrayList<>();
-
-        // Find list of Proposal Cycles and their TACs
-        String query = "select p._id,p.title,tac from ProposalCycle p";
-
-        if(!includeClosed)
-            if(observatoryId == 0)
-                query += " WHERE p.submissionDeadline > CURRENT_TIMESTAMP() ";
-            else
-                query += " WHERE p.submissionDeadline > CURRENT_TIMESTAMP() AND p.observatory._id = "+observatoryId;
-        else //include closed
-            if(observatoryId > 0)
-                query += " WHERE p.observatory._id = "+observatoryId;
-
-        List<Object[]> cycles = em.createQuery(query).getResultList();
-
-        // Filter these TACs for those that include this user
-        for (Object[] cycle : cycles) {
-            TAC cycleTac = (TAC) cycle[2];
-
-            for(int i = 0; i < cycleTac.getMembers().size(); i++ ) {
-                Long memberPersonId = cycleTac.getMembers().get(i).getMember().getPerson().getId();
-                if(Objects.equals(memberPersonId, personId)) {
-                    matchedCycles.add(new ObjectIdentifier((long)cycle[0], cycle[1].toString()));
-                    break;
-                }
-            }
+        Long personId = currentUser.personId();
 
-        }
+        // Find the Proposal Cycles whose TAC includes this user
+        Query query = em.createNamedQuery(QueryRegistry.TAC_MEMBER_PROPOSAL_CYCLES);
+        query.setParameter("personId", personId);
+        query.setParameter("includeClosed", includeClosed);
+        query.setParameter("observatoryId", observatoryId);
 
-        return matchedCycles;
+        return getObjectIdentifiers(query);
     }
 
     @GET
     @Operation(summary = "list the proposal cycles, optionally filter by observatory id and closed (passed submission deadline)")
     public List<ObjectIdentifier> getProposalCycles(@RestQuery boolean includeClosed, @RestQuery long observatoryId) {
-        String select = "SELECT o._id,o.title FROM ProposalCycle o ";
-        String where = "";
-        String order = "ORDER BY o.submissionDeadline";
-
-        if(!includeClosed) {
-            where = "WHERE o.submissionDeadline > CURRENT_TIMESTAMP() ";
-            if (observatoryId > 0)
-                where += "AND o.observatory._id = "+observatoryId+" ";
-        } else {
-            if (observatoryId > 0)
-                where = "WHERE o.observatory._id = "+observatoryId+" ";
-        }
+        Query query = em.createNamedQuery(QueryRegistry.PROPOSAL_CYCLES);
+        query.setParameter("includeClosed", includeClosed);
+        query.setParameter("observatoryId", observatoryId);
 
-        return super.getObjectIdentifiers(select + where + order);
+        return getObjectIdentifiers(query);
     }
 
 
@@ -239,6 +216,7 @@ public class ProposalCyclesResource extends ObjectResourceBase {
 
     @GET
     @Path("{cycleCode}/details")
+    @ConditionalGet(VersionedResource.CYCLE)
     @Operation(summary = "Get the dates associated with a given proposal cycle")
     public ProposalCycleSynopsis getProposalCycleDetails(@PathParam("cycleCode") Long cycleCode)
     {
@@ -350,6 +328,45 @@ public class ProposalCyclesResource extends ObjectResourceBase {
     }
 
 
+    //********* VALIDATION **********
+
+    @GET
+    @Path("{cycleCode}/validation")
+    @Operation(summary = "validate all the proposals submitted to the given proposal cycle against it")
+    @RolesAllowed({"tac_member", "tac_admin"})
+    public List<ValidationReport> validateCycleProposals(@PathParam("cycleCode") Long cycleCode)
+            throws WebApplicationException
+    {
+        ProposalCycle cycle = findObject(ProposalCycle.class, cycleCode);
+        if (!isCurrentUserOnTAC(cycle)) {
+            throw new WebApplicationException(notOnTACmsg, Response.Status.FORBIDDEN);
+        }
+        return validationEngine.validateCycle(cycleCode);
+    }
+
+
+    /**
+     * Removes the given submitted proposals from the cycle and deletes them, with their document stores
+     * once the transaction has committed. Must be called in a transaction, see PurgeCycleSubmissionsJob
+     * for the bulk clean-up of a cycle.
+     * @param cycleCode the cycle
+     * @param submittedProposalIds the submitted proposals of the cycle to delete
+     */
+    void removeSubmittedProposals(Long cycleCode, List<Long> submittedProposalIds) {
+        ProposalCycle cycle = findObject(ProposalCycle.class, cycleCode);
+        for (Long id : submittedProposalIds) {
+            SubmittedProposal submittedProposal = em.find(SubmittedProposal.class, id);
+            if (submittedProposal == null) {
+                continue;
+            }
+            cycle.removeFromSubmittedProposals(submittedProposal);
+            removeProposalGraph(submittedProposal);
+            proposalSearchIndex.reindex(id);
+            proposalDocumentStore.removeStorePathAfterCommit(String.valueOf(id));
+        }
+    }
+
+
     //********* GRADES **********
 
     @GET
@@ -358,9 +375,8 @@ public class ProposalCyclesResource extends ObjectResourceBase {
     @RolesAllowed({"tac_member", "tac_admin"})
     public List<ObjectIdentifier> getCycleAllocationGrades(@PathParam("cycleCode") Long cycleCode)
     {
-        Query query = em.createQuery(
-                "Select o._id,o.description,o.name from ProposalCycle p inner join p.possibleGrades o where p._id = "+cycleCode+" Order by o.name"
-        );
+        Query query = em.createNamedQuery(QueryRegistry.CYCLE_ALLOCATION_GRADES);
+        query.setParameter("cycleId", cycleCode);
 
         return getObjectIdentifiersAlt(query);
     }
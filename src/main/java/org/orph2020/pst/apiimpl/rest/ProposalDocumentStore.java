@@ -1,14 +1,23 @@
 package org.orph2020.pst.apiimpl.rest;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.ivoa.dm.proposal.prop.SupportingDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -35,6 +44,19 @@ public class ProposalDocumentStore {
     @ConfigProperty(name = "document-store.justifications-path")
     String justificationsPath;
 
+    // clone stores by hard-linking the supporting documents rather than copying them, see copyStore
+    @ConfigProperty(name = "document-store.copy-on-write", defaultValue = "false")
+    boolean copyOnWrite;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    @Inject
+    ManagedExecutor managedExecutor;
+
 
     /**
      * Creates the subdirectory structure for this Store from the given parameter.
@@ -151,9 +173,49 @@ public class ProposalDocumentStore {
         FileUtils.deleteDirectory(fetchFile(proposalDirectory));
     }
 
+    /**
+     * Removes the subdirectory once the current transaction has committed, in the background. Nothing is
+     * removed if the transaction rolls back, so the database never refers to deleted files. Without a
+     * transaction the directory is removed straight away (still in the background).
+     * @param proposalDirectory the (sub)directory to delete
+     */
+    public void removeStorePathAfterCommit(String proposalDirectory) {
+        Runnable remove = () -> managedExecutor.execute(() -> {
+            try {
+                removeStorePath(proposalDirectory);
+            } catch (IOException e) {
+                logger.error("unable to remove store path {}", proposalDirectory, e);
+            }
+        });
+
+        if (transactionSynchronizationRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            remove.run();
+            return;
+        }
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    remove.run();
+                }
+            }
+        });
+    }
+
     /**
      * Copies the contents of directory 'source' to the directory 'destination', this includes subdirectories
      * and files (intention is that 'source' and 'destination' are unique identifiers for proposals)
+     * <p>
+     * With "document-store.copy-on-write" set, the supporting documents are hard-linked into the destination
+     * instead of copied, so that both stores share the (possibly large) files until one of them replaces a file.
+     * This is safe because the store only ever replaces supporting documents, via {@link #moveFile} and
+     * {@link #writeStringToFile}, which swap in a new file rather than writing into the existing one. The
+     * LaTeX working directory is always copied, as latexmk rewrites its files in place, as is everything
+     * outside the supporting documents. Files that cannot be linked, e.g. on a filesystem without hard
+     * links, are copied.
      * @param source a string representing the source directory or path (not including the store root)
      * @param destination a string representing the destination directory or path (not including the store root)
      * @param supportingDocuments the list of supporting documents from the CLONED proposal to update
@@ -162,7 +224,9 @@ public class ProposalDocumentStore {
      */
     public void copyStore(String source, String destination, List<SupportingDocument> supportingDocuments)
             throws IOException {
-        FileUtils.copyDirectory(fetchFile(source), fetchFile(destination));
+        Timer.Sample copy = Timer.start(meterRegistry);
+        long copiedBytes = copyDirectory(fetchFile(source).toPath(), fetchFile(destination).toPath());
+        recordOperation(copy, copyOnWrite ? "link" : "copy", copiedBytes);
         supportingDocuments.forEach(s ->
             s.setLocation(s.getLocation().replace(
                     proposalStoreRoot + source,proposalStoreRoot + destination
@@ -170,6 +234,43 @@ public class ProposalDocumentStore {
         );
     }
 
+    /**
+     * The copy of copyStore, linking the supporting documents when copy-on-write is set.
+     * @return the number of bytes actually copied, i.e. not linked
+     */
+    private long copyDirectory(Path source, Path destination) throws IOException {
+        Path supportingDocuments = Paths.get(supportingDocumentsPath);
+        Path justifications = Paths.get(justificationsPath);
+        long[] copiedBytes = {0};
+
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(destination.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path relative = source.relativize(file);
+                Path target = destination.resolve(relative);
+                if (copyOnWrite && relative.startsWith(supportingDocuments) && !relative.startsWith(justifications)) {
+                    try {
+                        Files.createLink(target, file);
+                        return FileVisitResult.CONTINUE;
+                    } catch (UnsupportedOperationException | FileSystemException e) {
+                        logger.debug("Unable to link {}, copying it instead: {}", file, e.getMessage());
+                    }
+                }
+                Files.copy(file, target, StandardCopyOption.COPY_ATTRIBUTES);
+                copiedBytes[0] += attrs.size();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return copiedBytes[0];
+    }
+
 
     /**
      * Convenience method to fetch the file given from this DocumentStore may refer to a directory
@@ -182,7 +283,8 @@ public class ProposalDocumentStore {
     }
 
     /**
-     * Convenience method to move a file to the path given
+     * Convenience method to move a file to the path given. An existing file at that path is replaced,
+     * not written into, so a copy-on-write link to it from another store is broken rather than changed.
      * @param file "External" file to save to this DocumentStore (typically from a file upload)
      * @param saveFileAs the filePath you are saving the file as, note you are responsible for providing the
      *                   correct path of the subdirectories.
@@ -201,44 +303,36 @@ public class ProposalDocumentStore {
             }
         }
 
-       final File dest = fetchFile(saveFileAs);
-        logger.debug("Moving file {}  exists {} to {}", file, file.exists(), dest );
-        if(dest.exists()) {
-            boolean result = dest.delete();
-            if(!result)
-                System.out.println("Delete existing file");
-            else
-                System.out.println("Failed? to delete existing file");
+        final File dest = fetchFile(saveFileAs);
+        logger.debug("Moving file {} exists {} to {}", file, file.exists(), dest);
+        // REPLACE_EXISTING swaps the directory entry (or deletes the existing file before copying, when
+        // moving between filesystems), it never writes into the existing file
+        try {
+            Timer.Sample move = Timer.start(meterRegistry);
+            long size = file.length();
+            Files.move(file.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            recordOperation(move, "move", size);
+        } catch (IOException | SecurityException e) {
+            throw new RuntimeException("Unable to move " + file + " to " + dest, e);
         }
-       else
-           System.out.println("File " + dest.getAbsolutePath() + " does not exist");
-
-       try {
-          Files.move(file.toPath(),dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
-       } catch (DirectoryNotEmptyException e) {
-           System.err.println("Target directory is not empty.");
-       } catch (SecurityException e) {
-           System.err.println("Security exception.");
-       } catch (UnsupportedOperationException e) {
-           System.err.println("Unsupported operation.");
-       } catch (FileAlreadyExistsException e) {
-           System.err.println("File already exists.");
-       } catch (IOException e) {
-          throw new RuntimeException(e);
-
-       }
     }
 
     /**
      * Write a given string to the given file. This will overwrite an existing file or create a new file.
+     * The string is written to a temporary file which then replaces the file, so that an existing file
+     * that is a copy-on-write link (see {@link #copyStore}) is not changed in the other store.
      * @param theString the string you wish to write to file
      * @param filePath the path of the subdirectories to the file to which you will be writing
      * @throws IOException I/O exception from the writer object
      */
     public void writeStringToFile(String theString, String filePath) throws IOException{
-        //either create the file and write to it, or just overwrite the existing file
-        try (FileWriter fw = new FileWriter(fetchFile(filePath))) {
-            fw.write(theString);
+        Path target = fetchFile(filePath).toPath();
+        Path temporary = target.resolveSibling("." + target.getFileName() + ".tmp");
+        try {
+            Files.writeString(temporary, theString, Charset.defaultCharset());
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
         }
     }
 
@@ -251,8 +345,9 @@ public class ProposalDocumentStore {
      * @throws IOException thrown by Files.list()
      */
     public Set<String> listFilesIn(String filePath, List<String> fileExtensions) throws IOException {
+        Timer.Sample list = Timer.start(meterRegistry);
         try (Stream<Path> stream = Files.list(Paths.get(proposalStoreRoot, filePath))) {
-            return stream
+            Set<String> files = stream
                     .filter(file -> !Files.isDirectory(file))
                     .map(java.nio.file.Path::getFileName)
                     .map(java.nio.file.Path::toString)
@@ -264,6 +359,8 @@ public class ProposalDocumentStore {
                         }
                     })
                     .collect(Collectors.toSet());
+            recordOperation(list, "list");
+            return files;
         }
 
     }
@@ -278,6 +375,26 @@ public class ProposalDocumentStore {
     }
 
 
+    /**
+     * Records the duration of a document store operation that transfers no file contents
+     * @param sample started at the beginning of the operation
+     * @param operation the name of the operation
+     */
+    private void recordOperation(Timer.Sample sample, String operation) {
+        sample.stop(meterRegistry.timer("pst.document.store", "operation", operation));
+    }
+
+    /**
+     * Records the duration, and the bytes transferred, of a document store operation
+     * @param sample started at the beginning of the operation
+     * @param operation the name of the operation
+     * @param bytes the number of bytes copied or moved
+     */
+    private void recordOperation(Timer.Sample sample, String operation, long bytes) {
+        recordOperation(sample, operation);
+        meterRegistry.counter("pst.document.store.bytes", "operation", operation).increment(bytes);
+    }
+
     private void insertTitleAndCycleCodeIntoHeaderTex(
             Long proposalCode,
             String proposalTitle,
@@ -0,0 +1,34 @@
+package org.orph2020.pst.apiimpl.rest;
+
+/**
+ * The outcome of importing one of the documents of a bulk import.
+ * @see ProposalResource#importProposals
+ */
+public class ProposalImportResult {
+
+    /**
+     * the position of the document in the request
+     */
+    public int index;
+
+    /**
+     * the id of the new proposal, null if the import failed
+     */
+    public Long proposalId;
+
+    /**
+     * the title of the new proposal
+     */
+    public String title;
+
+    /**
+     * why the import failed, null if it succeeded
+     */
+    public String error;
+
+    public ProposalImportResult() {}
+
+    ProposalImportResult(int index) {
+        this.index = index;
+    }
+}
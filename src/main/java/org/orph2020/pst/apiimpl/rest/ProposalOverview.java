@@ -0,0 +1,166 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import org.ivoa.dm.ivoa.RealQuantity;
+import org.ivoa.dm.proposal.prop.*;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The content of the proposal overview page (see {@link ProposalOverviewRenderer}), already formatted
+ * as text so that the template only has to lay it out. Null or empty values are shown as "Not set".
+ */
+public record ProposalOverview(
+        String title,
+        String summary,
+        List<InvestigatorRow> investigators,
+        List<TargetRow> targets,
+        List<TechnicalGoalRow> technicalGoals,
+        List<ObservationRow> observations
+) {
+
+    public record InvestigatorRow(String name, String email, String institute, String forPhD) {}
+
+    public record TargetRow(String name, String frame, String epoch, String lat, String lon) {}
+
+    public record SpectralWindowRow(String start, String end, String resolution) {}
+
+    public record TechnicalGoalRow(Long id, String angularResolution, String largestScale, String sensitivity,
+                                   String dynamicRange, List<SpectralWindowRow> spectralWindows) {}
+
+    public record TimingWindowRow(String start, String end, String exclude, String note) {}
+
+    public record ObservationRow(Long technicalGoalId, List<String> targetNames,
+                                 List<TimingWindowRow> timingWindows) {}
+
+    private static final Logger logger = Logger.getLogger(ProposalOverview.class);
+
+    private static final String NOT_SET = "Not set";
+    private static final String UNKNOWN = "Unknown";
+
+    private static final Map<String, String> unitAbbr = Map.of(
+            "microarcsec", "uas",
+            "milliarcsec", "mas",
+            "arcsec", "arcsec",
+            "arcmin", "arcmin",
+            "milliradians", "mrad",
+            "degrees", "degrees",
+            "microJansky", "uJy",
+            "milliJansky", "mJy",
+            "Jansky", "Jy"
+    );
+
+    /**
+     * true if the targets could not be read, the page then says so instead of listing them
+     */
+    public boolean targetsFailed() {
+        return targets == null;
+    }
+
+    /**
+     * Build the overview of the proposal.
+     * @param proposal the proposal
+     * @param excludeInvestigators leave out the investigators, for the anonymised review copy
+     * @return the overview, with null investigators if they are excluded
+     */
+    public static ProposalOverview of(AbstractProposal proposal, boolean excludeInvestigators) {
+        return new ProposalOverview(
+                text(proposal.getTitle()),
+                text(proposal.getSummary()),
+                excludeInvestigators ? null : investigatorRows(proposal.getInvestigators()),
+                targetRows(proposal.getTargets()),
+                proposal.getTechnicalGoals().stream().map(ProposalOverview::technicalGoalRow).toList(),
+                proposal.getObservations().stream().map(ProposalOverview::observationRow).toList()
+        );
+    }
+
+    private static List<InvestigatorRow> investigatorRows(List<Investigator> investigators) {
+        return investigators.stream()
+                .map(i -> new InvestigatorRow(
+                        text(i.getPerson().getFullName()),
+                        text(i.getPerson().getEMail()),
+                        text(i.getPerson().getHomeInstitute().getName()),
+                        Boolean.TRUE.equals(i.getForPhD()) ? "Yes" : "No"))
+                .toList();
+    }
+
+    private static List<TargetRow> targetRows(List<Target> targets) {
+        try {
+            List<TargetRow> rows = new ArrayList<>(targets.size());
+            for (Target target : targets) {
+                if (target.getClass() == CelestialTarget.class) {
+                    CelestialTarget tt = (CelestialTarget) target;
+                    String frame = UNKNOWN;
+                    if (tt.getSourceCoordinates().getCoordSys() != null
+                            && tt.getSourceCoordinates().getCoordSys().getFrame() != null
+                            && tt.getSourceCoordinates().getCoordSys().getFrame().getSpaceRefFrame() != null) {
+                        frame = text(tt.getSourceCoordinates().getCoordSys().getFrame().getSpaceRefFrame());
+                    }
+                    rows.add(new TargetRow(
+                            text(tt.getSourceName()),
+                            frame,
+                            text(tt.getPositionEpoch().value()),
+                            text(tt.getSourceCoordinates().getLat().getValue().toString()),
+                            text(tt.getSourceCoordinates().getLon().getValue().toString())));
+                } else {
+                    rows.add(new TargetRow(UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN));
+                }
+            }
+            return rows;
+        } catch (Exception e) {
+            logger.error("unable to generate targets table", e);
+            return null;
+        }
+    }
+
+    private static TechnicalGoalRow technicalGoalRow(TechnicalGoal technicalGoal) {
+        PerformanceParameters performance = technicalGoal.getPerformance();
+        return new TechnicalGoalRow(
+                technicalGoal.getId(),
+                quantity(performance.getDesiredAngularResolution()),
+                quantity(performance.getDesiredLargestScale()),
+                quantity(performance.getDesiredSensitivity()),
+                quantity(performance.getDesiredDynamicRange()),
+                technicalGoal.getSpectrum().stream()
+                        .map(w -> new SpectralWindowRow(
+                                quantity(w.getSpectralWindowSetup().getStart()),
+                                quantity(w.getSpectralWindowSetup().getEnd()),
+                                quantity(w.getSpectralWindowSetup().getSpectralResolution())))
+                        .toList()
+        );
+    }
+
+    private static ObservationRow observationRow(Observation observation) {
+        return new ObservationRow(
+                observation.getTechnicalGoal().getId(),
+                observation.getTarget().stream()
+                        .filter(t -> t.getClass() == CelestialTarget.class)
+                        .map(t -> text(((CelestialTarget) t).getSourceName()))
+                        .toList(),
+                observation.getConstraints().stream()
+                        .filter(c -> c.getClass() == TimingWindow.class)
+                        .map(c -> (TimingWindow) c)
+                        .map(w -> new TimingWindowRow(
+                                String.valueOf(w.getStartTime()),
+                                String.valueOf(w.getEndTime()),
+                                w.getIsAvoidConstraint() ? "Yes" : "No",
+                                w.getNote() == null || w.getNote().isEmpty() ? null : w.getNote()))
+                        .toList()
+        );
+    }
+
+    private static String text(String input) {
+        return input == null || input.isEmpty() ? NOT_SET : input;
+    }
+
+    private static String quantity(RealQuantity quantity) {
+        if (quantity == null) {
+            return NOT_SET;
+        }
+        String unit = quantity.getUnit().value();
+        return quantity.getValue().toString() + "  "
+                + (unit.length() <= 4 ? unit : unitAbbr.getOrDefault(unit, unit));
+    }
+}
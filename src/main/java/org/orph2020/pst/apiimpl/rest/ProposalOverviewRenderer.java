@@ -0,0 +1,142 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.logging.Log;
+import io.quarkus.qute.CheckedTemplate;
+import io.quarkus.qute.TemplateInstance;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.ivoa.dm.proposal.prop.AbstractProposal;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.entities.ResourceVersion;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Renders the HTML overview page of a proposal that goes into the exported zip files.
+ * <p>
+ * The page is rendered by the Qute template templates/ProposalOverviewRenderer/overview.html, written
+ * straight to a file in the proposal's store and kept there for the current version of the proposal
+ * (see {@link ResourceVersions}), so the export, review and admin zips share it until the proposal is
+ * changed. Pages that are no longer current are removed once they have not been used for a while.
+ */
+@ApplicationScoped
+public class ProposalOverviewRenderer {
+
+    static final String overviewPath = "overview/";
+
+    // longer than any zip takes to send
+    private static final Duration UNUSED_FOR = Duration.ofHours(1);
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    @Inject
+    ResourceVersions resourceVersions;
+
+    @CheckedTemplate
+    static class Templates {
+        public static native TemplateInstance overview(ProposalOverview overview);
+    }
+
+    /**
+     * Render the overview.
+     * @param overview the content of the page
+     * @param out where to write the page, as it is rendered
+     * @throws IOException if the page cannot be written
+     */
+    public void render(ProposalOverview overview, Writer out) throws IOException {
+        try {
+            Templates.overview(overview).consume(chunk -> {
+                try {
+                    out.write(chunk);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+        out.flush();
+    }
+
+    /**
+     * Get the overview page of the proposal, rendering it if there is none for its current version.
+     * <p>
+     * Changes to the people on the proposal do not change its version, so the page with the investigators
+     * is also keyed by a hash of what it shows of them, read by a single projection query. The overview is
+     * only built when the page has to be rendered.
+     * @param proposal the proposal
+     * @param excludeInvestigators leave out the investigators, for the anonymised review copy
+     * @return the file holding the page
+     * @throws IOException if the page cannot be written
+     */
+    public File overviewFile(AbstractProposal proposal, boolean excludeInvestigators) throws IOException {
+        // the proposal id is part of the name as the store, and so this directory, is copied with a clone
+        ResourceVersion version = resourceVersions.current(VersionedResource.PROPOSAL, proposal.getId());
+        String name = proposal.getId() + "-" + (version == null ? 0 : version.getVersion()) + "-"
+                + (excludeInvestigators ? "anonymous" : Integer.toHexString(investigatorsHash(proposal.getId())))
+                + ".html";
+
+        File directory = proposalDocumentStore.fetchFile(proposal.getId() + "/" + overviewPath);
+        File file = new File(directory, name);
+        // the modification time records the last use, see removeUnused
+        if (file.setLastModified(System.currentTimeMillis())) {
+            return file;
+        }
+
+        ProposalOverview overview = ProposalOverview.of(proposal, excludeInvestigators);
+        Files.createDirectories(directory.toPath());
+        Path temp = Files.createTempFile(directory.toPath(), "." + name, ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            render(overview, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        removeUnused(directory, file);
+        return file;
+    }
+
+    private int investigatorsHash(Long proposalId) {
+        return em.createNamedQuery(QueryRegistry.PROPOSAL_INVESTIGATOR_KEYS, Object[].class)
+                .setParameter("id", proposalId)
+                .getResultStream()
+                .map(Arrays::asList)
+                .toList()
+                .hashCode();
+    }
+
+    /**
+     * Removes the pages, other than the current one, that have not been used for {@link #UNUSED_FOR}: those
+     * of older versions and those of earlier investigators. A page that was handed out recently is kept, as
+     * it may not have been read yet.
+     */
+    private void removeUnused(File directory, File current) {
+        long before = System.currentTimeMillis() - UNUSED_FOR.toMillis();
+        File[] unused = directory.listFiles((d, n) -> n.endsWith(".html") && !n.equals(current.getName()));
+        if (unused == null) {
+            return;
+        }
+        for (File f : unused) {
+            if (f.lastModified() < before && !f.delete() && f.exists()) {
+                Log.warnf("unable to remove the old overview %s", f);
+            }
+        }
+    }
+}
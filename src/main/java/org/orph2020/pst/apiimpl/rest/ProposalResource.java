@@ -3,17 +3,20 @@ package org.orph2020.pst.apiimpl.rest;
  * Created on 16/03/2022 by Paul Harrison (paul.harrison@manchester.ac.uk).
  */
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.persistence.TypedQuery;
 import org.apache.commons.io.FilenameUtils;
-import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.context.ManagedExecutor;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
 import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
-import org.ivoa.dm.ivoa.RealQuantity;
 import org.ivoa.dm.proposal.management.ProposalManagementModel;
 import org.ivoa.dm.proposal.management.SubmittedProposal;
 import org.ivoa.dm.proposal.prop.*;
@@ -23,8 +26,14 @@ import org.jboss.resteasy.reactive.ResponseStatus;
 import org.jboss.resteasy.reactive.RestForm;
 import org.jboss.resteasy.reactive.RestQuery;
 import org.jboss.resteasy.reactive.multipart.FileUpload;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.persistence.ProposalFetchProfile;
+import org.orph2020.pst.apiimpl.persistence.ReferenceDataCache;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+import org.orph2020.pst.apiimpl.validation.Severity;
+import org.orph2020.pst.apiimpl.validation.ValidationEngine;
+import org.orph2020.pst.apiimpl.validation.ValidationReport;
 import org.orph2020.pst.common.json.ObjectIdentifier;
-import org.orph2020.pst.common.json.ProposalCycleSynopsis;
 import org.orph2020.pst.common.json.ProposalSynopsis;
 
 import jakarta.annotation.security.RolesAllowed;
@@ -33,12 +42,20 @@ import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import org.orph2020.pst.common.json.ProposalValidation;
 
 import java.io.*;
-import java.nio.file.Files;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -64,16 +81,7 @@ public class ProposalResource extends ObjectResourceBase {
     }
 
     @Inject
-    ObservationResource observationResource;
-    @Inject
-    TechnicalGoalResource technicalGoalResource;
-    @Inject
-    ProposalCyclesResource proposalCyclesResource;
-    @Inject
-    SubjectMapResource subjectMapResource;
-    @Inject
-    JsonWebToken userInfo;
-//    UserInfo userInfo; // IMPL it would be nice to use UserInfo
+    CurrentUser currentUser;
     @Inject
     JustificationsResource justificationsResource;
 
@@ -89,14 +97,25 @@ public class ProposalResource extends ObjectResourceBase {
     @Inject
     OrganizationResource organizationResource;
 
-    //needed for import.
     @Inject
-    SupportingDocumentResource supportingDocumentResource;
+    ReferenceDataCache referenceDataCache;
+
+    @Inject
+    TargetListIngester targetListIngester;
+    @Inject
+    ValidationEngine validationEngine;
+    @Inject
+    ProposalOverviewRenderer proposalOverviewRenderer;
+    @Inject
+    ManagedExecutor managedExecutor;
+
+    // the number of proposals of a bulk import that are imported at once
+    @ConfigProperty(name = "pst.import.parallelism", defaultValue = "4")
+    int importParallelism;
 
 
-    private List<ProposalSynopsis> getSynopses(String queryStr) {
+    private List<ProposalSynopsis> getSynopses(Query query) {
         List<ProposalSynopsis> result = new ArrayList<>();
-        Query query = em.createQuery(queryStr);
         List<Object[]> results = query.getResultList();
         for (Object[] r : results) {
             result.add(
@@ -127,28 +146,37 @@ public class ProposalResource extends ObjectResourceBase {
     //@RolesAllowed("default-roles-orppst")
     public List<ProposalSynopsis> getProposals(@RestQuery String investigatorName, @RestQuery String title) {
 
-        boolean noQuery = investigatorName == null && title == null;
-        boolean investigatorOnly = investigatorName != null && title == null;
-        boolean titleOnly = investigatorName == null && title != null;
-        Long personId = subjectMapResource.subjectMap(userInfo.getSubject()).getPerson().getId();
-
-        //if 'ProposalSynopsis' is modified we should check these Strings for suitability
-        //Investigator table is joined twice, once for user view scope and again for searching other investigators.
-        String baseStr = "select distinct o._id,o.title,o.summary,o.kind from ObservingProposal o, Investigator inv, Investigator i "
-                        + "where inv member of o.investigators and inv.person._id = " + personId + " and i member of o.investigators ";
-        String orderByStr = "order by o.title";
-        String investigatorLikeStr = "and i.person.fullName like '" +investigatorName+ "' ";
-        String titleLikeStr = "o.title like '" +title+ "' ";
-
-        if (noQuery) {
-            return getSynopses(baseStr  + orderByStr);
-        } else if (investigatorOnly) {
-            return getSynopses(baseStr + investigatorLikeStr +  orderByStr);
-        } else if (titleOnly) {
-            return getSynopses(baseStr + "and " + titleLikeStr  + orderByStr);
-        } else { //name and title given as queries
-            return getSynopses(baseStr + investigatorLikeStr + "and " + titleLikeStr  + orderByStr);
+        Long personId = currentUser.personId();
+
+        //if 'ProposalSynopsis' is modified we should check the named query for suitability
+        Query query = em.createNamedQuery(QueryRegistry.PROPOSAL_SYNOPSES);
+        query.setParameter("personId", personId);
+        query.setParameter("investigatorName", investigatorName);
+        query.setParameter("title", title);
+
+        return getSynopses(query);
+    }
+
+    @GET
+    @Path("page")
+    @Operation(summary = "get a page of the synopses of the Proposals the authenticated user is an investigator on, ordered by title. Optionally filter by another investigator's name, title and kind. Pass the 'nextCursor' of a page as 'cursor' to get the following page.")
+    public Page<ProposalSynopsis> getProposalPage(@RestQuery String investigatorName,
+                                                  @RestQuery String title,
+                                                  @RestQuery ProposalKind kind,
+                                                  @BeanParam PageRequest pageRequest) {
+        Long personId = currentUser.personId();
+
+        Query query = em.createNamedQuery(QueryRegistry.PROPOSAL_SYNOPSES_PAGE);
+        Query countQuery = em.createNamedQuery(QueryRegistry.PROPOSAL_SYNOPSES_COUNT);
+        for (Query q : List.of(query, countQuery)) {
+            q.setParameter("personId", personId);
+            q.setParameter("investigatorName", investigatorName);
+            q.setParameter("title", title);
+            q.setParameter("kind", kind);
         }
+
+        return getPage(query, countQuery, pageRequest, 1,
+                r -> new ProposalSynopsis((long) r[0], (String) r[1], (String) r[2], (ProposalKind) r[3]));
     }
 
     private ObservingProposal singleObservingProposal(Long proposalCode)
@@ -159,10 +187,15 @@ public class ProposalResource extends ObjectResourceBase {
                 ObservingProposal.class
         );
         q.setParameter("pid", proposalCode);
-        q.setParameter("uid", subjectMapResource.subjectMap(userInfo.getSubject()).getPerson().getId());
+        q.setParameter("uid", currentUser.personId());
         return q.getSingleResult();
     }
 
+    private ObservingProposal singleObservingProposal(Long proposalCode, ProposalFetchProfile profile)
+    {
+        return fetchProfile(singleObservingProposal(proposalCode), profile);
+    }
+
     @GET
     @Operation(summary = "get the Proposal specified by the 'proposalCode'")
     @APIResponse(
@@ -171,10 +204,11 @@ public class ProposalResource extends ObjectResourceBase {
     )
     @Path(proposalRoot)
     @RolesAllowed("default-roles-orppst")
+    @ConditionalGet(VersionedResource.PROPOSAL)
     public ObservingProposal getObservingProposal(@PathParam("proposalCode") Long proposalCode)
             throws WebApplicationException
     {
-        return singleObservingProposal(proposalCode);
+        return singleObservingProposal(proposalCode, ProposalFetchProfile.FULL);
     }
 
     @POST
@@ -204,16 +238,11 @@ public class ProposalResource extends ObjectResourceBase {
     public Response deleteObservingProposal(@PathParam("proposalCode") long code)
             throws WebApplicationException
     {
-        //clean up the document store for this proposal
-        try {
-            proposalDocumentStore.removeStorePath(String.valueOf(code));
-        } catch (IOException e) {
-            throw new WebApplicationException(e);
-        }
-        // IMPL need to delete observations first
-        ObservingProposal prop = findObject(ObservingProposal.class, code);
-        prop.getObservations().forEach(observation -> em.remove(observation));
-        return removeObject(ObservingProposal.class, code);
+        removeProposalGraph(findObject(ObservingProposal.class, code));
+
+        //clean up the document store for this proposal, once the deletion has been committed
+        proposalDocumentStore.removeStorePathAfterCommit(String.valueOf(code));
+        return emptyResponse204();
     }
 
     @POST
@@ -224,13 +253,12 @@ public class ProposalResource extends ObjectResourceBase {
     public ObservingProposal cloneObservingProposal(@PathParam("proposalCode") long code)
           throws WebApplicationException
     {
-        ObservingProposal prop = findObject(ObservingProposal.class, code);
-        prop.forceLoad();
+        ObservingProposal prop = fetchProfile(findObject(ObservingProposal.class, code), ProposalFetchProfile.FULL);
         new ProposalModel().createContext(); //IMPL nasty clone API...
         ObservingProposal newProp = new ObservingProposal(prop);
         newProp.updateClonedReferences();
 
-        ObservingProposal clonedProp = persistObject(newProp);
+        ObservingProposal clonedProp = persistCopy(newProp);
 
         //copy the document store for the new, cloned proposal
         try {
@@ -261,82 +289,28 @@ public class ProposalResource extends ObjectResourceBase {
         return responseWrapper(proposal.getTitle(), 200);
     }
 
-    //TODO - add more checks, consider where to put observatory / instrument specific validation.
     @GET
     @Path(proposalRoot + "/validate")
     @Operation(summary = "validate the proposal, get summary strings of it's state.  Optionally pass a cycle to compare dates with.")
     public ProposalValidation validateObservingProposal(@PathParam("proposalCode") Long proposalCode, @RestQuery long cycleId) {
-        ObservingProposal proposal = singleObservingProposal(proposalCode);
-        boolean valid = true;
-        String info = "Your proposal has passed preliminary checks, please now select modes for your observations.";
+        ValidationReport report = validationEngine.validate(proposalCode, cycleId, currentUser.personId());
+
+        String info = report.valid
+                ? "Your proposal has passed preliminary checks, please now select modes for your observations."
+                : "Your proposal is not ready for submission";
         StringBuilder warn = new StringBuilder();
+        report.messages(Severity.WARNING).forEach(m -> warn.append(m.message).append("<br/>"));
         StringBuilder error = new StringBuilder();
+        report.messages(Severity.ERROR).forEach(m -> error.append(m.message).append("<br/>"));
 
-        int justificationsLengthCheck = 256;
-
-        //Count the targets
-        List<ObjectIdentifier> targets = getTargets(proposalCode, null);
-        if(targets.isEmpty()) {
-            valid = false;
-            error.append("No targets defined.<br/>");
-        }
-
-        List<ObjectIdentifier> technicalGoals = technicalGoalResource.getTechnicalGoals(proposalCode);
-        if(technicalGoals.isEmpty()) {
-            valid = false;
-            error.append("No technical goals defined.<br/>");
-        }
-
-        List<ObjectIdentifier> observations = observationResource.getObservations(proposalCode, null, null);
-        if(observations.isEmpty()) {
-            valid = false;
-            error.append("No observations defined.<br/>");
-        } else if(cycleId != 0) {
-            ProposalCycleSynopsis theCycleDates = proposalCyclesResource.getProposalCycleDetails(cycleId);
-
-            //Has proposal cycle submission deadline passed?
-            Date now = new Date();
-            if(now.after(theCycleDates.submissionDeadline)) {
-                valid = false;
-                error.append("The submission deadline has passed.<br/>");
-            }
-        }
-
-        try {
-            //checks for the existence of a compiled Justifications PDF
-            justificationsResource.downloadLatexPdf(proposalCode);
-
-            //if here PDF exists - check the lengths of the Justifications
-            int scientificLength = proposal.getScientificJustification().getText().length();
-            int technicalLength = proposal.getTechnicalJustification().getText().length();
-
-            //reminder: cannot save an empty string in justification text so an "empty" justification has 1 character
-            if (scientificLength < 2) {
-                error.append("No scientific justification text written.<br/>");
-                valid = false;
-            } else if (scientificLength < justificationsLengthCheck) {
-                warn.append("Scientific justification text has ")
-                        .append(scientificLength)
-                        .append(" characters only. If this is correct please ignore this warning else check your scientific justification.<br/>");
-            }
-
-            if  (technicalLength < 2) {
-                error.append("No technical justification text written.<br/>");
-                valid = false;
-            } else if (technicalLength < justificationsLengthCheck) {
-                warn.append("Technical justification text has ")
-                        .append(technicalLength)
-                        .append(" characters only. If this is correct please ignore this warning else check your technical justification.<br/>");
-            }
-        } catch (WebApplicationException e) {
-            valid = false;
-            error.append("Justification PDF has not been generated.<br/>");
-        }
+        return (new ProposalValidation(proposalCode, report.title, report.valid, info, warn.toString(), error.toString()));
+    }
 
-        if(!valid) {
-            info = "Your proposal is not ready for submission";
-        }
-        return (new ProposalValidation(proposalCode, proposal.getTitle(), valid, info, warn.toString(), error.toString()));
+    @GET
+    @Path(proposalRoot + "/validation")
+    @Operation(summary = "get the individual results of the validation rules for the proposal.  Optionally pass a cycle to validate against.")
+    public ValidationReport getProposalValidationReport(@PathParam("proposalCode") Long proposalCode, @RestQuery long cycleId) {
+        return validationEngine.validate(proposalCode, cycleId, currentUser.personId());
     }
 
     @PUT
@@ -430,15 +404,15 @@ public class ProposalResource extends ObjectResourceBase {
     @GET
     @Path(targetsRoot)
     @Operation(summary = "get the list of ObjectIdentifiers for the targets associated with the given ObservingProposal, optionally provide a sourceName as a query to get that particular Observation's identifier")
+    @ConditionalGet(VersionedResource.PROPOSAL)
     public List<ObjectIdentifier> getTargets(@PathParam("proposalCode") Long proposalCode,
                                              @RestQuery String sourceName)
             throws WebApplicationException
     {
-        if (sourceName == null) {
-            return getObjectIdentifiers("SELECT t._id,t.sourceName FROM ObservingProposal o Inner Join o.targets t WHERE o._id = "+proposalCode+" ORDER BY t.sourceName");
-        } else {
-            return getObjectIdentifiers("SELECT t._id,t.sourceName FROM ObservingProposal o Inner Join o.targets t WHERE o._id = "+proposalCode+" and t.sourceName like '"+sourceName+"' ORDER BY t.sourceName");
-        }
+        Query query = em.createNamedQuery(QueryRegistry.PROPOSAL_TARGETS);
+        query.setParameter("proposalId", proposalCode);
+        query.setParameter("sourceName", sourceName);
+        return getObjectIdentifiers(query);
 
     }
 
@@ -564,14 +538,43 @@ public class ProposalResource extends ObjectResourceBase {
         List<Target> targetList = getTargetListFromFile(fileUpload.uploadedFile(), fileType,
                 spaceSys, currentNames);
 
-        for (Target target : targetList) {
-            addNewChildObject(observingProposal, target, observingProposal::addToTargets);
-        }
+        addNewChildObjects(observingProposal, targetList, observingProposal::addToTargets);
 
         return responseWrapper(observingProposal.getTargets(), 200);
     }
 
 
+    @POST
+    @Path(targetsRoot+"/ingestList")
+    @Operation(summary = "add a very large list of targets contained in a file to this Proposal, committing in chunks - targets with names already used are skipped and reported, and the targets added before any malformed row are kept")
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    public TargetIngestReport ingestTargetList(@PathParam("proposalCode") Long proposalCode,
+                                               @RestForm("document") @Schema(implementation = UploadTargetList.class)
+                                               FileUpload fileUpload)
+            throws WebApplicationException
+    {
+        String extension = checkTargetListUpload(fileUpload);
+
+        // assume anything not '.txt' is STILTS compatible (STILTS will throw useful error message if not)
+        FileType fileType = extension.equals("txt") ? FileType.PLAIN_TEXT : FileType.STAR_TABLE_FMT;
+
+        return targetListIngester.ingest(proposalCode, fileUpload.uploadedFile().toFile(), fileType);
+    }
+
+    @GET
+    @Path(targetsRoot+"/ingestList")
+    @Operation(summary = "get the progress of the latest target list ingestion into this Proposal")
+    public TargetIngestReport getTargetIngestProgress(@PathParam("proposalCode") Long proposalCode)
+            throws WebApplicationException
+    {
+        TargetIngestReport report = targetListIngester.progress(proposalCode);
+        if (report == null) {
+            throw new WebApplicationException("No target list ingestion for proposal " + proposalCode, 404);
+        }
+        return report;
+    }
+
+
     @DELETE
     @Path(targetsRoot+"/{targetId}")
     @Operation(summary = "remove the Target specified by 'id' from the given ObservingProposal")
@@ -603,15 +606,15 @@ public class ProposalResource extends ObjectResourceBase {
     @GET
     @Path(fieldsRoot)
     @Operation(summary = "get the list of ObjectIdentifiers for the Fields associated with the given ObservingProposal, optionally provide a name as a query to get that particular Fields's identifier")
+    @ConditionalGet(VersionedResource.PROPOSAL)
     public List<ObjectIdentifier> getFields(@PathParam("proposalCode") Long proposalCode,
                                             @RestQuery String fieldName)
             throws WebApplicationException
     {
-        if (fieldName == null) {
-            return getObjectIdentifiers("SELECT t._id,t.name FROM ObservingProposal o Inner Join o.fields t WHERE o._id = "+proposalCode+" ORDER BY t.name");
-        } else {
-            return getObjectIdentifiers("SELECT t._id,t.name FROM ObservingProposal o Inner Join o.fields t WHERE o._id = "+proposalCode+" and t.name like '"+fieldName+"' ORDER BY t.name");
-        }
+        Query query = em.createNamedQuery(QueryRegistry.PROPOSAL_FIELDS);
+        query.setParameter("proposalId", proposalCode);
+        query.setParameter("fieldName", fieldName);
+        return getObjectIdentifiers(query);
 
     }
 
@@ -685,340 +688,135 @@ public class ProposalResource extends ObjectResourceBase {
     @Path(proposalRoot+"/export")
     public Response exportProposal(@PathParam("proposalCode")Long proposalCode)
             throws WebApplicationException {
-        ObservingProposal proposalForExport = singleObservingProposal(proposalCode);
+        ObservingProposal proposalForExport = singleObservingProposal(proposalCode, ProposalFetchProfile.FULL);
 
         return Response
                 .status(Response.Status.OK)
                 .header("Content-Disposition", "attachment;filename=" + "proposal.json")
-                .entity(writeAsJsonString(proposalForExport))
+                .entity(writeAsJsonStream(proposalForExport))
                 .build();
     }
 
-    private void overviewHTMLDocument(AbstractProposal proposal, boolean excludeInvestigators) throws IOException {
-
-        String html = "<!DOCTYPE html>\n" +
-                "<html>\n" +
-                "<head>\n" +
-                "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=utf-8\">\n" +
-                "<link rel=\"stylesheet\" href=\"https://cdn.jsdelivr.net/npm/bootstrap@4.0.0/dist/css/bootstrap.min.css\" integrity=\"sha384-Gn5384xqQ1aoWXA+058RXPxPg6fy4IWvTNh0E263XmFcJlSAwiGgFAW/dAiS6JXm\" crossorigin=\"anonymous\">\n" +
-                "</head>\n" +
-                "<body style=\"padding:2%\">\n" +
-                    "<h1>" + htmlEsc(proposal.getTitle()) + "</h1><br/>\n";
-
-        if (!excludeInvestigators) {
-            html += investigatorsTable(proposal.getInvestigators()) + "<br/>\n";
+    // formats that are already compressed, these are STORED in the zip rather than deflated again
+    private static final Set<String> compressedExtensions = Set.of(
+            "pdf", "png", "jpg", "jpeg", "gif", "zip", "gz", "tgz", "bz2", "xz", "7z", "docx", "xlsx", "pptx");
 
+    public File CreateZipFile(String zipFileName, AbstractProposal proposal, boolean anonymise, boolean genericExportFilenames) throws IOException {
+        File myZipFile = new File(zipFileName);
+        StreamingOutput zip = proposal == null
+                ? out -> new ZipOutputStream(out).finish()
+                : zipStream(proposal, anonymise, genericExportFilenames);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(myZipFile))) {
+            zip.write(out);
         }
-
-        html += "<h3>Summary</h3>\n" +
-            "<p>" + htmlEsc(proposal.getSummary()) + "</p><br/>\n" +
-            targetsTable(proposal.getTargets()) + "<br/>\n" +
-            technicalGoalsTable(proposal.getTechnicalGoals()) +  "<br/>\n" +
-            observationsTable(proposal.getObservations()) +
-            "</body>\n" + "</html>\n";
-
-        proposalDocumentStore.writeStringToFile(html, proposal.getId() + "/Overview.html");
-    }
-
-    static final String beginRow = "<tr><td>";
-    static final String tableDelim = "</td><td>";
-    static final String headDelim = "</th><th>";
-    static final String endRow = "</td></tr>\n";
-    static final String startTable = "<table class=\"table\">\n";
-    static final String endTable = "</tbody>\n</table>\n";
-    static final String beginHead = "<thead class=\"thead-light\">\n<tr><th>";
-    static final String endHead = "</th></tr>\n</thead>\n<tbody>\n";
-
-    private String htmlHeader(String input)
-    {
-        return "<h3>" + input + "</h3>\n";
+        return myZipFile;
     }
 
-
-    private String htmlEsc(String input)
+    /**
+     * Creates a response entity that writes the zip of the proposal straight into the HTTP output stream,
+     * entry by entry, so that nothing is written to disk and the download starts at once. The overview
+     * and the list of documents are resolved before returning, so that failures there are still reported
+     * with an error status and the entity does not need the transaction.
+     * @param proposal the proposal
+     * @param anonymise leave out the investigators, the JSON and all documents except the compiled justifications
+     * @param genericExportFilenames use fixed names for the entries rather than names from the proposal
+     * @return the response entity
+     * @throws IOException if the overview cannot be rendered
+     */
+    public StreamingOutput zipStream(AbstractProposal proposal, boolean anonymise, boolean genericExportFilenames)
+            throws IOException
     {
-        if(input == null || input.isEmpty()) {
-            return "Not set";
-        }
-
-        return input.replace("&", "&amp;").replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "\\\"");
-    }
-
-    static HashMap<String, String> unitAbbr = new HashMap<>();
-
-    private String unitAsShortString(RealQuantity unit) {
-        if(unitAbbr.isEmpty()) {
-            unitAbbr.put("microarcsec", "uas");
-            unitAbbr.put("milliarcsec", "mas");
-            unitAbbr.put("arcsec", "arcsec");
-            unitAbbr.put("arcmin", "arcmin");
-            unitAbbr.put("milliradians", "mrad");
-            unitAbbr.put("degrees", "degrees");
-            unitAbbr.put("microJansky", "uJy");
-            unitAbbr.put("milliJansky", "mJyrees");
-            unitAbbr.put("Jansky", "Jy");
-        }
-
-        if(unit.getUnit().value().length() <= 4) {
-            return unit.getUnit().value();
-        }
-        if(unitAbbr.containsKey(unit.getUnit().value())) {
-            return unitAbbr.get(unit.getUnit().value());
-        } else {
-            return unit.getUnit().value();
+        String projFilename = "proposal";
+        if (proposal instanceof SubmittedProposal) {
+            projFilename = ((SubmittedProposal) proposal).getProposalCode() + "."
+                    + proposal.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_")
+                    .substring(0, Math.min(proposal.getTitle().length(), 30));
         }
-    }
-
-    private String quantityString(RealQuantity quantity) {
-        if(quantity == null) {
-            return "Not set";
+        if (proposal instanceof ObservingProposal) {
+            projFilename = proposal.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_")
+                    .substring(0, Math.min(proposal.getTitle().length(), 30));
         }
 
-        return (quantity.getValue().toString() +
-                "  " +
-                unitAsShortString(quantity));
-    }
-
-    private String targetsTable(List<Target> targets) {
-        try {
-            StringBuilder proposalTargets = new StringBuilder(startTable);
-            proposalTargets.append(htmlHeader("Targets"));
-            proposalTargets.append(beginHead)
-                    .append("Name").append(headDelim)
-                    .append("Frame").append(headDelim)
-                    .append("Epoc").append(headDelim)
-                    .append("Lat").append(headDelim)
-                    .append("Lon").append(endHead);
-            for (Target target : targets) {
-                if (target.getClass() == CelestialTarget.class) {
-                    CelestialTarget tt = (CelestialTarget) target;
-                    proposalTargets.append(beginRow)
-                            .append(htmlEsc(tt.getSourceName())).append(tableDelim);
-
-                    if (tt.getSourceCoordinates().getCoordSys() != null
-                            && tt.getSourceCoordinates().getCoordSys().getFrame() != null
-                            && tt.getSourceCoordinates().getCoordSys().getFrame().getSpaceRefFrame() != null)
-                        proposalTargets
-                                .append(htmlEsc(tt.getSourceCoordinates()
-                                        .getCoordSys()
-                                        .getFrame()
-                                        .getSpaceRefFrame()))
-                                .append(tableDelim);
-                    else
-                        proposalTargets.append("Unknown").append(tableDelim);
-
-                    proposalTargets.append(htmlEsc(tt.getPositionEpoch().value())).append(tableDelim)
-                            .append(htmlEsc(tt.getSourceCoordinates().getLat().getValue().toString())).append(tableDelim)
-                            .append(htmlEsc(tt.getSourceCoordinates().getLon().getValue().toString())).append(endRow);
-                } else {
-                    proposalTargets.append(beginRow)
-                            .append("Unknown").append(tableDelim)
-                            .append("Unknown").append(tableDelim)
-                            .append("Unknown").append(tableDelim)
-                            .append("Unknown").append(tableDelim)
-                            .append("Unknown").append(endRow);
+        // entry name -> file, in zip order
+        Map<String, File> files = new LinkedHashMap<>();
+
+        // HTML overview page
+        files.put(genericExportFilenames ? "Overview.html" : projFilename + ".html",
+                proposalOverviewRenderer.overviewFile(proposal, anonymise));
+
+        // Add all supporting documents unless anonymised, then only add compiled justification
+        for (SupportingDocument doc : proposal.getSupportingDocuments()) {
+            // If anonymise is true, only include the compiled justifications pdf
+            if (!anonymise || doc.getTitle().equals(justificationsResource.jobName + ".pdf")) {
+                // If genericExportFilenames is false, rename compiled justifications pdf
+                String entryName = !genericExportFilenames && doc.getTitle().equals(justificationsResource.jobName + ".pdf")
+                        ? projFilename + ".pdf" : doc.getTitle();
+                File file = proposalDocumentStore.fetchFile(
+                        proposalDocumentStore.getSupportingDocumentsPath(proposal.getId()) + doc.getTitle());
+                if (!file.exists()) {
+                    throw new WebApplicationException("Cannot find the supporting document " + doc.getTitle()
+                            + " of proposal " + proposal.getId(), 404);
                 }
+                files.put(entryName, file);
             }
-            proposalTargets.append(endTable);
-            return proposalTargets.toString();
         }
-        catch (Exception e) {
-            System.err.println(e.getMessage());
-            return "Unable to generate targets table - please see admin";
-        }
-    }
-
-    private String investigatorsTable(List<Investigator> investigators) {
-        StringBuilder proposalInvestigators = new StringBuilder(startTable);
-        proposalInvestigators.append(htmlHeader("Investigators"));
-        proposalInvestigators.append(beginHead)
-                .append("Name").append(headDelim)
-                .append("email").append(headDelim)
-                .append("Institute").append(headDelim)
-                .append("for PHD").append(endHead);
-        for(Investigator investigator : investigators) {
-            proposalInvestigators.append(beginRow)
-                    .append(htmlEsc(investigator.getPerson().getFullName()))
-                    .append(tableDelim).append(htmlEsc(investigator.getPerson().getEMail()))
-                    .append(tableDelim).append(htmlEsc(investigator.getPerson().getHomeInstitute().getName()))
-                    .append(tableDelim).append(investigator.getForPhD()!=null?investigator.getForPhD()==true?"Yes":"No":"No")
-                    .append(endRow);
-        }
-        proposalInvestigators.append(endTable);
-        return proposalInvestigators.toString();
-    }
-
-    private String spectralWindowTable(List<ScienceSpectralWindow> windows) {
-        if(windows.isEmpty()) {
-            return "Not set";
-        }
-        StringBuilder spectralTable = new StringBuilder(startTable);
-        spectralTable.append(beginHead)
-                .append("Start").append(headDelim)
-                .append("End").append(headDelim)
-                .append("Resolution").append(endHead);
-        for(ScienceSpectralWindow window : windows) {
-            spectralTable.append(beginRow)
-                    .append(quantityString(window.getSpectralWindowSetup().getStart())).append(tableDelim)
-                    .append(quantityString(window.getSpectralWindowSetup().getEnd())).append(tableDelim)
-                    .append(quantityString(window.getSpectralWindowSetup().getSpectralResolution())).append(endRow);
-        }
-        spectralTable.append(endTable);
-        return spectralTable.toString();
-    }
 
-
-
-    private String technicalGoalsTable(List<TechnicalGoal> technicalGoals) {
-        StringBuilder proposalTechnicalGoals = new StringBuilder(startTable);
-        proposalTechnicalGoals.append(htmlHeader("Technical Goals"));
-        proposalTechnicalGoals.append(beginHead).append("ID").append(headDelim).append("Angular Resolution")
-                .append(headDelim).append("Largest scale</th>")
-                .append("<th>Sensitivity").append(headDelim).append("Dynamic range")
-                .append(headDelim).append("Spectral Windows").append(endHead);
-
-        for(TechnicalGoal technicalGoal : technicalGoals) {
-            proposalTechnicalGoals.append(beginRow)
-                    .append(technicalGoal.getId())
-                    .append(tableDelim)
-                    .append(quantityString(technicalGoal.getPerformance().getDesiredAngularResolution()))
-                    .append(tableDelim)
-                    .append(quantityString(technicalGoal.getPerformance().getDesiredLargestScale()))
-                    .append(tableDelim)
-                    .append(quantityString(technicalGoal.getPerformance().getDesiredSensitivity()))
-                    .append(tableDelim)
-                    .append(quantityString(technicalGoal.getPerformance().getDesiredDynamicRange()))
-                    .append(tableDelim)
-                    .append(spectralWindowTable(technicalGoal.getSpectrum()))
-                    .append(endRow);
-        }
-        proposalTechnicalGoals.append(endTable);
-        return proposalTechnicalGoals.toString();
-    }
-
-    private String targetNamesTable(List<Target> targets) {
-        StringBuilder namesTable = new StringBuilder(startTable);
-        for(Target target : targets) {
-            if(target.getClass() == CelestialTarget.class) {
-                CelestialTarget tt = (CelestialTarget) target;
-                namesTable.append(beginRow)
-                        .append(htmlEsc(tt.getSourceName()))
-                        .append(endRow);
+        String jsonName = anonymise ? null : genericExportFilenames ? "proposal.json" : projFilename + ".json";
+        return outputStream -> {
+            ZipOutputStream zipOs = new ZipOutputStream(outputStream);
+            if (jsonName != null) {
+                //json of Proposal
+                zipOs.putNextEntry(new ZipEntry(jsonName));
+                writeAsJson(proposal, zipOs);
+                zipOs.closeEntry();
             }
-        }
-        namesTable.append(endTable);
-
-        return namesTable.toString();
-    }
-
-    private String timingWindowsTable(List<ObservingConstraint> timings) {
-        if(timings.isEmpty()) {
-            return "None";
-        }
-        StringBuilder timingsTable = new StringBuilder(startTable);
-        timingsTable.append(beginHead).append("Start").append(headDelim).append("End")
-                .append(headDelim).append("Exclude range").append(endHead);
-        for(ObservingConstraint constraint : timings) {
-            if(constraint.getClass() == TimingWindow.class) {
-                TimingWindow window = (TimingWindow) constraint;
-                timingsTable.append(beginRow)
-                        .append(window.getStartTime()).append(tableDelim)
-                        .append(window.getEndTime()).append(tableDelim)
-                        .append(window.getIsAvoidConstraint() ? "Yes" : "No").append(endRow);
-                if(!window.getNote().isEmpty()) {
-                    timingsTable.append("<tr><td colspan=\"3\">")
-                            .append(htmlEsc(window.getNote()))
-                            .append(endRow);
-                }
+            for (Map.Entry<String, File> file : files.entrySet()) {
+                zipFile(zipOs, file.getKey(), file.getValue());
             }
-        }
-
-        timingsTable.append(endTable);
-        return timingsTable.toString();
-    }
-
-    private String observationsTable(List<Observation> observations) {
-        StringBuilder proposalObservations = new StringBuilder(startTable);
-        proposalObservations.append(htmlHeader("Observations"));
-        proposalObservations.append(beginHead).append("Technical Goal").append(headDelim).append("Targets")
-                .append(headDelim).append("Timing windows").append(endHead);
-        for(Observation observation : observations) {
-            proposalObservations.append(beginRow)
-                    .append(observation.getTechnicalGoal().getId()).append(tableDelim)
-                    .append(targetNamesTable(observation.getTarget())).append(tableDelim)
-                    .append(timingWindowsTable(observation.getConstraints())).append(endRow);
-        }
-        proposalObservations.append(endTable);
-        return proposalObservations.toString();
+            zipOs.finish();
+            zipOs.flush();
+        };
     }
 
-
-    public File CreateZipFile(String zipFileName, AbstractProposal proposal, boolean anonymise, boolean genericExportFilenames) throws IOException {
-        // Create zip file
-        File myZipFile = new File(zipFileName);
-        ZipOutputStream zipOs = new ZipOutputStream(new FileOutputStream(myZipFile));
-        String projFilename = "proposal";
-
-        // Write proposal data (if given)
-        if(proposal != null) {
-            if (proposal instanceof SubmittedProposal) {
-                projFilename = ((SubmittedProposal) proposal).getProposalCode() + "."
-                        + proposal.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_")
-                        .substring(0, Math.min(proposal.getTitle().length(), 30));
-            }
-            if (proposal instanceof ObservingProposal) {
-                projFilename = proposal.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_")
-                        .substring(0, Math.min(proposal.getTitle().length(), 30));
-            }
-
-            if(!anonymise) {
-                //json of Proposal
-                ByteArrayInputStream bais = new ByteArrayInputStream(writeAsJsonString(proposal).getBytes());
-                zipOs.putNextEntry(new ZipEntry(genericExportFilenames?"proposal.json":projFilename+ ".json"));
-
-                byte[] bytes = new byte[1024];
-                int length;
-                while ((length = bais.read(bytes)) >= 0) {
-                    zipOs.write(bytes, 0, length);
+    /**
+     * Add a file to the zip, STORED if it is in an already compressed format. A STORED entry needs its size
+     * and CRC before it is written, so the file is read twice, both times through the one open channel: the
+     * entry is the content of the file when it was opened even if the file is replaced meanwhile, and if it
+     * is truncated the zip fails rather than being sent short.
+     */
+    private void zipFile(ZipOutputStream zipOs, String entryName, File file) throws IOException {
+        ZipEntry entry = new ZipEntry(entryName);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            InputStream in = Channels.newInputStream(channel);
+            byte[] buffer = new byte[8192];
+            int n;
+            if (compressedExtensions.contains(FilenameUtils.getExtension(entryName).toLowerCase(Locale.ROOT))) {
+                CRC32 crc = new CRC32();
+                long size = 0;
+                while ((n = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, n);
+                    size += n;
                 }
-                bais.close();
-
-                zipOs.flush();
-                zipOs.closeEntry();
-            }
-
-            // HTML overview page
-            overviewHTMLDocument(proposal, anonymise);
-            zipOs.putNextEntry(new ZipEntry(genericExportFilenames?"Overview.html":projFilename + ".html"));
-            Files.copy(proposalDocumentStore.fetchFile(proposal.getId() + "/Overview.html").toPath(), zipOs);
-            zipOs.flush();
-            zipOs.closeEntry();
-
-            // Add all supporting documents unless anonymised, then only add compiled justification
-            for(SupportingDocument doc: proposal.getSupportingDocuments()) {
-                // If anonymise is true, only include the compiled justifications pdf
-                if(!anonymise || doc.getTitle().equals(justificationsResource.jobName+".pdf")) {
-                    // If genericExportFilenames is false, rename compiled justifications pdf
-                    if(!genericExportFilenames && doc.getTitle().equals(justificationsResource.jobName+".pdf"))
-                        zipOs.putNextEntry(new ZipEntry(projFilename + ".pdf"));
-                     else
-                        zipOs.putNextEntry(new ZipEntry(doc.getTitle()));
-
-                    Files.copy(proposalDocumentStore.fetchFile(
-                            proposalDocumentStore.getSupportingDocumentsPath(proposal.getId())
-                                        + doc.getTitle()).toPath(),
-                                zipOs);
-                    zipOs.flush();
-                    zipOs.closeEntry();
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(crc.getValue());
+                channel.position(0);
+
+                zipOs.putNextEntry(entry);
+                for (long remaining = size; remaining > 0; remaining -= n) {
+                    n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (n < 0) {
+                        throw new EOFException(file + " was truncated while it was zipped");
+                    }
+                    zipOs.write(buffer, 0, n);
                 }
+            } else {
+                zipOs.putNextEntry(entry);
+                in.transferTo(zipOs);
             }
         }
-
-        zipOs.finish();
-
-        return myZipFile;
+        zipOs.closeEntry();
     }
 
     @GET
@@ -1028,16 +826,13 @@ public class ProposalResource extends ObjectResourceBase {
     @RolesAllowed("default-roles-orppst")
     public Response exportProposalZip(@PathParam("proposalCode")Long proposalCode)
             throws WebApplicationException, IOException {
-        ObservingProposal proposalForExport = singleObservingProposal(proposalCode);
+        ObservingProposal proposalForExport = singleObservingProposal(proposalCode, ProposalFetchProfile.FULL);
         String filename = "Export."
                 + proposalForExport.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_")
                     .substring(0,  Math.min(proposalForExport.getTitle().length(), 30))
                 + ".zip";
 
-        File myZipFile = CreateZipFile(proposalDocumentStore.getStoreRoot() + proposalCode.toString()
-                + "/" + filename,  proposalForExport, false, true);
-
-        return Response.ok(myZipFile)
+        return Response.ok(zipStream(proposalForExport, false, true))
                 .header("Content-Disposition", "attachment; filename=" + filename)
                 .build();
     }
@@ -1054,63 +849,296 @@ public class ProposalResource extends ObjectResourceBase {
         }
 
         new ProposalManagementModel().createContext();
-        ObservingProposal newProposal = new ObservingProposal(importProposal);
+        Map<String, Person> people = resolveInvestigators(List.of(importProposal), new HashSet<>(), new HashSet<>());
+        return importResolvedProposal(importProposal, people::get);
+    }
 
-        //List of existing organisations
-        List<ObjectIdentifier> orgIds = organizationResource.getOrganizations();
-        HashMap<String, Organization> existingOrganizationsMap = new HashMap<>();
-        for (ObjectIdentifier oi: orgIds) {
-            Organization organizationToAdd = organizationResource.getOrganization(oi.dbid);
-            existingOrganizationsMap.put(organizationToAdd.getName(), organizationToAdd);
+    @POST
+    @Operation(summary="import many proposals, each in a transaction of its own, returns the outcome of each import in order")
+    @Path("/importBulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public List<ProposalImportResult> importProposals(List<JsonNode> documents)
+            throws WebApplicationException
+    {
+        if (documents == null || documents.isEmpty()) {
+            throw new WebApplicationException("No proposals uploaded", 400);
+        }
+
+        // each document is read and checked on its own, as the single import reads it, so references are
+        // not shared and a bad document only fails itself
+        List<ProposalImportResult> results = new ArrayList<>(documents.size());
+        List<ObservingProposal> proposals = new ArrayList<>(documents.size());
+        for (int n = 0; n < documents.size(); n++) {
+            ProposalImportResult result = new ProposalImportResult(n);
+            results.add(result);
+            ObservingProposal proposal = null;
+            try {
+                new ProposalManagementModel().createContext();
+                proposal = mapper.treeToValue(documents.get(n), ObservingProposal.class);
+                checkImportable(proposal);
+            } catch (JsonProcessingException | RuntimeException e) {
+                result.error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+                proposal = null;
+            }
+            proposals.add(proposal);
+        }
+
+        // new people need an organisation, people that already exist do not
+        Set<String> emails = new HashSet<>();
+        proposals.stream().filter(Objects::nonNull)
+                .forEach(p -> p.getInvestigators().forEach(i -> emails.add(emailKey(i.getPerson()))));
+        Set<String> existing = QuarkusTransaction.requiringNew().call(() -> findPeople(emails).keySet());
+        for (int n = 0; n < proposals.size(); n++) {
+            if (proposals.get(n) != null) {
+                try {
+                    checkNewInvestigators(proposals.get(n), existing);
+                } catch (WebApplicationException e) {
+                    results.get(n).error = e.getMessage();
+                    proposals.set(n, null);
+                }
+            }
         }
 
-        //List of existing people
-        List<ObjectIdentifier> peopleIds = personResource.getPeople(null);
-        HashMap<String, Person> existingPeopleMap = new HashMap<>();
-        for (ObjectIdentifier pid: peopleIds) {
-            Person personToAdd = personResource.getPerson(pid.dbid);
-            String existingEmail = personToAdd.getEMail();
-            if (existingEmail != null && !existingEmail.trim().isEmpty()) {
-                existingPeopleMap.put(existingEmail.trim().toLowerCase(Locale.ROOT), personToAdd);
+        // people and organisations are shared between the documents, so they are all resolved or created
+        // together first, and the parallel imports then only refer to them
+        List<ObservingProposal> valid = proposals.stream().filter(Objects::nonNull).toList();
+        Set<String> createdPeople = new HashSet<>();
+        Set<Long> createdOrganizations = new HashSet<>();
+        Map<String, Long> personIds = QuarkusTransaction.requiringNew().call(() -> {
+            new ProposalManagementModel().createContext();
+            Map<String, Long> ids = new HashMap<>();
+            resolveInvestigators(valid, createdPeople, createdOrganizations)
+                    .forEach((email, person) -> ids.put(email, person.getId()));
+            return ids;
+        });
+
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int n;
+            while ((n = next.getAndIncrement()) < proposals.size()) {
+                ObservingProposal importProposal = proposals.get(n);
+                if (importProposal == null) {
+                    continue;
+                }
+                ProposalImportResult result = results.get(n);
+                try {
+                    ObservingProposal newProposal = QuarkusTransaction.requiringNew().call(() -> {
+                        new ProposalManagementModel().createContext();
+                        return importResolvedProposal(importProposal,
+                                email -> em.find(Person.class, personIds.get(email)));
+                    });
+                    result.proposalId = newProposal.getId();
+                    result.title = newProposal.getTitle();
+                } catch (Exception e) {
+                    logger.error("import of proposal " + n + " failed", e);
+                    result.error = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+                }
+            }
+        };
+
+        CompletableFuture.allOf(IntStream.range(0, Math.min(importParallelism, valid.size()))
+                .mapToObj(w -> managedExecutor.runAsync(worker))
+                .toArray(CompletableFuture[]::new))
+                .join();
+
+        // the people created for documents that all failed to import are not wanted after all
+        Set<String> used = new HashSet<>();
+        for (int n = 0; n < proposals.size(); n++) {
+            if (results.get(n).proposalId != null) {
+                proposals.get(n).getInvestigators().forEach(i -> used.add(emailKey(i.getPerson())));
+            }
+        }
+        List<Long> unused = createdPeople.stream().filter(e -> !used.contains(e)).map(personIds::get).toList();
+        if (!unused.isEmpty()) {
+            try {
+                QuarkusTransaction.requiringNew().run(() -> removeUnusedPeople(unused, createdOrganizations));
+            } catch (RuntimeException e) {
+                logger.warn("unable to remove the people created for failed imports " + unused, e);
             }
         }
 
-        //Compare people and organisations to what's in the database only add new org is adding a new person
-        List<Investigator> investigators = newProposal.getInvestigators();
-        for (Investigator i : investigators) {
-            Person person = i.getPerson();
-            String importedEmail = person.getEMail();
+        return results;
+    }
+
+    private static String emailKey(Person person) {
+        return person.getEMail().trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void checkInvestigatorEmails(ObservingProposal importProposal) {
+        for (Investigator i : importProposal.getInvestigators()) {
+            if (i.getPerson() == null) {
+                throw new WebApplicationException("An investigator has no person", 400);
+            }
+            String importedEmail = i.getPerson().getEMail();
             if (importedEmail == null || importedEmail.trim().isEmpty()) {
                 throw new WebApplicationException(
-                        "Investigator '" + person.getFullName() + "' has no email address; email is required for import",
+                        "Investigator '" + i.getPerson().getFullName() + "' has no email address; email is required for import",
                         400);
             }
-            String emailKey = importedEmail.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Check everything about a document of a bulk import that can be checked without the database, by
+     * making the copy that would be persisted.
+     */
+    private static void checkImportable(ObservingProposal importProposal) {
+        if (importProposal == null) {
+            throw new WebApplicationException("Empty proposal", 400);
+        }
+        if (importProposal.getTitle() == null) {
+            throw new WebApplicationException("The proposal has no title", 400);
+        }
+        checkInvestigatorEmails(importProposal);
+
+        new ProposalManagementModel().createContext();
+        new ObservingProposal(importProposal).updateClonedReferences();
+    }
+
+    /**
+     * @throws WebApplicationException (400) if an investigator who is not one of the existing people has no
+     * home institute, which is created with the person
+     */
+    private static void checkNewInvestigators(ObservingProposal importProposal, Set<String> existing) {
+        for (Investigator i : importProposal.getInvestigators()) {
+            Organization institute = i.getPerson().getHomeInstitute();
+            if (!existing.contains(emailKey(i.getPerson()))
+                    && (institute == null || institute.getName() == null || institute.getName().isBlank())) {
+                throw new WebApplicationException("Investigator '" + i.getPerson().getFullName()
+                        + "' has no home institute; it is required for a new person", 400);
+            }
+        }
+    }
 
-            //If this person exists, use that record, else add them
-            if(existingPeopleMap.containsKey(emailKey)) {
-                i.setPerson(existingPeopleMap.get(emailKey));
+    // the existing people with the given lower case email addresses
+    private Map<String, Person> findPeople(Collection<String> emails) {
+        Map<String, Person> people = new HashMap<>();
+        if (!emails.isEmpty()) {
+            em.createNamedQuery(QueryRegistry.PEOPLE_BY_EMAILS, Person.class)
+                    .setParameter("emails", emails)
+                    .getResultList()
+                    .forEach(p -> people.putIfAbsent(emailKey(p), p));
+        }
+        return people;
+    }
+
+    /**
+     * Find the existing people with the email addresses of the investigators of the given proposals, and
+     * create the others, along with their organisations if these do not exist either. People are matched
+     * on their email address ignoring case, organisations on their name. Existing people and organisations
+     * are fetched with one query each rather than one per entry.
+     * @param importProposals the proposals being imported
+     * @param createdPeople to add the email addresses of the people created to
+     * @param createdOrganizations to add the ids of the organisations created to
+     * @return the people by their lower case email address
+     * @throws WebApplicationException (400) if an investigator has no email address, or is a new person
+     * without a home institute
+     */
+    private Map<String, Person> resolveInvestigators(List<ObservingProposal> importProposals,
+                                                     Set<String> createdPeople, Set<Long> createdOrganizations)
+            throws WebApplicationException
+    {
+        Map<String, Person> imported = new LinkedHashMap<>();
+        for (ObservingProposal importProposal : importProposals) {
+            checkInvestigatorEmails(importProposal);
+            for (Investigator i : importProposal.getInvestigators()) {
+                imported.putIfAbsent(emailKey(i.getPerson()), i.getPerson());
+            }
+        }
+
+        Map<String, Person> people = findPeople(imported.keySet());
+        for (ObservingProposal importProposal : importProposals) {
+            checkNewInvestigators(importProposal, people.keySet());
+        }
+
+        //Only add a new organisation when adding a new person
+        Set<String> organizationNames = new HashSet<>();
+        imported.forEach((email, person) -> {
+            if (!people.containsKey(email)) {
+                organizationNames.add(person.getHomeInstitute().getName());
+            }
+        });
+        Map<String, Organization> organizations = new HashMap<>();
+        if (!organizationNames.isEmpty()) {
+            em.createNamedQuery(QueryRegistry.ORGANIZATIONS_BY_NAMES, Organization.class)
+                    .setParameter("names", organizationNames)
+                    .getResultList()
+                    .forEach(o -> organizations.putIfAbsent(o.getName(), o));
+        }
+
+        imported.forEach((email, person) -> {
+            if (people.containsKey(email)) {
+                return;
+            }
+            //If organisation exists, use that record, else add it
+            Organization organization = person.getHomeInstitute();
+            if (organizations.containsKey(organization.getName())) {
+                person.setHomeInstitute(organizations.get(organization.getName()));
             } else {
-                //If organisation exists, use that record, else add it
-                Organization organization = person.getHomeInstitute();
-                if(existingOrganizationsMap.containsKey(organization.getName())) {
-                    person.setHomeInstitute(existingOrganizationsMap.get(organization.getName()));
-                } else {
-                    logger.info("Adding organisation " + organization.getName());
-                    organization.setXmlId("0");
-                    Organization newOrganization = organizationResource.createOrganization(organization);
-                    person.setHomeInstitute(newOrganization);
-                    existingOrganizationsMap.put(organization.getName(), newOrganization);
+                logger.info("Adding organisation " + organization.getName());
+                organization.setXmlId("0");
+                Organization newOrganization = organizationResource.createOrganization(organization);
+                person.setHomeInstitute(newOrganization);
+                organizations.put(organization.getName(), newOrganization);
+                createdOrganizations.add(newOrganization.getId());
+            }
+            person.setXmlId("0");
+            people.put(email, personResource.createPerson(person));
+            createdPeople.add(email);
+        });
+        return people;
+    }
+
+    /**
+     * Remove the given people, created by a bulk import, unless they have become investigators since, and
+     * then the organisations created with them that nobody else belongs to.
+     */
+    private void removeUnusedPeople(List<Long> personIds, Set<Long> createdOrganizations) {
+        Set<Long> organizationIds = new HashSet<>();
+        for (Long personId : personIds) {
+            long investigators = em.createNamedQuery(QueryRegistry.PERSON_INVESTIGATOR_COUNT, Long.class)
+                    .setParameter("id", personId)
+                    .getSingleResult();
+            Person person = em.find(Person.class, personId);
+            if (investigators == 0 && person != null) {
+                if (createdOrganizations.contains(person.getHomeInstitute().getId())) {
+                    organizationIds.add(person.getHomeInstitute().getId());
                 }
-                person.setXmlId("0");
-                i.setPerson(personResource.createPerson(person));
-                existingPeopleMap.put(emailKey, i.getPerson());
+                em.remove(person);
+            }
+        }
+        for (Long organizationId : organizationIds) {
+            long members = em.createNamedQuery(QueryRegistry.ORGANIZATION_PEOPLE_COUNT, Long.class)
+                    .setParameter("id", organizationId)
+                    .getSingleResult();
+            if (members == 0) {
+                em.remove(em.find(Organization.class, organizationId));
+                referenceDataCache.evict();
             }
         }
+    }
+
+    /**
+     * Copy the imported proposal into a new proposal of the current transaction.
+     * @param importProposal the imported proposal
+     * @param people the person to use for each investigator, by lower case email address
+     * @return the new proposal
+     */
+    private ObservingProposal importResolvedProposal(ObservingProposal importProposal,
+                                                     Function<String, Person> people) {
+        ObservingProposal newProposal = new ObservingProposal(importProposal);
+
+        for (Investigator i : newProposal.getInvestigators()) {
+            i.setPerson(people.apply(emailKey(i.getPerson())));
+        }
 
         //update references
         newProposal.updateClonedReferences();
 
+        //Supporting document entries are not imported, as their files are not: the documents are
+        //imported separately
+        new ArrayList<>(newProposal.getSupportingDocuments()).forEach(newProposal::removeFromSupportingDocuments);
+
         //Persist the proposal
         em.persist(newProposal);
 
@@ -1124,15 +1152,6 @@ public class ProposalResource extends ObjectResourceBase {
         //add '(import)' to the end of the imported proposal
         newProposal.setTitle(modifyProposalTitle(importProposal.getTitle(), " (import)"));
 
-        //Remove supporting document entries without deleting any files.
-        List<ObjectIdentifier> oldDocuments = supportingDocumentResource.getSupportingDocuments(newProposal.getId(), null);
-        for(ObjectIdentifier oldDocumentIdentifier : oldDocuments) {
-            SupportingDocument supportingDocument = supportingDocumentResource.getSupportingDocument(newProposal.getId(), oldDocumentIdentifier.dbid);
-            deleteChildObject(newProposal, supportingDocument,
-                newProposal::removeFromSupportingDocuments);
-        }
-
-        //Import supporting documents separately.
         return newProposal;
     }
 
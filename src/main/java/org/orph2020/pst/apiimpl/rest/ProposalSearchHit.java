@@ -0,0 +1,27 @@
+package org.orph2020.pst.apiimpl.rest;
+
+/**
+ * A proposal found by the full text search, with its relevance.
+ */
+public class ProposalSearchHit {
+
+    /**
+     * the database id of the proposal
+     */
+    public long dbid;
+
+    public String title;
+
+    /**
+     * the ts_rank_cd relevance of the proposal to the search, higher is more relevant
+     */
+    public double rank;
+
+    public ProposalSearchHit() {}
+
+    public ProposalSearchHit(long dbid, String title, double rank) {
+        this.dbid = dbid;
+        this.title = title;
+        this.rank = rank;
+    }
+}
@@ -0,0 +1,89 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.ivoa.dm.proposal.management.ProposalCycle;
+import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.persistence.ProposalSearchIndex;
+
+import java.util.List;
+
+/**
+ * Full text search over the submitted proposals of a cycle - title, summary, target names and
+ * justification text - using the proposal_search tsvector index. The search documents carry the cycle
+ * the proposal is submitted to, so a search is restricted to the cycle by its cycle_id column rather than
+ * by a list of proposal ids.
+ */
+@Path("proposalCycles/{cycleCode}/search")
+@Tag(name = "proposalCycles-search")
+@Produces(MediaType.APPLICATION_JSON)
+@RolesAllowed({"tac_admin", "tac_member"})
+public class ProposalSearchResource extends ObjectResourceBase {
+
+    // ranked with keyset pagination on (rank desc, id), see PageRequest - the rank is the text sort key
+    private static final String SEARCH =
+            "with ranked as ("
+            + "select d.proposal_id as id, d.title as title, "
+            + "cast(ts_rank_cd(d.search, websearch_to_tsquery('english', :q)) as float8) as rank "
+            + "from proposal_search d "
+            + "where d.cycle_id = :cycleId and d.search @@ websearch_to_tsquery('english', :q)) "
+            + "select id, cast(rank as text), title from ranked "
+            + "where cast(:afterKey as text) is null or rank < cast(:afterKey as float8) "
+            + "or (rank = cast(:afterKey as float8) and id > :afterId) "
+            + "order by rank desc, id";
+
+    private static final String COUNT =
+            "select count(*) from proposal_search d "
+            + "where d.cycle_id = :cycleId and d.search @@ websearch_to_tsquery('english', :q)";
+
+    @Inject
+    ProposalSearchIndex proposalSearchIndex;
+
+    private List<Long> submittedProposalIds(Long cycleCode) {
+        return em.createNamedQuery(QueryRegistry.CYCLE_SUBMITTED_PROPOSAL_IDS, Long.class)
+                .setParameter("cycleId", cycleCode)
+                .getResultList();
+    }
+
+    @GET
+    @Operation(summary = "search the submitted proposals of the given ProposalCycle, most relevant first. The query 'q' uses web search syntax e.g., quoted phrases, 'or' and '-' to exclude words")
+    public Page<ProposalSearchHit> searchSubmittedProposals(@PathParam("cycleCode") Long cycleCode,
+                                                            @RestQuery String q,
+                                                            @BeanParam PageRequest pageRequest)
+    {
+        if (q == null || q.isBlank()) {
+            throw new WebApplicationException("a search query 'q' is required", 400);
+        }
+
+        Query query = em.createNativeQuery(SEARCH);
+        Query countQuery = em.createNativeQuery(COUNT);
+        for (Query nq : List.of(query, countQuery)) {
+            nq.setParameter("cycleId", cycleCode);
+            nq.setParameter("q", q);
+        }
+
+        return getPage(query, countQuery, pageRequest, 1,
+                r -> new ProposalSearchHit(((Number) r[0]).longValue(), (String) r[2],
+                        Double.parseDouble((String) r[1])));
+    }
+
+    @POST
+    @Path("reindex")
+    @RolesAllowed({"tac_admin"})
+    @Operation(summary = "rebuild the search index of the submitted proposals of the given ProposalCycle")
+    @Transactional(rollbackOn = {WebApplicationException.class})
+    public Response reindexSubmittedProposals(@PathParam("cycleCode") Long cycleCode)
+    {
+        findObject(ProposalCycle.class, cycleCode);
+        submittedProposalIds(cycleCode).forEach(proposalSearchIndex::reindex);
+        return emptyResponse204();
+    }
+}
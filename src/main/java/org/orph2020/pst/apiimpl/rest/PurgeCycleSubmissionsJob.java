@@ -0,0 +1,77 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.WebApplicationException;
+import org.ivoa.dm.proposal.management.ProposalCycle;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.jobs.JobContext;
+import org.orph2020.pst.apiimpl.jobs.JobHandler;
+import org.orph2020.pst.apiimpl.jobs.JobOutcome;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deletes all the submitted proposals of a cycle, e.g. once it is over, in chunks that are each committed
+ * in a transaction of their own. The document stores of a chunk are removed after it has committed, so a
+ * chunk that fails leaves both its proposals and their files in place.
+ */
+@ApplicationScoped
+public class PurgeCycleSubmissionsJob implements JobHandler {
+
+    static final int CHUNK_SIZE = 50;
+
+    @Inject
+    EntityManager em;
+    @Inject
+    SecurityIdentity securityIdentity;
+    @Inject
+    ProposalCyclesResource proposalCyclesResource;
+    @Inject
+    ResourceVersions resourceVersions;
+
+    @Override
+    public JobType type() {
+        return JobType.PURGE_CYCLE_SUBMISSIONS;
+    }
+
+    @Override
+    public void checkSubmission(Long subjectId, Map<String, String> parameters) throws WebApplicationException {
+        if (!securityIdentity.hasRole("obs_administration")) {
+            throw new WebApplicationException("Only observatory administrators may delete the submissions of a cycle", 403);
+        }
+        if (em.find(ProposalCycle.class, subjectId) == null) {
+            throw new WebApplicationException("ProposalCycle with id: " + subjectId + " not found", 404);
+        }
+    }
+
+    @Override
+    public JobOutcome run(JobContext context) throws Exception {
+        Long cycleId = context.subjectId();
+        List<Long> ids = QuarkusTransaction.requiringNew().call(() ->
+                em.createNamedQuery(QueryRegistry.CYCLE_SUBMITTED_PROPOSAL_IDS, Long.class)
+                        .setParameter("cycleId", cycleId)
+                        .getResultList());
+
+        int removed = 0;
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            context.checkCancelled();
+            context.progress(100 * from / ids.size(), "deleted " + removed + " of " + ids.size());
+
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            QuarkusTransaction.requiringNew().run(() -> {
+                proposalCyclesResource.removeSubmittedProposals(cycleId, chunk);
+                resourceVersions.bump(VersionedResource.CYCLE, cycleId);
+            });
+            removed += chunk.size();
+        }
+        return JobOutcome.json("{\"removed\":" + removed + "}");
+    }
+}
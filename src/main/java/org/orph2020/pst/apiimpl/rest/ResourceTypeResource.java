@@ -1,6 +1,7 @@
 package org.orph2020.pst.apiimpl.rest;
 
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
 import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
@@ -10,6 +11,8 @@ import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.management.ResourceType;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.persistence.EvictsReferenceData;
+import org.orph2020.pst.apiimpl.persistence.ReferenceDataCache;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import java.util.List;
@@ -18,8 +21,12 @@ import java.util.List;
 @Tag(name = "resource-types")
 @Produces(MediaType.APPLICATION_JSON)
 @RolesAllowed({"tac_admin", "tac_member", "obs_administration"})
+@EvictsReferenceData
 public class ResourceTypeResource extends ObjectResourceBase{
 
+    @Inject
+    ReferenceDataCache referenceDataCache;
+
     @GET
     @Operation(summary = "get all the ResourceTypes that have been defined in the App, or provide a specific query on type name")
     public List<ObjectIdentifier> getAllResourceTypes(@RestQuery String resourceTypeName)
@@ -27,7 +34,7 @@ public class ResourceTypeResource extends ObjectResourceBase{
         String baseStr = "select r._id,r.name from ResourceType r ";
         String queryStr = "where r.name like '"+resourceTypeName+"'";
         if (resourceTypeName == null) {
-            return getObjectIdentifiers(baseStr);
+            return referenceDataCache.identifiers("resourceTypes", () -> getObjectIdentifiers(baseStr));
         } else {
             return getObjectIdentifiers(baseStr + queryStr);
         }
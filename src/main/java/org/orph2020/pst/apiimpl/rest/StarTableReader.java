@@ -17,6 +17,19 @@ import java.util.regex.Pattern;
 
 public class StarTableReader {
 
+    // the column indices (-1 if absent) and units of a target table
+    private record Columns(int id, int ra, int dec,
+                           int pmRa, String pmRaUnit, int pmDec, String pmDecUnit,
+                           int plx, String plxUnit, int rv, String rvUnit) {}
+
+    /**
+     * Read a whole target table, for adding it to a proposal all or nothing.
+     * @param resource the location of the table
+     * @param spaceSys the coordinate system of the targets
+     * @param existingNames the names of the targets already in the proposal
+     * @return the targets in row order
+     * @throws WebApplicationException (400) if the table is malformed or a name is not unique
+     */
     public static List<Target> convertToListOfTargets(
             String resource,
             SpaceSys spaceSys,
@@ -24,169 +37,157 @@ public class StarTableReader {
     )
             throws WebApplicationException {
         List<Target> targets = new ArrayList<>();
+        streamTargets(resource, spaceSys, (row, target) -> targets.add(target));
+        TargetRowSink.requireUniqueNames(targets, existingNames);
+        return targets;
+    }
 
-        try (StarTable starTable = loadStarTable(resource)) {
-
-            int nCol = starTable.getColumnCount();
-
-            if (nCol == 0) {
-                throw new WebApplicationException("table has zero columns", 400);
-            }
-            else if (nCol < 3) {
-                throw new WebApplicationException("table is required to have at least 3 columns", 400);
-            }
-
-            long nRow = getRows(starTable);
-
-            if (nRow == -1) {
-                throw new WebApplicationException("unable to determine number of rows", 400);
+    /**
+     * Read a target table sequentially, without random access, so that it is never held in memory as a
+     * whole, passing each row to the sink as it is read.
+     * @param resource the location of the table
+     * @param spaceSys the coordinate system of the targets
+     * @param sink receives the rows
+     * @return the number of data rows read
+     * @throws WebApplicationException (400) if the table does not have the required columns or a row cannot be read
+     */
+    public static long streamTargets(
+            String resource,
+            SpaceSys spaceSys,
+            TargetRowSink sink
+    )
+            throws WebApplicationException {
+        try (StarTable starTable = new StarTableFactory(false).makeStarTable(resource)) {
+
+            Columns columns = findColumns(starTable);
+
+            long rowNumber = 0;
+            try (RowSequence rowSequence = starTable.getRowSequence()) {
+                while (rowSequence.next()) {
+                    rowNumber++;
+                    Target target;
+                    try {
+                        target = toTarget(rowSequence.getRow(), columns, spaceSys);
+                    } catch (ClassCastException | NullPointerException e) {
+                        throw new WebApplicationException("unable to read row " + rowNumber, 400);
+                    }
+                    sink.target(rowNumber, target);
+                }
             }
 
-            if (nRow == 0) {
+            if (rowNumber == 0) {
                 throw new WebApplicationException("table has zero rows (no data)", 400);
             }
+            return rowNumber;
 
-            // NAME, RA_d, Dec_d, [PMRA, PMDEC, PLX, RV]
-
-            int idIndex = findNameColumnIndex(starTable);
-            int raIndex = findColumnIndex(starTable, "^RA");
-            int decIndex = findColumnIndex(starTable, "^DEC");
-
-            String errorMessage = "";
-
-            if (idIndex == -1) {
-                errorMessage += "-- unable to find 'ID' or 'NAME' column";
-            }
-
-            if (raIndex == -1) {
-                errorMessage += "-- unable to find 'RA' column";
-            }
-
-            if (decIndex == -1) {
-                errorMessage += "-- unable to find 'DEC' column";
-            }
+        } catch (IOException e) {
+            throw new WebApplicationException(e.getMessage(), 500);
+        }
+    }
 
-            if (!errorMessage.isEmpty()) {
-                throw new WebApplicationException(errorMessage, 400);
-            }
+    private static Columns findColumns(StarTable starTable) throws WebApplicationException {
+        int nCol = starTable.getColumnCount();
 
-            String raUnit = starTable.getColumnInfo(raIndex).getUnitString();
-            String decUnit = starTable.getColumnInfo(decIndex).getUnitString();
+        if (nCol == 0) {
+            throw new WebApplicationException("table has zero columns", 400);
+        }
+        else if (nCol < 3) {
+            throw new WebApplicationException("table is required to have at least 3 columns", 400);
+        }
 
-            if (raUnit != null && !List.of("d", "deg", "degs", "degrees").contains(raUnit)) {
-                throw new WebApplicationException("coordinates must be given in units of degrees", 400);
-            }
+        // NAME, RA_d, Dec_d, [PMRA, PMDEC, PLX, RV]
 
-            if (decUnit != null && !List.of("d", "deg", "degs", "degrees").contains(decUnit)) {
-                throw new WebApplicationException("coordinates must be given in units of degrees", 400);
-            }
+        int idIndex = findNameColumnIndex(starTable);
+        int raIndex = findColumnIndex(starTable, "^RA");
+        int decIndex = findColumnIndex(starTable, "^DEC");
 
-            //these are optional - either they don't exist as columns or they exist but have null data
-            int pmRaIndex = findColumnIndex(starTable, "^PMRA");
-            int pmDecIndex = findColumnIndex(starTable, "^PMDEC");
-            int plxIndex = findColumnIndex(starTable, "^PLX");
-            int rvIndex = findColumnIndex(starTable, "^RV");
+        String errorMessage = "";
 
-            HashMap<Integer, String> nonUniqueNames = new HashMap<>();
+        if (idIndex == -1) {
+            errorMessage += "-- unable to find 'ID' or 'NAME' column";
+        }
 
-            List<String> tableTargetNames = new ArrayList<>();
+        if (raIndex == -1) {
+            errorMessage += "-- unable to find 'RA' column";
+        }
 
-            for (int i = 0; i < nRow; i++) {
-                String name = (String) starTable.getCell(i, idIndex);
+        if (decIndex == -1) {
+            errorMessage += "-- unable to find 'DEC' column";
+        }
 
-                //check for uniqueness in both the existing names and the names in the table
-                if (existingNames.contains(name) || tableTargetNames.contains(name)) {
-                    //the name is not unique, collect the offending name and row count to feed back to user
-                    int row = i + 1;
-                    nonUniqueNames.put(row, name);
-                }
+        if (!errorMessage.isEmpty()) {
+            throw new WebApplicationException(errorMessage, 400);
+        }
 
-                tableTargetNames.add(name);
-
-                double raValue =  (double) starTable.getCell(i, raIndex);
-                double decValue =  (double) starTable.getCell(i, decIndex);
-
-                Object pmRaObj = pmRaIndex == -1 ? null : starTable.getCell(i, pmRaIndex);
-                Object pmDecObj = pmDecIndex == -1 ? null :starTable.getCell(i, pmDecIndex);
-                Object plxObj = plxIndex == -1 ? null : starTable.getCell(i, plxIndex);
-                Object rvObj = rvIndex == -1 ? null : starTable.getCell(i, rvIndex);
-
-                double pmRaValue = pmRaIndex == -1 ? 0 : Objects.equals(pmRaObj.toString(), "NaN") ? 0 :
-                        (double) pmRaObj;
-                String pmRaUnit = pmRaIndex == -1 ? "" :
-                        starTable.getColumnInfo(pmRaIndex).getUnitString() == null ? "mas.yr-1" :
-                                starTable.getColumnInfo(pmRaIndex).getUnitString();
-
-                double pmDecValue = pmDecIndex == -1 ? 0 : Objects.equals(pmDecObj.toString(), "NaN") ? 0 :
-                        (double) pmDecObj;
-                String pmDecUnit = pmDecIndex == -1 ? "" :
-                        starTable.getColumnInfo(pmDecIndex).getUnitString() == null ? "mas.yr-1" :
-                                starTable.getColumnInfo(pmDecIndex).getUnitString();
-
-                double plxValue = plxIndex == -1 ? 0 : Objects.equals(plxObj.toString(), "NaN") ? 0 :
-                        (double) plxObj;
-                String plxUnit = plxIndex == -1 ? "" :
-                        starTable.getColumnInfo(plxIndex).getUnitString() == null ? "mas" :
-                                starTable.getColumnInfo(plxIndex).getUnitString();
-
-                double rvValue = rvIndex == -1 ? 0 : Objects.equals(rvObj.toString(), "NaN") ? 0 :
-                        (double) rvObj;
-                String rvUnit = rvIndex == -1 ? "" :
-                        starTable.getColumnInfo(rvIndex).getUnitString() == null ? "km.yr-1" :
-                                starTable.getColumnInfo(rvIndex).getUnitString();
-
-
-                targets.add(CelestialTarget.createCelestialTarget(c -> {
-                            c.sourceName = name;
-                            c.sourceCoordinates = new EquatorialPoint(
-                                    new RealQuantity(raValue, new Unit("degrees")),
-                                    new RealQuantity(decValue, new Unit("degrees")),
-                                    spaceSys
-                            );
-                            c.positionEpoch = new Epoch("J2000.0");
-
-                            //optional stuff
-                            c.pmRA = pmRaIndex == -1 ? null : Objects.equals(pmRaObj.toString(), "NaN") ? null :
-                                    new RealQuantity(pmRaValue, new Unit(pmRaUnit));
-
-                            c.pmDec = pmDecIndex == -1 ? null : Objects.equals(pmDecObj.toString(), "NaN") ? null :
-                                    new RealQuantity(pmDecValue, new Unit(pmDecUnit));
-
-                            c.parallax = plxIndex == -1 ? null : Objects.equals(plxObj.toString(), "NaN") ? null :
-                                    new RealQuantity(plxValue, new Unit(plxUnit));
-
-                            c.sourceVelocity = rvIndex == -1 ? null : Objects.equals(rvObj.toString(), "NaN") ? null :
-                                    new RealQuantity(rvValue, new Unit(rvUnit));
-                        })
-                );
-            }
+        String raUnit = starTable.getColumnInfo(raIndex).getUnitString();
+        String decUnit = starTable.getColumnInfo(decIndex).getUnitString();
 
-            if (!nonUniqueNames.isEmpty()) {
-                StringBuilder nonUniqueNamesBuilder = new StringBuilder();
-                nonUniqueNamesBuilder
-                        .append("Unable to store target list as there are non-unique names at the following rows:\n");
+        if (raUnit != null && !List.of("d", "deg", "degs", "degrees").contains(raUnit)) {
+            throw new WebApplicationException("coordinates must be given in units of degrees", 400);
+        }
 
-                for (Map.Entry<Integer, String> entry : nonUniqueNames.entrySet()) {
-                    nonUniqueNamesBuilder
-                            .append(entry.getKey()).append(": ")
-                            .append(entry.getValue()).append("\n");
-                }
+        if (decUnit != null && !List.of("d", "deg", "degs", "degrees").contains(decUnit)) {
+            throw new WebApplicationException("coordinates must be given in units of degrees", 400);
+        }
 
-                throw new WebApplicationException(nonUniqueNamesBuilder.toString(), 400);
-            }
+        //these are optional - either they don't exist as columns or they exist but have null data
+        int pmRaIndex = findColumnIndex(starTable, "^PMRA");
+        int pmDecIndex = findColumnIndex(starTable, "^PMDEC");
+        int plxIndex = findColumnIndex(starTable, "^PLX");
+        int rvIndex = findColumnIndex(starTable, "^RV");
+
+        return new Columns(idIndex, raIndex, decIndex,
+                pmRaIndex, unitOrDefault(starTable, pmRaIndex, "mas.yr-1"),
+                pmDecIndex, unitOrDefault(starTable, pmDecIndex, "mas.yr-1"),
+                plxIndex, unitOrDefault(starTable, plxIndex, "mas"),
+                rvIndex, unitOrDefault(starTable, rvIndex, "km.yr-1"));
+    }
 
-        } catch (IOException e) {
-            throw new WebApplicationException(e.getMessage(), 500);
+    private static String unitOrDefault(StarTable starTable, int index, String defaultUnit) {
+        if (index == -1) {
+            return "";
         }
-
-        return targets;
+        String unit = starTable.getColumnInfo(index).getUnitString();
+        return unit == null ? defaultUnit : unit;
     }
 
+    // the value of an optional column, null if the column does not exist or the value is NaN
+    private static RealQuantity optionalQuantity(Object[] row, int index, String unit) {
+        if (index == -1 || Objects.equals(row[index].toString(), "NaN")) {
+            return null;
+        }
+        return new RealQuantity((double) row[index], new Unit(unit));
+    }
 
-    private static StarTable loadStarTable( String resourceLocation ) throws IOException {
-        return new StarTableFactory(true).makeStarTable( resourceLocation );
+    private static Target toTarget(Object[] row, Columns columns, SpaceSys spaceSys) {
+        String name = (String) row[columns.id()];
+        double raValue = (double) row[columns.ra()];
+        double decValue = (double) row[columns.dec()];
+
+        RealQuantity pmRa = optionalQuantity(row, columns.pmRa(), columns.pmRaUnit());
+        RealQuantity pmDec = optionalQuantity(row, columns.pmDec(), columns.pmDecUnit());
+        RealQuantity parallax = optionalQuantity(row, columns.plx(), columns.plxUnit());
+        RealQuantity velocity = optionalQuantity(row, columns.rv(), columns.rvUnit());
+
+        return CelestialTarget.createCelestialTarget(c -> {
+                    c.sourceName = name;
+                    c.sourceCoordinates = new EquatorialPoint(
+                            new RealQuantity(raValue, new Unit("degrees")),
+                            new RealQuantity(decValue, new Unit("degrees")),
+                            spaceSys
+                    );
+                    c.positionEpoch = new Epoch("J2000.0");
+
+                    //optional stuff
+                    c.pmRA = pmRa;
+                    c.pmDec = pmDec;
+                    c.parallax = parallax;
+                    c.sourceVelocity = velocity;
+                }
+        );
     }
 
+
     //attempt to find an identifying name column index
     private static int findNameColumnIndex(StarTable starTable) {
         int resultId = findColumnIndex(starTable, "^ID");
@@ -217,20 +218,4 @@ public class StarTableReader {
 
         return iCol;
     }
-
-    private static long getRows(StarTable starTable) throws WebApplicationException, IOException {
-        long nRow = starTable.getRowCount(); //can return a -1 if row count is not easily determined
-
-        if (nRow == -1) {
-            //determine row count using a 'RowSequence' - initial position is before the first row
-            RowSequence rowSequence = starTable.getRowSequence();
-            nRow = 0;
-            while (rowSequence.next()) {
-                nRow++;
-            }
-            rowSequence.close();
-        }
-
-        return nRow;
-    }
 }
@@ -6,6 +6,7 @@ package org.orph2020.pst.apiimpl.rest;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -60,6 +61,9 @@ public class SubjectMapResource extends ObjectResourceBase {
     @ConfigProperty(name = "auth-server-master")
     String authServerMaster;
 
+    @Inject
+    SubjectPersonCache subjectPersonCache;
+
     @PostConstruct
     public void initKeyCloak() {
         keycloak = KeycloakBuilder.builder()
@@ -106,6 +110,7 @@ public class SubjectMapResource extends ObjectResourceBase {
    @ResponseStatus(value = 201)
     public SubjectMap createFromUser(@QueryParam("uuid") String uuid, Person user){
       SubjectMap ob = new SubjectMap( user, uuid);
+      subjectPersonCache.invalidate(uuid);
       return persistObject(ob);
     }
 
@@ -183,6 +188,7 @@ public class SubjectMapResource extends ObjectResourceBase {
                 );
 
                 persistObject(new SubjectMap(newPerson, ur.getId()));
+                subjectPersonCache.invalidate(ur.getId());
 
                 result.getAndSet(result.get() + 1);
 
@@ -0,0 +1,135 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
+import org.orph2020.pst.apiimpl.persistence.VersionCheck;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Application wide cache of the mapping from an AAI subject (the 'sub' claim of the JWT) to the
+ * database id of the Person that the SubjectMap associates with it. Size and time-to-live of the
+ * cache are set by the "subject-person" cache configuration; hit/miss counts are published with
+ * the other application metrics.
+ * <p>
+ * Anything that creates, changes or deletes a SubjectMap, or deletes a Person, must invalidate the
+ * affected subjects here. Per-request resolution goes through {@link CurrentUser}.
+ * <p>
+ * An invalidation only removes the subjects from the cache of this replica. It also bumps the
+ * {@link VersionedResource#SUBJECT_MAP} version, and every replica that finds the version changed, when it
+ * reads it at most once per "pst.subject-person.check-interval", invalidates its whole cache - so the
+ * other replicas stop using a changed mapping within that interval rather than the time-to-live.
+ */
+@ApplicationScoped
+public class SubjectPersonCache {
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TransactionSynchronizationRegistry transactionRegistry;
+
+    @Inject
+    ResourceVersions resourceVersions;
+
+    @Inject
+    @CacheName("subject-person")
+    Cache cache;
+
+    @ConfigProperty(name = "pst.subject-person.check-interval", defaultValue = "5s")
+    Duration checkInterval;
+
+    private VersionCheck versionCheck;
+
+    @PostConstruct
+    void init() {
+        versionCheck = new VersionCheck(VersionedResource.SUBJECT_MAP, 0L, checkInterval);
+    }
+
+    /**
+     * Get the id of the Person mapped to the given subject.
+     * @param subject the AAI subject
+     * @return the database id of the Person
+     * @throws WebApplicationException (403) if no Person is mapped to the subject, this is not cached
+     */
+    public Long personId(String subject)
+        throws WebApplicationException
+    {
+        if (versionCheck.changed(resourceVersions)) {
+            cache.invalidateAll().await().indefinitely();
+        }
+        return cache.get(subject, this::lookupPersonId).await().indefinitely();
+    }
+
+    /**
+     * Invalidate the cached entry for the given subject. When called inside a transaction the entry
+     * is invalidated again once the transaction completes, so a concurrent request cannot re-cache
+     * the mapping as it was before the change was committed. The other replicas are told through the
+     * version, which is bumped in the transaction, or in one of its own outside a transaction.
+     * @param subject the AAI subject
+     */
+    public void invalidate(String subject) {
+        cache.invalidate(subject).await().indefinitely();
+        if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE) {
+            resourceVersions.bump(VersionedResource.SUBJECT_MAP, 0L);
+            afterCompletion(() -> cache.invalidate(subject).await().indefinitely());
+        } else {
+            QuarkusTransaction.requiringNew().run(() -> resourceVersions.bump(VersionedResource.SUBJECT_MAP, 0L));
+        }
+    }
+
+    /**
+     * Invalidate the cached entries of every subject mapped to the given Person.
+     * @param personId the database id of the Person
+     */
+    public void invalidatePerson(Long personId) {
+        List<String> subjects = em.createQuery(
+                "select s.uid from SubjectMap s where s.person._id = :id", String.class)
+                .setParameter("id", personId)
+                .getResultList();
+
+        subjects.forEach(this::invalidate);
+    }
+
+    private Long lookupPersonId(String subject) {
+        List<Long> ids = em.createQuery(
+                "select s.person._id from SubjectMap s where s.uid = :uid", Long.class)
+                .setParameter("uid", subject)
+                .getResultList();
+
+        if (ids.isEmpty()) {
+            throw new WebApplicationException(
+                    "No Person is associated with the authenticated user", Response.Status.FORBIDDEN);
+        }
+        return ids.get(0);
+    }
+
+    private void afterCompletion(Runnable action) {
+        if (transactionRegistry.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return;
+        }
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {}
+
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+}
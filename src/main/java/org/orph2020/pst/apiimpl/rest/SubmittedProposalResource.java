@@ -13,7 +13,6 @@ import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
-import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.management.*;
@@ -21,10 +20,12 @@ import org.ivoa.dm.proposal.prop.*;
 import org.jboss.resteasy.reactive.RestQuery;
 import org.orph2020.pst.apiimpl.ProposalCodeGenerator;
 import org.orph2020.pst.apiimpl.entities.SubmissionConfiguration;
+import org.orph2020.pst.apiimpl.metrics.MailMetrics;
+import org.orph2020.pst.apiimpl.persistence.ProposalFetchProfile;
+import org.orph2020.pst.apiimpl.persistence.ProposalSearchIndex;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 import org.orph2020.pst.common.json.SubmittedProposalMailData;
 
-import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -46,10 +47,7 @@ public class SubmittedProposalResource extends ObjectResourceBase{
     ProposalCodeGenerator   proposalCodeGenerator;
 
     @Inject
-    JsonWebToken userInfo;
-
-    @Inject
-    SubjectMapResource subjectMapResource;
+    CurrentUser currentUser;
 
     @Inject
     ProposalResource proposalResource;
@@ -57,6 +55,12 @@ public class SubmittedProposalResource extends ObjectResourceBase{
     @Inject
     JustificationsResource justificationsResource;
 
+    @Inject
+    MailMetrics mailMetrics;
+
+    @Inject
+    ProposalSearchIndex proposalSearchIndex;
+
     @CheckedTemplate
     static class Templates {
         public static native
@@ -230,16 +234,18 @@ public class SubmittedProposalResource extends ObjectResourceBase{
         final long proposalId = submissionConfiguration.proposalId;
         ProposalCycle cycle =  findObject(ProposalCycle.class,cycleId);
 
-        ObservingProposal proposal = findObject(ObservingProposal.class, proposalId);
+        // all of it is copied into the submitted proposal
+        ObservingProposal proposal = fetchProfile(findObject(ObservingProposal.class, proposalId),
+                ProposalFetchProfile.FULL);
 
         //Only a PI can submit this proposal
-        Person currentUser = subjectMapResource.subjectMap(userInfo.getSubject()).getPerson();
+        Person currentPerson = currentUser.person();
 
         //Check this person has rights to withdraw this submitted proposal
         AtomicBoolean foundPI = new AtomicBoolean(false);
         proposal.getInvestigators().forEach(investigator -> {
             if(investigator.getType() == InvestigatorKind.PI
-                    && investigator.getPerson() == currentUser)
+                    && investigator.getPerson() == currentPerson)
                 foundPI.set(true);
         });
 
@@ -266,7 +272,7 @@ public class SubmittedProposalResource extends ObjectResourceBase{
         // TODO Double check all references are updated correctly
         SubmittedProposal submittedProposal = new SubmittedProposal(proposal, proposalCodeGenerator.generateProposalCode(cycle), configMappings, new Date(), false, new Date(0L), null );
         submittedProposal.updateClonedReferences();
-        em.persist(submittedProposal);
+        persistCopy(submittedProposal);
         submittedProposal.addToRelatedProposals(new RelatedProposal(proposal));
 
         //**** clone the document store of the original proposal ****
@@ -286,6 +292,8 @@ public class SubmittedProposalResource extends ObjectResourceBase{
         cycle.addToSubmittedProposals(submittedProposal);
         em.merge(cycle);
 
+        proposalSearchIndex.reindex(submittedProposal.getId());
+
         SubmittedProposalMailData mailData = new SubmittedProposalMailData(submittedProposal, cycle);
 
         List<Investigator> investigators = submittedProposal.getInvestigators();
@@ -296,10 +304,10 @@ public class SubmittedProposalResource extends ObjectResourceBase{
             recipientEmails.add(investigator.getPerson().getEMail());
         }
 
-       Uni<Void> mail = Templates.confirmSubmittedProposal(mailData)
+       Uni<Void> mail = mailMetrics.counted("confirmSubmittedProposal", Templates.confirmSubmittedProposal(mailData)
              .to(recipientEmails.toArray(new String[0]))
              .subject("Submission Confirmation of " + submittedProposal.getTitle() + " to " + cycle.getTitle())
-             .send();
+             .send());
 
         mail.subscribe().with(
               item -> Log.info("submission mail sent"),
@@ -419,21 +427,21 @@ public class SubmittedProposalResource extends ObjectResourceBase{
         //ToDO: check submitted proposals belongs to the cycle
         System.out.println(cycleCode);
 
-        SubmittedProposal proposal = findObject(SubmittedProposal.class, submittedProposalId);
+        // Generate the Admin's pdf view of this submitted proposal, saved in a transaction of its own, so
+        // that the proposal read below includes it
+        justificationsResource.createTACAdminPDF(submittedProposalId);
+        em.clear();
+
+        SubmittedProposal proposal = fetchProfile(findObject(SubmittedProposal.class, submittedProposalId),
+                ProposalFetchProfile.FULL);
 
         String filename = proposal.getProposalCode() + "."
                 + proposal.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_")
                     .substring(0,  Math.min(proposal.getTitle().length(), 30))
                 + ".zip";
 
-        // Generate the Admin's pdf view of this submitted proposal
-        justificationsResource.createTACAdminPDF(submittedProposalId);
-
-        File myZipFile = proposalResource.CreateZipFile(proposalDocumentStore.getStoreRoot()
-                + submittedProposalId + "/" + filename, proposal, false, false);
-
-        return Response.ok(myZipFile)
-                .header("Content-Disposition", "attachment; filename=" + "Example.zip")
+        return Response.ok(proposalResource.zipStream(proposal, false, false))
+                .header("Content-Disposition", "attachment; filename=" + filename)
                 .build();
     }
 
@@ -471,10 +479,10 @@ public class SubmittedProposalResource extends ObjectResourceBase{
             recipientEmails.add(investigator.getPerson().getEMail());
         }
 
-        return Templates.tacReviewResults(mailData)
+        return mailMetrics.counted("tacReviewResults", Templates.tacReviewResults(mailData)
                 .to(recipientEmails.toArray(new String[0]))
                 .subject(cycle.getTitle() + " TAC review result for " + submittedProposal.getTitle())
-                .send();
+                .send());
     }
 
     @PUT
@@ -0,0 +1,60 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress, and finally the outcome, of a streaming target list ingestion. It is kept as the result of
+ * the ingestion's pst_job row, updated after each committed chunk.
+ * @see TargetListIngester
+ */
+public class TargetIngestReport {
+
+    /**
+     * the proposal the targets are added to
+     */
+    public Long proposalCode;
+
+    /**
+     * the number of data rows read so far
+     */
+    public long rowsRead;
+
+    /**
+     * the number of targets committed to the proposal so far
+     */
+    public long targetsAdded;
+
+    /**
+     * the last data row whose target, if it was not skipped, is committed - every row up to and including
+     * it has been dealt with
+     */
+    public long lastCommittedRow;
+
+    /**
+     * the number of rows skipped because their target name was already used
+     */
+    public long duplicateCount;
+
+    /**
+     * the first of the skipped rows as "row: name", at most {@link TargetListIngester#MAX_REPORTED_DUPLICATES}
+     */
+    public List<String> duplicates = new ArrayList<>();
+
+    /**
+     * true once the ingestion has stopped, either at the end of the file or on an error
+     */
+    public boolean finished;
+
+    /**
+     * the reason the ingestion stopped early, the targets up to {@link #lastCommittedRow} remain in the
+     * proposal
+     */
+    public String error;
+
+    public TargetIngestReport() {}
+
+    public TargetIngestReport(Long proposalCode) {
+        this.proposalCode = proposalCode;
+    }
+}
@@ -9,8 +9,10 @@ import org.ivoa.dm.stc.coords.EquatorialPoint;
 import org.ivoa.dm.stc.coords.SpaceSys;
 import org.ivoa.vodml.stdtypes.Unit;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
 
 public class TargetListFileReader {
@@ -55,133 +57,134 @@ public class TargetListFileReader {
     }
 
 
+    /**
+     * Read a whole target list file, for adding it to a proposal all or nothing.
+     * @param theFile the uploaded file
+     * @param spaceSys the coordinate system of the targets
+     * @param existingNames the names of the targets already in the proposal
+     * @return the targets in row order
+     * @throws WebApplicationException (400) if the file is malformed or a name is not unique
+     */
     public static List<Target> readTargetListFile(
             File theFile,
             SpaceSys spaceSys,
             List<String> existingNames
     ) throws WebApplicationException
     {
-
         List<Target> result = new ArrayList<>();
+        streamTargets(theFile, spaceSys, (row, target) -> result.add(target));
+        TargetRowSink.requireUniqueNames(result, existingNames);
+        return result;
+    }
+
+    private static Target toTarget(String[] tokens, HashMap<String, Integer> headerIndices,
+                                   String targetName, SpaceSys spaceSys) {
+        Double targetRA = Double.valueOf(tokens[headerIndices.get("ra")].trim());
+        Double targetDEC = Double.valueOf(tokens[headerIndices.get("dec")].trim());
+
+        return CelestialTarget.createCelestialTarget(c -> {
+            c.sourceName = targetName;
+            c.sourceCoordinates = new EquatorialPoint(
+                    new RealQuantity(targetRA, new Unit("degrees")),
+                    new RealQuantity(targetDEC, new Unit("degrees")),
+                    spaceSys
+            );
+            c.positionEpoch = new Epoch("J2000.0");
+
+            //optionals
+            //notice that although the column may exist, the data entry may be null (represented
+            //by an empty string)
+            if (headerIndices.containsKey("pmra")) {
+                c.pmRA = Objects.equals(tokens[headerIndices.get("pmra")].trim(), "") ? null :
+                        new RealQuantity(
+                                Double.valueOf(tokens[headerIndices.get("pmra")].trim()),
+                                new Unit("mas.yr-1")
+                        );
+            }
+
+            if (headerIndices.containsKey("pmdec")) {
+                c.pmDec = Objects.equals(tokens[headerIndices.get("pmdec")].trim(), "") ? null :
+                        new RealQuantity(
+                                Double.valueOf(tokens[headerIndices.get("pmdec")].trim()),
+                                new Unit("mas.yr-1")
+                        );
+            }
+
+            if (headerIndices.containsKey("plx")) {
+                c.parallax = Objects.equals(tokens[headerIndices.get("plx")].trim(), "") ? null :
+                        new RealQuantity(
+                                Double.valueOf(tokens[headerIndices.get("plx")].trim()),
+                                new Unit("mas")
+                        );
+            }
+
+            if (headerIndices.containsKey("rv")) {
+                c.sourceVelocity = Objects.equals(tokens[headerIndices.get("rv")].trim(), "") ? null :
+                        new RealQuantity(
+                                Double.valueOf(tokens[headerIndices.get("rv")].trim()),
+                                new Unit("km.s-1")
+                        );
+            }
+        });
+    }
+
+    /**
+     * Read a target list file line by line, passing each row to the sink as it is read, so that memory
+     * use does not grow with the size of the file.
+     * @param theFile the uploaded file
+     * @param spaceSys the coordinate system of the targets
+     * @param sink receives the rows
+     * @return the number of data rows read
+     * @throws WebApplicationException (400) if the header or a row is malformed
+     */
+    public static long streamTargets(
+            File theFile,
+            SpaceSys spaceSys,
+            TargetRowSink sink
+    ) throws WebApplicationException
+    {
+        try (BufferedReader reader = Files.newBufferedReader(theFile.toPath())) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new WebApplicationException("File is empty", 400);
+            }
+            if (!headerLine.startsWith("#")) {
+                throw new WebApplicationException(
+                        "Missing header line (#...) in file " + theFile.getName(), 400
+                );
+            }
+            HashMap<String,Integer> headerIndices = getHeaderIndices(headerLine);
+
+            long rowCount = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rowCount++;
+                String[] tokens = line.split(",");
 
-        //open file to read and extract its contents into a List of Targets
-        try {
-            Scanner theScanner = new Scanner(theFile);
-
-            if (theScanner.hasNextLine()) {
-                String headerLine = theScanner.nextLine();
-                if (headerLine.startsWith("#")) {
-                    HashMap<String,Integer> headerIndices = getHeaderIndices(headerLine);
-
-                    HashMap<Integer, String> nonUniqueNames = new HashMap<>();
-
-                    List<String> tableTargetNames = new ArrayList<>();
-
-                    int rowCount = 0;
-
-                    while (theScanner.hasNextLine()) {
-                        String[] tokens = theScanner.nextLine().split(",");
-
-                        if (tokens.length != headerIndices.size()) {
-                            int row = rowCount + 1;
-                            throw new WebApplicationException(
-                                    "Expected " + headerIndices.size() + " columns but got "
-                                            + tokens.length + " at row " + row, 400
-                            );
-                        }
-
-                        String targetName = tokens[headerIndices.get("name")].trim();
-
-                        if (existingNames.contains(targetName) || tableTargetNames.contains(targetName)) {
-                            //the name is not unique, collect the offending name and row count to feed back to user
-                            int row = rowCount + 1;
-                            nonUniqueNames.put(row, targetName);
-                        }
-
-                        tableTargetNames.add(targetName);
-
-                        Double targetRA = Double.valueOf(tokens[headerIndices.get("ra")].trim());
-                        Double targetDEC = Double.valueOf(tokens[headerIndices.get("dec")].trim());
-
-                        CelestialTarget target = CelestialTarget.createCelestialTarget(c -> {
-                            c.sourceName = targetName;
-                            c.sourceCoordinates = new EquatorialPoint(
-                                    new RealQuantity(targetRA, new Unit("degrees")),
-                                    new RealQuantity(targetDEC, new Unit("degrees")),
-                                    spaceSys
-                            );
-                            c.positionEpoch = new Epoch("J2000.0");
-
-                            //optionals
-                            //notice that although the column may exist, the data entry may be null (represented
-                            //by an empty string)
-                            if (headerIndices.containsKey("pmra")) {
-                                c.pmRA = Objects.equals(tokens[headerIndices.get("pmra")].trim(), "") ? null :
-                                        new RealQuantity(
-                                                Double.valueOf(tokens[headerIndices.get("pmra")].trim()),
-                                                new Unit("mas.yr-1")
-                                        );
-                            }
-
-                            if (headerIndices.containsKey("pmdec")) {
-                                c.pmDec = Objects.equals(tokens[headerIndices.get("pmdec")].trim(), "") ? null :
-                                        new RealQuantity(
-                                                Double.valueOf(tokens[headerIndices.get("pmdec")].trim()),
-                                                new Unit("mas.yr-1")
-                                        );
-                            }
-
-                            if (headerIndices.containsKey("plx")) {
-                                c.parallax = Objects.equals(tokens[headerIndices.get("plx")].trim(), "") ? null :
-                                        new RealQuantity(
-                                                Double.valueOf(tokens[headerIndices.get("plx")].trim()),
-                                                new Unit("mas")
-                                        );
-                            }
-
-                            if (headerIndices.containsKey("rv")) {
-                                c.sourceVelocity = Objects.equals(tokens[headerIndices.get("rv")].trim(), "") ? null :
-                                        new RealQuantity(
-                                                Double.valueOf(tokens[headerIndices.get("rv")].trim()),
-                                                new Unit("km.s-1")
-                                        );
-                            }
-                        });
-
-                        result.add(target);
-                        rowCount++;
-                    }
-
-                    if (rowCount == 0) {
-                        throw new WebApplicationException("No data rows in uploaded file", 400);
-                    }
-
-                    if (!nonUniqueNames.isEmpty()) {
-                        StringBuilder nonUniqueNamesBuilder = new StringBuilder();
-                        nonUniqueNamesBuilder
-                                .append("Unable to store target list as there are non-unique names at the following rows:\n");
-
-                        for (Map.Entry<Integer, String> entry : nonUniqueNames.entrySet()) {
-                            nonUniqueNamesBuilder
-                                    .append(entry.getKey()).append(": ")
-                                    .append(entry.getValue()).append("\n");
-                        }
-
-                        throw new WebApplicationException(nonUniqueNamesBuilder.toString(), 400);
-                    }
-
-                } else {
+                if (tokens.length != headerIndices.size()) {
                     throw new WebApplicationException(
-                            "Missing header line (#...) in file " + theFile.getName(), 400
+                            "Expected " + headerIndices.size() + " columns but got "
+                                    + tokens.length + " at row " + rowCount, 400
                     );
                 }
-            } else {
-                throw new WebApplicationException("File is empty", 400);
+
+                String targetName = tokens[headerIndices.get("name")].trim();
+
+                Target target;
+                try {
+                    target = toTarget(tokens, headerIndices, targetName, spaceSys);
+                } catch (NumberFormatException e) {
+                    throw new WebApplicationException("Invalid number at row " + rowCount + ": " + e.getMessage(), 400);
+                }
+                sink.target(rowCount, target);
             }
-        } catch (FileNotFoundException e) {
+
+            if (rowCount == 0) {
+                throw new WebApplicationException("No data rows in uploaded file", 400);
+            }
+            return rowCount;
+        } catch (IOException e) {
             throw new WebApplicationException(e.getMessage(), 500);
         }
-
-        return result;
     }
 }
@@ -0,0 +1,220 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.security.identity.SecurityIdentity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import org.ivoa.dm.proposal.prop.ObservingProposal;
+import org.ivoa.dm.proposal.prop.Target;
+import org.ivoa.dm.stc.coords.SpaceSys;
+import org.orph2020.pst.apiimpl.entities.Job;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.jobs.JobCancelledException;
+import org.orph2020.pst.apiimpl.jobs.JobOutcome;
+import org.orph2020.pst.apiimpl.jobs.JobQueue;
+import org.orph2020.pst.apiimpl.jobs.JobRunner;
+import org.orph2020.pst.apiimpl.jobs.JobStatus;
+import org.orph2020.pst.apiimpl.jobs.JobType;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Adds very large target lists to a proposal. Unlike the "uploadList" operation the file is not read into
+ * memory as a whole and the targets are not added in a single transaction: rows are streamed from the
+ * file and committed in chunks of {@link #CHUNK_SIZE}, each in its own transaction, so memory use does
+ * not grow with the length of the list. Consequently
+ * <ul>
+ *     <li>rows whose target name is already used, in the proposal or earlier in the list, are skipped and
+ *     reported rather than rejecting the file - names are checked against the database chunk by chunk,</li>
+ *     <li>if the file turns out to be malformed part way through, the rows before the bad row are still
+ *     committed and the report says which row was committed last.</li>
+ * </ul>
+ * Each ingestion is recorded as an {@link JobType#INGEST_TARGET_LIST} job, which holds its report, so the
+ * progress can be followed (and the ingestion cancelled) from any replica.
+ */
+@ApplicationScoped
+public class TargetListIngester extends ObjectResourceBase {
+
+    static final int CHUNK_SIZE = 1000;
+    static final int MAX_REPORTED_DUPLICATES = 1000;
+
+    @Inject
+    ResourceVersions resourceVersions;
+    @Inject
+    JobQueue jobQueue;
+    @Inject
+    JobRunner jobRunner;
+    @Inject
+    SecurityIdentity securityIdentity;
+
+    // the rows read since the last commit
+    private record Row(long row, Target target) {}
+
+    /**
+     * Get the progress of the latest ingestion into the given proposal.
+     * @param proposalCode the proposal id
+     * @return the report, or null if there has not been an ingestion into the proposal
+     */
+    public TargetIngestReport progress(Long proposalCode) {
+        Job job = jobQueue.latest(JobType.INGEST_TARGET_LIST, proposalCode);
+        if (job == null) {
+            return null;
+        }
+        TargetIngestReport report = readReport(job);
+        if (job.getStatus() != JobStatus.RUNNING) {
+            // e.g. failed by another replica after this one stopped responding
+            report.finished = true;
+            if (report.error == null && job.getStatus() != JobStatus.SUCCEEDED) {
+                report.error = job.getMessage();
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Stream the targets in the given file into the proposal. Must NOT be called in a transaction.
+     * @param proposalCode the ObservingProposal id
+     * @param file the uploaded file
+     * @param fileType the format of the file
+     * @return the final report
+     * @throws WebApplicationException (404) if there is no such proposal, (409) if an ingestion into the
+     * proposal is already running. Errors in the file are returned in the report.
+     */
+    public TargetIngestReport ingest(Long proposalCode, File file, ProposalResource.FileType fileType)
+            throws WebApplicationException
+    {
+        SpaceSys spaceSys = QuarkusTransaction.requiringNew().call(() -> {
+            findObject(ObservingProposal.class, proposalCode);
+            return em.createQuery("select s from SpaceSys s where s.frame.spaceRefFrame='ICRS'", SpaceSys.class)
+                    .getResultList().get(0);
+        });
+
+        Long jobId = jobQueue.start(JobType.INGEST_TARGET_LIST, proposalCode,
+                        securityIdentity.getPrincipal().getName(), securityIdentity.getRoles(), jobRunner.node())
+                .orElseThrow(() -> new WebApplicationException(
+                        "A target list is already being added to proposal " + proposalCode, 409));
+
+        TargetIngestReport report = new TargetIngestReport(proposalCode);
+        List<Row> chunk = new ArrayList<>(CHUNK_SIZE);
+        TargetRowSink sink = (row, target) -> {
+            chunk.add(new Row(row, target));
+            report.rowsRead = row;
+            if (chunk.size() == CHUNK_SIZE) {
+                commitChunk(jobId, proposalCode, chunk, report);
+            }
+        };
+
+        try {
+            try {
+                switch (fileType) {
+                    case PLAIN_TEXT -> TargetListFileReader.streamTargets(file, spaceSys, sink);
+                    case STAR_TABLE_FMT -> StarTableReader.streamTargets(file.toString(), spaceSys, sink);
+                }
+                commitChunk(jobId, proposalCode, chunk, report);
+            } catch (WebApplicationException e) {
+                // a malformed row - the rows read before it are all valid, so they are committed
+                commitChunk(jobId, proposalCode, chunk, report);
+                report.error = e.getMessage();
+            }
+            report.finished = true;
+            if (report.error == null) {
+                jobQueue.succeed(jobId, JobOutcome.json(writeReport(report)));
+            } else {
+                jobQueue.result(jobId, writeReport(report));
+                jobQueue.fail(jobId, JobStatus.FAILED, report.error);
+            }
+        } catch (JobCancelledException e) {
+            report.finished = true;
+            report.error = "cancelled";
+            jobQueue.result(jobId, writeReport(report));
+            jobQueue.fail(jobId, JobStatus.CANCELLED, report.error);
+        } catch (RuntimeException e) {
+            report.finished = true;
+            report.error = e.getMessage();
+            jobQueue.result(jobId, writeReport(report));
+            jobQueue.fail(jobId, JobStatus.FAILED, e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+            throw e;
+        }
+
+        return report;
+    }
+
+    /**
+     * Adds the targets of the chunk whose names are not yet used to the proposal, through the proposal's
+     * targets collection like any other child, in a transaction of its own, then records the report.
+     */
+    private void commitChunk(Long jobId, Long proposalCode, List<Row> chunk, TargetIngestReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        if (jobQueue.isCancelRequested(jobId)) {
+            throw new JobCancelledException(jobId);
+        }
+
+        List<Target> added = new ArrayList<>(chunk.size());
+        List<String> skipped = new ArrayList<>();
+        QuarkusTransaction.requiringNew().run(() -> {
+            added.clear();
+            skipped.clear();
+            Set<String> used = new HashSet<>(em.createNamedQuery(
+                            QueryRegistry.PROPOSAL_TARGET_NAMES_USED, String.class)
+                    .setParameter("id", proposalCode)
+                    .setParameter("names", chunk.stream().map(r -> r.target().getSourceName()).toList())
+                    .getResultList());
+            for (Row row : chunk) {
+                if (used.add(row.target().getSourceName())) {
+                    added.add(row.target());
+                } else {
+                    skipped.add(row.row() + ": " + row.target().getSourceName());
+                }
+            }
+
+            if (!added.isEmpty()) {
+                ObservingProposal proposal = findObject(ObservingProposal.class, proposalCode);
+                addNewChildObjects(proposal, added, proposal::addToTargets);
+                resourceVersions.bump(VersionedResource.PROPOSAL, proposalCode);
+            }
+            // the chunk, and the proposal's targets loaded to add it, are not needed again
+            em.flush();
+            em.clear();
+        });
+
+        report.targetsAdded += added.size();
+        report.duplicateCount += skipped.size();
+        for (String duplicate : skipped) {
+            if (report.duplicates.size() < MAX_REPORTED_DUPLICATES) {
+                report.duplicates.add(duplicate);
+            }
+        }
+        report.lastCommittedRow = chunk.get(chunk.size() - 1).row();
+        chunk.clear();
+        jobQueue.result(jobId, writeReport(report));
+    }
+
+    private String writeReport(TargetIngestReport report) {
+        try {
+            return mapper.writeValueAsString(report);
+        } catch (JsonProcessingException e) {
+            throw new WebApplicationException(e.getMessage(), 500);
+        }
+    }
+
+    private TargetIngestReport readReport(Job job) {
+        if (job.getResult() == null || job.getResult().isBlank()) {
+            return new TargetIngestReport(job.getSubjectId());
+        }
+        try {
+            return mapper.readValue(job.getResult(), TargetIngestReport.class);
+        } catch (JsonProcessingException e) {
+            throw new WebApplicationException(e.getMessage(), 500);
+        }
+    }
+}
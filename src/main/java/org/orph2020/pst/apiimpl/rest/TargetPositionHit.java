@@ -0,0 +1,47 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import org.orph2020.pst.apiimpl.entities.TargetPosition;
+
+/**
+ * A target found by a position search.
+ */
+public class TargetPositionHit {
+
+    /**
+     * the database id of the proposal
+     */
+    public long proposalId;
+
+    /**
+     * the database id of the target
+     */
+    public long targetId;
+
+    public String sourceName;
+
+    /**
+     * the right ascension in degrees
+     */
+    public double ra;
+
+    /**
+     * the declination in degrees
+     */
+    public double dec;
+
+    /**
+     * the separation from the search position in arcseconds, null within a {@link DuplicateTargetPair}
+     */
+    public Double separation;
+
+    public TargetPositionHit() {}
+
+    public TargetPositionHit(TargetPosition position, Double separation) {
+        this.proposalId = position.getProposalId();
+        this.targetId = position.getTargetId();
+        this.sourceName = position.getSourceName();
+        this.ra = position.getRa();
+        this.dec = position.getDec();
+        this.separation = separation;
+    }
+}
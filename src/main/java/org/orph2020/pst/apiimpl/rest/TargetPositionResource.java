@@ -0,0 +1,88 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.ivoa.dm.proposal.management.ProposalCycle;
+import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.persistence.TargetPositionIndex;
+
+import java.util.List;
+
+/**
+ * Position searches over the targets of the submitted proposals of a cycle, using the target_position
+ * zone index. The index is rebuilt with the search index, see ProposalSearchResource#reindexSubmittedProposals.
+ * Only the TAC of the cycle (and observatory administrators) may search.
+ */
+@Path("proposalCycles/{cycleCode}/targetPositions")
+@Tag(name = "proposalCycles-targetPositions")
+@Produces(MediaType.APPLICATION_JSON)
+@RolesAllowed({"tac_admin", "tac_member"})
+public class TargetPositionResource extends ObjectResourceBase {
+
+    private static final double ARCSEC = 1.0 / 3600.0;
+    private static final double MAX_CONE_RADIUS = 36000.0;
+    private static final double MAX_DUPLICATE_RADIUS = 600.0;
+
+    @Inject
+    TargetPositionIndex targetPositionIndex;
+
+    @Inject
+    ProposalCyclesResource proposalCyclesResource;
+
+    // the searches reveal the targets of every submitted proposal, so are for the TAC of the cycle only
+    private void checkOnTAC(Long cycleCode) {
+        if (!proposalCyclesResource.isCurrentUserOnTAC(findObject(ProposalCycle.class, cycleCode))) {
+            throw new WebApplicationException(ProposalCyclesResource.notOnTACmsg, Response.Status.FORBIDDEN);
+        }
+    }
+
+    @GET
+    @Path("cone")
+    @Operation(summary = "find the targets of the submitted proposals of the given ProposalCycle within 'radius' arcseconds (default 60) of the position 'ra', 'dec' in degrees, nearest first")
+    public List<TargetPositionHit> coneSearch(@PathParam("cycleCode") Long cycleCode,
+                                              @RestQuery Double ra,
+                                              @RestQuery Double dec,
+                                              @RestQuery @DefaultValue("60") double radius)
+    {
+        if (ra == null || dec == null) {
+            throw new WebApplicationException("the position 'ra' and 'dec' is required", 400);
+        }
+        if (dec < -90.0 || dec > 90.0) {
+            throw new WebApplicationException("'dec' must be between -90 and 90 degrees", 400);
+        }
+        if (radius <= 0.0 || radius > MAX_CONE_RADIUS) {
+            throw new WebApplicationException(
+                    "'radius' must be more than 0 and at most " + MAX_CONE_RADIUS + " arcseconds", 400);
+        }
+
+        checkOnTAC(cycleCode);
+
+        return targetPositionIndex.cone(ra, dec, radius * ARCSEC, cycleCode).stream()
+                .map(m -> new TargetPositionHit(m.position(), m.separation() / ARCSEC))
+                .toList();
+    }
+
+    @GET
+    @Path("duplicates")
+    @Operation(summary = "find the pairs of targets of different submitted proposals of the given ProposalCycle that are within 'radius' arcseconds (default 10) of each other, closest first")
+    public List<DuplicateTargetPair> duplicateTargets(@PathParam("cycleCode") Long cycleCode,
+                                                      @RestQuery @DefaultValue("10") double radius)
+    {
+        if (radius <= 0.0 || radius > MAX_DUPLICATE_RADIUS) {
+            throw new WebApplicationException(
+                    "'radius' must be more than 0 and at most " + MAX_DUPLICATE_RADIUS + " arcseconds", 400);
+        }
+
+        checkOnTAC(cycleCode);
+
+        return targetPositionIndex.pairs(radius * ARCSEC, cycleCode).stream()
+                .map(p -> new DuplicateTargetPair(new TargetPositionHit(p.first(), null),
+                        new TargetPositionHit(p.second(), null), p.separation() / ARCSEC))
+                .toList();
+    }
+}
@@ -0,0 +1,57 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import jakarta.ws.rs.WebApplicationException;
+import org.ivoa.dm.proposal.prop.Target;
+
+import java.util.*;
+
+/**
+ * Receives the rows of a target list as they are read by the streaming methods of
+ * {@link TargetListFileReader} and {@link StarTableReader}. The readers only parse rows; whether the
+ * target names are unique is for the receiver to decide, see {@link #requireUniqueNames}.
+ */
+@FunctionalInterface
+interface TargetRowSink {
+
+    /**
+     * @param row the 1-based data row number
+     * @param target the target read from the row
+     */
+    void target(long row, Target target);
+
+    /**
+     * Checks that the names of a whole target list are unique, in the list and against the names already
+     * used in the proposal, for the operations that add a list all or nothing.
+     * @param targets the targets in row order
+     * @param existingNames the names of the targets already in the proposal
+     * @throws WebApplicationException (400) listing the rows with a name that is not unique
+     */
+    static void requireUniqueNames(List<Target> targets, Collection<String> existingNames)
+            throws WebApplicationException {
+        Set<String> existingNameSet = new HashSet<>(existingNames);
+        Set<String> tableTargetNames = new HashSet<>();
+        Map<Integer, String> nonUniqueNames = new LinkedHashMap<>();
+
+        for (int i = 0; i < targets.size(); i++) {
+            String name = targets.get(i).getSourceName();
+            if (existingNameSet.contains(name) || !tableTargetNames.add(name)) {
+                //the name is not unique, collect the offending name and row count to feed back to user
+                nonUniqueNames.put(i + 1, name);
+            }
+        }
+
+        if (!nonUniqueNames.isEmpty()) {
+            StringBuilder nonUniqueNamesBuilder = new StringBuilder();
+            nonUniqueNamesBuilder
+                    .append("Unable to store target list as there are non-unique names at the following rows:\n");
+
+            for (Map.Entry<Integer, String> entry : nonUniqueNames.entrySet()) {
+                nonUniqueNamesBuilder
+                        .append(entry.getKey()).append(": ")
+                        .append(entry.getValue()).append("\n");
+            }
+
+            throw new WebApplicationException(nonUniqueNamesBuilder.toString(), 400);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.orph2020.pst.apiimpl.rest;
 
 import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.management.Observatory;
@@ -10,6 +11,8 @@ import org.ivoa.dm.stc.coords.CoordSys;
 import org.ivoa.dm.stc.coords.CartesianPoint;
 import org.ivoa.dm.ivoa.RealQuantity;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.orph2020.pst.apiimpl.persistence.EvictsReferenceData;
+import org.orph2020.pst.apiimpl.persistence.ReferenceDataCache;
 import org.orph2020.pst.common.json.ObjectIdentifier;
 
 import jakarta.persistence.NoResultException;
@@ -23,8 +26,12 @@ import java.util.List;
 @Produces(MediaType.APPLICATION_JSON)
 @Path("observatories/{observatoryId}/telescopes")
 @Tag(name = "observatory-telescopes")
+@EvictsReferenceData
 public class TelescopeResource extends ObjectResourceBase{
 
+    @Inject
+    ReferenceDataCache referenceDataCache;
+
     private Telescope findTelescopeInList(List<Telescope> telescopes, long telescopeId) {
         return (Telescope) findObjectInList(telescopeId, telescopes);
     }
@@ -45,7 +52,8 @@ public class TelescopeResource extends ObjectResourceBase{
                                                             @RestQuery String name)
     {
         if (name == null) {
-            return getObjectIdentifiers("SELECT t._id,t.name FROM Observatory o Inner Join o.telescopes t WHERE o._id = "+observatoryId+" ORDER BY t.name");
+            return referenceDataCache.identifiers("observatory:" + observatoryId + ":telescopes",
+                    () -> getObjectIdentifiers("SELECT t._id,t.name FROM Observatory o Inner Join o.telescopes t WHERE o._id = "+observatoryId+" ORDER BY t.name"));
         } else {
             return getObjectIdentifiers("SELECT t._id,t.name FROM Observatory o Inner Join o.telescopes t WHERE o._id = "+observatoryId+" and t.name like '"+name+"' ORDER BY t.name");
         }
@@ -11,7 +11,6 @@ import jakarta.persistence.Query;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.Response;
-import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
 import org.ivoa.dm.proposal.management.ProposalCycle;
@@ -20,11 +19,13 @@ import org.ivoa.dm.proposal.prop.Investigator;
 import org.ivoa.dm.proposal.prop.InvestigatorKind;
 import org.ivoa.dm.proposal.prop.Person;
 import org.ivoa.dm.proposal.prop.RelatedProposal;
-import org.orph2020.pst.common.json.ObjectIdentifier;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.metrics.MailMetrics;
+import org.orph2020.pst.apiimpl.persistence.ProposalFetchProfile;
+import org.orph2020.pst.apiimpl.persistence.ProposalSearchIndex;
 import org.orph2020.pst.common.json.SubmittedProposalMailData;
 import org.orph2020.pst.common.json.SubmittedProposalSynopsis;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -37,11 +38,13 @@ public class UserProposalsSubmitted extends ObjectResourceBase {
     @Inject
     ProposalCyclesResource proposalCyclesResource;
     @Inject
-    SubjectMapResource subjectMapResource;
-    @Inject
-    JsonWebToken userInfo;
+    CurrentUser currentUser;
     @Inject
     ProposalDocumentStore proposalDocumentStore;
+    @Inject
+    MailMetrics mailMetrics;
+    @Inject
+    ProposalSearchIndex proposalSearchIndex;
 
     @CheckedTemplate
     static class Templates {
@@ -54,23 +57,14 @@ public class UserProposalsSubmitted extends ObjectResourceBase {
     @Operation(summary = "Get a list of synopsis for proposals submitted by the authenticated user optionally pass a cycle id, or include all cycles that have not passed")
     public List<SubmittedProposalSynopsis> getProposalsSubmitted(@QueryParam("cycleId") long cycleId)
     {
-        long personId = subjectMapResource.subjectMap(userInfo.getSubject()).getPerson().getId();
+        long personId = currentUser.personId();
         List<SubmittedProposalSynopsis> listOfSubmitted = new ArrayList<>();
 
-        String queryStr = "select distinct o._id,c._id "
-                + "from SubmittedProposal o, Investigator inv, Investigator i, ProposalCycle c "
-                + "where inv member of o.investigators and inv.person._id = " + personId + " "
-                + "and i member of o.investigators "
-                + "and o member of c.submittedProposals";
-
         //Filter either by observing cycle, or only new and current observing cycles.
-        if (cycleId > 0)
-            queryStr += " and c._id = " + cycleId;
-        else
-            queryStr += " and c.observationSessionEnd >= current_date()";
-
-        Query query = em.createQuery(queryStr);
-        List<ObjectIdentifier[]> results = query.getResultList();
+        Query query = em.createNamedQuery(QueryRegistry.SUBMITTED_PROPOSALS_FOR_PERSON);
+        query.setParameter("personId", personId);
+        query.setParameter("cycleId", cycleId);
+        List<Object[]> results = query.getResultList();
         for (Object[] r : results) {
             SubmittedProposal prop = findObject(SubmittedProposal.class, (long)r[0]);
             List<RelatedProposal> sourcePropList = prop.getRelatedProposals();
@@ -107,14 +101,15 @@ public class UserProposalsSubmitted extends ObjectResourceBase {
                                       @QueryParam("cycleId") long cycleCode)
         throws WebApplicationException
     {
-        Person currentUser = subjectMapResource.subjectMap(userInfo.getSubject()).getPerson();
-        SubmittedProposal submittedProposal = findObject(SubmittedProposal.class, submittedProposalId);
+        Person currentPerson = currentUser.person();
+        SubmittedProposal submittedProposal = fetchProfile(findObject(SubmittedProposal.class, submittedProposalId),
+                ProposalFetchProfile.SUMMARY);
 
         //Check this person has rights to withdraw this submitted proposal
         AtomicBoolean foundPI = new AtomicBoolean(false);
         submittedProposal.getInvestigators().forEach(investigator -> {
             if(investigator.getType() == InvestigatorKind.PI
-                    && investigator.getPerson() == currentUser)
+                    && investigator.getPerson() == currentPerson)
                 foundPI.set(true);
         });
 
@@ -131,13 +126,11 @@ public class UserProposalsSubmitted extends ObjectResourceBase {
         //Withdraw from observing cycle
         ProposalCycle cycle = findObject(ProposalCycle.class, cycleCode);
         cycle.removeFromSubmittedProposals(submittedProposal);
+        proposalSearchIndex.reindex(submittedProposalId);
 
-        //remove the document store for the submitted proposal (copied from the original proposal on submission)
-        try {
-            proposalDocumentStore.removeStorePath(String.valueOf(submittedProposalId));
-        } catch (IOException e) {
-            throw new WebApplicationException(e);
-        }
+        //remove the document store for the submitted proposal (copied from the original proposal on submission),
+        // once the withdrawal has been committed
+        proposalDocumentStore.removeStorePathAfterCommit(String.valueOf(submittedProposalId));
 
 
         //gather data to send in an email confirming the withdrawal
@@ -151,12 +144,12 @@ public class UserProposalsSubmitted extends ObjectResourceBase {
             recipientEmails.add(investigator.getPerson().getEMail());
         }
 
-       Uni<Void> mail = Templates.confirmWithdrawal(mailData)
+       Uni<Void> mail = mailMetrics.counted("confirmWithdrawal", Templates.confirmWithdrawal(mailData)
              .to(recipientEmails.toArray(new String[0]))
              .subject("Confirmation of withdrawal of proposal '"
                    + submittedProposal.getTitle() + "' from observation cycle '"
                    + cycle.getTitle() + "'")
-             .send();
+             .send());
        mail.subscribe().with(
              item -> Log.info("withdrawal mail sent"),
              error -> Log.error("withdrawal mail failed", error)
@@ -0,0 +1,41 @@
+package org.orph2020.pst.apiimpl.validation;
+
+import org.ivoa.dm.proposal.prop.TextFormats;
+
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Everything the validation rules know about a proposal, loaded by a single projection query
+ * (see {@link org.orph2020.pst.apiimpl.entities.QueryRegistry#VALIDATION_FACTS}) plus a check for the
+ * compiled justification PDF in the document store.
+ * @param proposalId the proposal
+ * @param title its title
+ * @param targetCount the number of targets
+ * @param technicalGoalCount the number of technical goals
+ * @param observationCount the number of observations
+ * @param scientificFormat the format of the scientific justification, null if there is none
+ * @param scientificText the text of the scientific justification, null if there is none
+ * @param technicalFormat the format of the technical justification, null if there is none
+ * @param technicalText the text of the technical justification, null if there is none
+ * @param justificationPdfExists whether the justifications have been compiled to PDF
+ * @param submissionDeadline the deadline of the cycle validated against, null if no cycle was given
+ * @param observatory the name of the observatory of the cycle, null if no cycle was given
+ * @param instruments the names of the instruments offered in the cycle's observing modes
+ */
+public record ProposalFacts(
+        Long proposalId,
+        String title,
+        long targetCount,
+        long technicalGoalCount,
+        long observationCount,
+        TextFormats scientificFormat,
+        String scientificText,
+        TextFormats technicalFormat,
+        String technicalText,
+        boolean justificationPdfExists,
+        Date submissionDeadline,
+        String observatory,
+        Set<String> instruments
+) {
+}
@@ -0,0 +1,9 @@
+package org.orph2020.pst.apiimpl.validation;
+
+/**
+ * How serious a {@link ValidationMessage} is - errors prevent submission, warnings do not.
+ */
+public enum Severity {
+    ERROR,
+    WARNING
+}
@@ -0,0 +1,178 @@
+package org.orph2020.pst.apiimpl.validation;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.ivoa.dm.proposal.prop.TextFormats;
+
+import java.util.Date;
+
+/**
+ * The rules that apply to every proposal, whatever the observatory.
+ */
+public final class StandardRules {
+
+    private StandardRules() {}
+
+    @ApplicationScoped
+    public static class TargetsDefined implements ValidationRule {
+        @Override
+        public String id() {
+            return "targets-defined";
+        }
+
+        @Override
+        public int order() {
+            return 10;
+        }
+
+        @Override
+        public Date check(ProposalFacts facts, Date now, ValidationReport report) {
+            if (facts.targetCount() == 0) {
+                error(report, "No targets defined.");
+            }
+            return null;
+        }
+    }
+
+    @ApplicationScoped
+    public static class TechnicalGoalsDefined implements ValidationRule {
+        @Override
+        public String id() {
+            return "technical-goals-defined";
+        }
+
+        @Override
+        public int order() {
+            return 20;
+        }
+
+        @Override
+        public Date check(ProposalFacts facts, Date now, ValidationReport report) {
+            if (facts.technicalGoalCount() == 0) {
+                error(report, "No technical goals defined.");
+            }
+            return null;
+        }
+    }
+
+    @ApplicationScoped
+    public static class ObservationsDefined implements ValidationRule {
+        @Override
+        public String id() {
+            return "observations-defined";
+        }
+
+        @Override
+        public int order() {
+            return 30;
+        }
+
+        @Override
+        public Date check(ProposalFacts facts, Date now, ValidationReport report) {
+            if (facts.observationCount() == 0) {
+                error(report, "No observations defined.");
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Only checked once there are observations, as before the rules were separated.
+     */
+    @ApplicationScoped
+    public static class SubmissionDeadline implements ValidationRule {
+        @Override
+        public String id() {
+            return "submission-deadline";
+        }
+
+        @Override
+        public int order() {
+            return 40;
+        }
+
+        @Override
+        public Date check(ProposalFacts facts, Date now, ValidationReport report) {
+            if (facts.observationCount() == 0 || facts.submissionDeadline() == null) {
+                return null;
+            }
+            if (now.after(facts.submissionDeadline())) {
+                error(report, "The submission deadline has passed.");
+                return null;
+            }
+            return facts.submissionDeadline();
+        }
+    }
+
+    /**
+     * The justifications must be compiled to PDF, which needs both to exist and at least one to be LaTeX.
+     */
+    @ApplicationScoped
+    public static class JustificationPdf implements ValidationRule {
+        @Override
+        public String id() {
+            return "justification-pdf";
+        }
+
+        @Override
+        public int order() {
+            return 50;
+        }
+
+        @Override
+        public Date check(ProposalFacts facts, Date now, ValidationReport report) {
+            if (!isCompiled(facts)) {
+                error(report, "Justification PDF has not been generated.");
+            }
+            return null;
+        }
+
+        static boolean isCompiled(ProposalFacts facts) {
+            return facts.scientificFormat() != null && facts.technicalFormat() != null
+                    && (facts.scientificFormat() == TextFormats.LATEX || facts.technicalFormat() == TextFormats.LATEX)
+                    && facts.justificationPdfExists();
+        }
+    }
+
+    /**
+     * Checks the length of the justification texts, once they have been compiled.
+     */
+    @ApplicationScoped
+    public static class JustificationLength implements ValidationRule {
+
+        @ConfigProperty(name = "pst.validation.justification-warning-length", defaultValue = "256")
+        int warningLength;
+
+        @Override
+        public String id() {
+            return "justification-length";
+        }
+
+        @Override
+        public int order() {
+            return 60;
+        }
+
+        @Override
+        public Date check(ProposalFacts facts, Date now, ValidationReport report) {
+            if (!JustificationPdf.isCompiled(facts)) {
+                return null;
+            }
+            check("scientific", facts.scientificText(), report);
+            check("technical", facts.technicalText(), report);
+            return null;
+        }
+
+        private void check(String which, String text, ValidationReport report) {
+            int length = text == null ? 0 : text.length();
+            //reminder: cannot save an empty string in justification text so an "empty" justification has 1 character
+            if (length < 2) {
+                error(report, "No " + which + " justification text written.");
+            } else if (length < warningLength) {
+                warning(report, Character.toUpperCase(which.charAt(0)) + which.substring(1)
+                        + " justification text has " + length + " characters only. If this is correct please "
+                        + "ignore this warning else check your " + which + " justification.");
+            }
+        }
+    }
+}
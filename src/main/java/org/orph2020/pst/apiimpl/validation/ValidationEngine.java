@@ -0,0 +1,159 @@
+package org.orph2020.pst.apiimpl.validation;
+
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.ws.rs.WebApplicationException;
+import org.eclipse.microprofile.context.ManagedExecutor;
+import org.ivoa.dm.proposal.prop.TextFormats;
+import org.orph2020.pst.apiimpl.entities.QueryRegistry;
+import org.orph2020.pst.apiimpl.entities.ResourceVersion;
+import org.orph2020.pst.apiimpl.persistence.ResourceVersions;
+import org.orph2020.pst.apiimpl.persistence.VersionedResource;
+import org.orph2020.pst.apiimpl.rest.ProposalDocumentStore;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the {@link ValidationRule}s over proposals.
+ * <p>
+ * The report of a single proposal is cached, keyed by the versions of the proposal and the cycle (see
+ * {@link ResourceVersions}), so it is recomputed only after either has changed, or once it reaches its
+ * {@link ValidationReport#validUntil} time.
+ */
+@ApplicationScoped
+public class ValidationEngine {
+
+    // the compiled justifications, see JustificationsResource.jobName
+    static final String JUSTIFICATION_PDF = "compiledJustification.pdf";
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    Instance<ValidationRule> ruleBeans;
+
+    @Inject
+    ResourceVersions resourceVersions;
+
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    @Inject
+    ManagedExecutor executor;
+
+    @Inject
+    @CacheName("proposal-validation")
+    Cache cache;
+
+    private List<ValidationRule> rules;
+
+    @PostConstruct
+    void init() {
+        List<ValidationRule> sorted = new ArrayList<>();
+        ruleBeans.forEach(sorted::add);
+        sorted.sort(Comparator.comparingInt(ValidationRule::order).thenComparing(ValidationRule::id));
+        rules = List.copyOf(sorted);
+    }
+
+    /**
+     * Validate a proposal of the given person.
+     * @param proposalId the proposal
+     * @param cycleId the cycle to validate against, zero for none
+     * @param personId the person asking, who must be an investigator of the proposal
+     * @return the report
+     * @throws WebApplicationException (404) if there is no such proposal of the person
+     */
+    public ValidationReport validate(Long proposalId, long cycleId, Long personId)
+            throws WebApplicationException
+    {
+        String key = proposalId + ":" + version(VersionedResource.PROPOSAL, proposalId)
+                + ":" + cycleId + ":" + (cycleId > 0 ? version(VersionedResource.CYCLE, cycleId) : 0)
+                + ":" + personId;
+
+        ValidationReport report = cache.<String, ValidationReport>get(key, k -> load(proposalId, cycleId, personId))
+                .await().indefinitely();
+        if (report.validUntil != null && !new Date().before(report.validUntil)) {
+            cache.invalidate(key).await().indefinitely();
+            report = cache.<String, ValidationReport>get(key, k -> load(proposalId, cycleId, personId))
+                    .await().indefinitely();
+        }
+        return report;
+    }
+
+    /**
+     * Validate every proposal submitted to the cycle against it. The facts of all the proposals are
+     * loaded by one query, the rules are then run for the proposals in parallel.
+     * @param cycleId the cycle
+     * @return the reports, in proposal id order
+     */
+    public List<ValidationReport> validateCycle(Long cycleId) {
+        List<Object[]> rows = em.createNamedQuery(QueryRegistry.CYCLE_VALIDATION_FACTS, Object[].class)
+                .setParameter("cycleId", cycleId)
+                .getResultList();
+
+        Date now = new Date();
+        List<CompletableFuture<ValidationReport>> reports = rows.stream()
+                .map(row -> executor.supplyAsync(() -> evaluate(toFacts(row), now)))
+                .toList();
+
+        return reports.stream().map(CompletableFuture::join).toList();
+    }
+
+    private ValidationReport load(Long proposalId, long cycleId, Long personId) {
+        List<Object[]> rows = em.createNamedQuery(QueryRegistry.VALIDATION_FACTS, Object[].class)
+                .setParameter("proposalId", proposalId)
+                .setParameter("personId", personId)
+                .setParameter("cycleId", cycleId)
+                .getResultList();
+        if (rows.isEmpty()) {
+            throw new WebApplicationException("ObservingProposal with id: " + proposalId + " not found", 404);
+        }
+        return evaluate(toFacts(rows.get(0)), new Date());
+    }
+
+    private ValidationReport evaluate(ProposalFacts facts, Date now) {
+        ValidationReport report = new ValidationReport(facts.proposalId(), facts.title());
+        for (ValidationRule rule : rules) {
+            if (rule.appliesTo(facts)) {
+                Date changesAt = rule.check(facts, now, report);
+                if (changesAt != null && (report.validUntil == null || changesAt.before(report.validUntil))) {
+                    report.validUntil = changesAt;
+                }
+            }
+        }
+        report.valid = report.messages(Severity.ERROR).isEmpty();
+        return report;
+    }
+
+    private ProposalFacts toFacts(Object[] row) {
+        Long proposalId = (Long) row[0];
+        String instruments = (String) row[11];
+        return new ProposalFacts(
+                proposalId,
+                (String) row[1],
+                ((Number) row[2]).longValue(),
+                ((Number) row[3]).longValue(),
+                ((Number) row[4]).longValue(),
+                (TextFormats) row[5],
+                (String) row[6],
+                (TextFormats) row[7],
+                (String) row[8],
+                proposalDocumentStore.fetchFile(
+                        proposalDocumentStore.getSupportingDocumentsPath(proposalId) + JUSTIFICATION_PDF).exists(),
+                (Date) row[9],
+                (String) row[10],
+                instruments == null ? Set.of() : Set.copyOf(Arrays.asList(instruments.split("\\|")))
+        );
+    }
+
+    private long version(VersionedResource kind, Long id) {
+        ResourceVersion version = resourceVersions.current(kind, id);
+        return version == null ? 0 : version.getVersion();
+    }
+}
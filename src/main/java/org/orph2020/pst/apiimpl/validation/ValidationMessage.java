@@ -0,0 +1,24 @@
+package org.orph2020.pst.apiimpl.validation;
+
+/**
+ * One finding of a {@link ValidationRule}.
+ */
+public class ValidationMessage {
+
+    /**
+     * the id of the rule that produced the message
+     */
+    public String ruleId;
+
+    public Severity severity;
+
+    public String message;
+
+    public ValidationMessage() {}
+
+    public ValidationMessage(String ruleId, Severity severity, String message) {
+        this.ruleId = ruleId;
+        this.severity = severity;
+        this.message = message;
+    }
+}
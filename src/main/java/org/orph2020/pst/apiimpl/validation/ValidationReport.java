@@ -0,0 +1,42 @@
+package org.orph2020.pst.apiimpl.validation;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The result of validating a proposal, optionally against a proposal cycle.
+ */
+public class ValidationReport {
+
+    public Long proposalId;
+
+    public String title;
+
+    /**
+     * true if there are no error messages
+     */
+    public boolean valid;
+
+    /**
+     * the messages in the order of the rules
+     */
+    public List<ValidationMessage> messages = new ArrayList<>();
+
+    /**
+     * the report may change at this time even if the proposal does not, e.g. at the submission
+     * deadline of the cycle; null if it only changes with the proposal
+     */
+    public Date validUntil;
+
+    public ValidationReport() {}
+
+    public ValidationReport(Long proposalId, String title) {
+        this.proposalId = proposalId;
+        this.title = title;
+    }
+
+    public List<ValidationMessage> messages(Severity severity) {
+        return messages.stream().filter(m -> m.severity == severity).toList();
+    }
+}
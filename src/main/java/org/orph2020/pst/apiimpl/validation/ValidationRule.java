@@ -0,0 +1,64 @@
+package org.orph2020.pst.apiimpl.validation;
+
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * A check on a proposal. Rules are CDI beans, all of them are found by the {@link ValidationEngine}
+ * and run in the order of {@link #order()}.
+ * <p>
+ * A rule for a particular observatory or instrument names it in {@link #observatories()} or
+ * {@link #instruments()}: it then only runs when the proposal is validated against a cycle of that
+ * observatory, or a cycle offering that instrument.
+ */
+public interface ValidationRule {
+
+    /**
+     * @return a stable identifier of the rule, reported with its messages
+     */
+    String id();
+
+    /**
+     * @return the position of the rule in the report, lower first
+     */
+    default int order() {
+        return 100;
+    }
+
+    /**
+     * @return the names of the observatories this rule is for, empty for all
+     */
+    default Set<String> observatories() {
+        return Set.of();
+    }
+
+    /**
+     * @return the names of the instruments this rule is for, empty for all
+     */
+    default Set<String> instruments() {
+        return Set.of();
+    }
+
+    /**
+     * Check the proposal, adding any messages to the report.
+     * @param facts what is known about the proposal
+     * @param now the time of the validation, rules must not read the clock themselves
+     * @param report the report to add to
+     * @return the time at which the result of this rule would change without the proposal changing,
+     * or null
+     */
+    Date check(ProposalFacts facts, Date now, ValidationReport report);
+
+    default boolean appliesTo(ProposalFacts facts) {
+        return (observatories().isEmpty() || observatories().contains(facts.observatory()))
+                && (instruments().isEmpty() || instruments().stream().anyMatch(facts.instruments()::contains));
+    }
+
+    default void error(ValidationReport report, String message) {
+        report.messages.add(new ValidationMessage(id(), Severity.ERROR, message));
+    }
+
+    default void warning(ValidationReport report, String message) {
+        report.messages.add(new ValidationMessage(id(), Severity.WARNING, message));
+    }
+}
@@ -0,0 +1,8 @@
+/**
+ * Rule-based validation of proposals. The facts a rule may look at are loaded in a single projection
+ * query ({@link org.orph2020.pst.apiimpl.validation.ProposalFacts}), the rules are CDI beans implementing
+ * {@link org.orph2020.pst.apiimpl.validation.ValidationRule}, optionally restricted to an observatory or
+ * instrument, and the reports are cached per proposal and cycle version by
+ * {@link org.orph2020.pst.apiimpl.validation.ValidationEngine}.
+ */
+package org.orph2020.pst.apiimpl.validation;
@@ -0,0 +1,87 @@
+package org.orph2020.pst.apiimpl.jobs;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.orph2020.pst.apiimpl.entities.Job;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The queue operations, on INGEST_TARGET_LIST jobs as there is no handler for them, so the JobRunner of
+ * the test instance never claims them itself.
+ */
+@QuarkusTest
+public class JobQueueTest {
+
+    private static final String NODE = "job-queue-test";
+
+    @Inject
+    JobQueue jobQueue;
+
+    private Job find(Long jobId) {
+        return QuarkusTransaction.requiringNew().call(() -> jobQueue.find(jobId));
+    }
+
+    @Test
+    void testSubmitClaimCancel() {
+        Job job = jobQueue.submit(JobType.INGEST_TARGET_LIST, -1L, Map.of("name", "value"),
+                "tester", Set.of("a", "b"));
+        assertEquals(JobStatus.QUEUED, find(job.getId()).getStatus());
+
+        Optional<Long> claimed = jobQueue.claim(JobType.INGEST_TARGET_LIST, Integer.MAX_VALUE, NODE);
+        assertEquals(Optional.of(job.getId()), claimed);
+        Job running = find(job.getId());
+        assertEquals(JobStatus.RUNNING, running.getStatus());
+        assertEquals(NODE, running.getClaimedBy());
+        assertEquals(Map.of("name", "value"), jobQueue.parameters(running));
+
+        // nothing else queued
+        assertTrue(jobQueue.claim(JobType.INGEST_TARGET_LIST, Integer.MAX_VALUE, NODE).isEmpty());
+
+        // a running job is only asked to stop
+        assertFalse(jobQueue.isCancelRequested(job.getId()));
+        jobQueue.cancel(job.getId());
+        assertEquals(JobStatus.RUNNING, find(job.getId()).getStatus());
+        assertTrue(jobQueue.isCancelRequested(job.getId()));
+
+        jobQueue.fail(job.getId(), JobStatus.CANCELLED, "cancelled");
+        assertEquals(JobStatus.CANCELLED, find(job.getId()).getStatus());
+    }
+
+    @Test
+    void testCancelQueued() {
+        Job job = jobQueue.submit(JobType.INGEST_TARGET_LIST, -2L, null, "tester", Set.of());
+        jobQueue.cancel(job.getId());
+
+        Job cancelled = find(job.getId());
+        assertEquals(JobStatus.CANCELLED, cancelled.getStatus());
+        assertNotNull(cancelled.getFinished());
+        assertTrue(jobQueue.claim(JobType.INGEST_TARGET_LIST, Integer.MAX_VALUE, NODE).isEmpty());
+    }
+
+    @Test
+    void testClaimLimit() {
+        Job job = jobQueue.submit(JobType.INGEST_TARGET_LIST, -3L, null, "tester", Set.of());
+        assertTrue(jobQueue.claim(JobType.INGEST_TARGET_LIST, 0, NODE).isEmpty());
+        assertEquals(JobStatus.QUEUED, find(job.getId()).getStatus());
+        jobQueue.cancel(job.getId());
+    }
+
+    @Test
+    void testStartOncePerSubject() {
+        Optional<Long> first = jobQueue.start(JobType.INGEST_TARGET_LIST, -4L, "tester", Set.of(), NODE);
+        assertTrue(first.isPresent());
+        assertTrue(jobQueue.start(JobType.INGEST_TARGET_LIST, -4L, "tester", Set.of(), NODE).isEmpty());
+
+        jobQueue.succeed(first.get(), JobOutcome.json("{}"));
+        assertEquals(JobStatus.SUCCEEDED, find(first.get()).getStatus());
+        assertEquals(first.get(), QuarkusTransaction.requiringNew().call(
+                () -> jobQueue.latest(JobType.INGEST_TARGET_LIST, -4L).getId()));
+    }
+}
@@ -0,0 +1,118 @@
+package org.orph2020.pst.apiimpl.persistence;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.TestTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.orph2020.pst.apiimpl.entities.TargetPosition;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Cone and duplicate searches over positions written directly to the index for the submitted proposals of
+ * a cycle of the test data, each test rolled back. The target ids are negative so as not to clash with the
+ * positions of real targets, and only these positions are looked at in the results.
+ */
+@QuarkusTest
+public class TargetPositionIndexTest {
+
+    private static final double ARCSEC = 1.0 / 3600.0;
+    // not a submitted proposal
+    private static final long OTHER_PROPOSAL = -100L;
+
+    @Inject
+    EntityManager em;
+
+    @Inject
+    TargetPositionIndex index;
+
+    private long cycleId;
+    private List<Long> submitted;
+
+    @BeforeEach
+    void setup() {
+        List<Object[]> rows = QuarkusTransaction.requiringNew().call(() -> em.createQuery(
+                        "select c._id, s._id from ProposalCycle c join c.submittedProposals s order by c._id, s._id",
+                        Object[].class)
+                .getResultList());
+        assumeTrue(!rows.isEmpty(), "no submitted proposals in the test data");
+        cycleId = (Long) rows.get(0)[0];
+        submitted = rows.stream().filter(r -> r[0].equals(cycleId)).map(r -> (Long) r[1]).toList();
+    }
+
+    private void position(long targetId, long proposalId, double ra, double dec) {
+        em.persist(new TargetPosition(targetId, proposalId, "t" + targetId, ra, dec));
+    }
+
+    private static List<Long> ours(List<TargetPositionIndex.Match> matches) {
+        return matches.stream().map(m -> m.position().getTargetId()).filter(id -> id < 0).toList();
+    }
+
+    @Test
+    @TestTransaction
+    void testCone() {
+        long proposal = submitted.get(0);
+        position(-1, proposal, 10.0, 20.0);
+        position(-2, proposal, 10.0, 20.0 + 30 * ARCSEC);
+        position(-3, proposal, 10.0, 20.0 + 90 * ARCSEC);
+        position(-4, OTHER_PROPOSAL, 10.0, 20.0);
+        em.flush();
+
+        List<TargetPositionIndex.Match> matches = index.cone(10.0, 20.0, 60 * ARCSEC, cycleId);
+        assertEquals(List.of(-1L, -2L), ours(matches));
+        assertEquals(30.0, matches.stream().filter(m -> m.position().getTargetId() == -2L)
+                .findFirst().orElseThrow().separation() / ARCSEC, 1e-6);
+    }
+
+    @Test
+    @TestTransaction
+    void testConeAcrossZeroRa() {
+        long proposal = submitted.get(0);
+        position(-1, proposal, 359.99, 0.0);
+        position(-2, proposal, 0.01, 0.0);
+        position(-3, proposal, 180.0, 0.0);
+        em.flush();
+
+        // the range of right ascension wraps around 0
+        assertEquals(2, ours(index.cone(0.0, 0.0, 0.02, cycleId)).size());
+        assertEquals(2, ours(index.cone(360.0, 0.0, 0.02, cycleId)).size());
+    }
+
+    @Test
+    @TestTransaction
+    void testPairs() {
+        assumeTrue(submitted.size() >= 2, "a cycle with two submitted proposals is needed");
+        long first = submitted.get(0);
+        long second = submitted.get(1);
+        position(-1, first, 150.0, -30.0);
+        position(-2, second, 150.0, -30.0 + 5 * ARCSEC);
+        // same proposal, not a pair
+        position(-3, first, 150.0, -30.0 + 2 * ARCSEC);
+        // not submitted
+        position(-4, OTHER_PROPOSAL, 150.0, -30.0 + ARCSEC);
+        em.flush();
+
+        List<TargetPositionIndex.Pair> pairs = index.pairs(10 * ARCSEC, cycleId).stream()
+                .filter(p -> p.first().getTargetId() < 0 && p.second().getTargetId() < 0)
+                .toList();
+        assertEquals(2, pairs.size());
+        for (TargetPositionIndex.Pair pair : pairs) {
+            assertNotEquals(pair.first().getProposalId(), pair.second().getProposalId());
+            assertTrue(pair.separation() <= 10 * ARCSEC);
+        }
+        assertEquals(3.0, pairs.get(0).separation() / ARCSEC, 1e-6);
+    }
+
+    @Test
+    void testRaHalfWidth() {
+        assertEquals(1.0, TargetPositionIndex.raHalfWidth(0.0, 1.0), 1e-9);
+        assertEquals(2.0, TargetPositionIndex.raHalfWidth(60.0, 1.0), 0.01);
+        assertEquals(180.0, TargetPositionIndex.raHalfWidth(89.5, 1.0));
+    }
+}
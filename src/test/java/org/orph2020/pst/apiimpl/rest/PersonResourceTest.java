@@ -7,8 +7,15 @@ import io.quarkus.test.security.oidc.OidcSecurity;
 import io.quarkus.test.security.oidc.UserInfo;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 @TestSecurity(user="John Flamsteed", roles = "default-roles-orppst")
@@ -44,6 +51,39 @@ public class PersonResourceTest {
             );
    }
 
+    @Test
+    void testPagePeople() {
+        int total = given()
+                .when()
+                .param("pageSize", 2)
+                .param("includeTotal", true)
+                .get("people/page")
+                .then()
+                .statusCode(200)
+                .body(
+                        "items.size()", lessThanOrEqualTo(2)
+                ).extract().jsonPath().getInt("total");
+
+        //walk all the pages, each person is seen exactly once
+        Set<Integer> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            var page = given()
+                    .when()
+                    .param("pageSize", 2)
+                    .queryParams(cursor == null ? Map.of() : Map.of("cursor", cursor))
+                    .get("people/page")
+                    .then()
+                    .statusCode(200)
+                    .extract().jsonPath();
+            List<Integer> ids = page.getList("items.dbid", Integer.class);
+            ids.forEach(id -> assertTrue(seen.add(id)));
+            cursor = page.getString("nextCursor");
+        } while (cursor != null);
+
+        assertEquals(total, seen.size());
+    }
+
     @Test
     void testGetPerson()  {
 
@@ -18,10 +18,13 @@ import org.junit.jupiter.api.Test;
 import jakarta.inject.Inject;
 
 import java.util.Date;
+import java.util.List;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
 import static io.restassured.http.ContentType.JSON;
+import static io.restassured.http.ContentType.TEXT;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
 
 @QuarkusTest
 @TestSecurity(user="tacchair", roles = {"default-roles-orppst", "tac_admin", "obs_administration"})
@@ -184,4 +187,94 @@ public class ProposalCycleResourceTest {
               .body("$.size()", equalTo(sourceModeCount));
    }
 
+   @Test
+   void testConditionalGetCycleDetails() {
+      long cycleId = given()
+            .when()
+            .get("proposalCycles")
+            .then()
+            .statusCode(200)
+            .body("$.size()", greaterThanOrEqualTo(1))
+            .extract().jsonPath().getLong("[0].dbid");
+
+      // rewrite the title as it is, so the cycle has a version and so a Last-Modified date
+      String title = given()
+            .when()
+            .get("proposalCycles/" + cycleId + "/details")
+            .then()
+            .statusCode(200)
+            .extract().jsonPath().getString("title");
+      replaceTitle(cycleId, title);
+
+      var response = given()
+            .when()
+            .get("proposalCycles/" + cycleId + "/details")
+            .then()
+            .statusCode(200)
+            .header("ETag", notNullValue())
+            .header("Last-Modified", notNullValue())
+            .extract();
+      String eTag = response.header("ETag");
+
+      given()
+            .header("If-None-Match", eTag)
+            .when()
+            .get("proposalCycles/" + cycleId + "/details")
+            .then()
+            .statusCode(304)
+            .header("ETag", eTag);
+      given()
+            .header("If-Modified-Since", response.header("Last-Modified"))
+            .when()
+            .get("proposalCycles/" + cycleId + "/details")
+            .then()
+            .statusCode(304);
+
+      // a write to the cycle changes its version
+      replaceTitle(cycleId, title);
+      given()
+            .header("If-None-Match", eTag)
+            .when()
+            .get("proposalCycles/" + cycleId + "/details")
+            .then()
+            .statusCode(200)
+            .header("ETag", not(equalTo(eTag)));
+   }
+
+   private void replaceTitle(long cycleId, String title) {
+      given()
+            .body(title)
+            .contentType(TEXT)
+            .when()
+            .put("proposalCycles/" + cycleId + "/title")
+            .then()
+            .statusCode(200);
+   }
+
+   @Test
+   void testNoConditionalGetForNonInvestigator() {
+      long cycleId = given()
+            .when()
+            .get("proposalCycles")
+            .then()
+            .statusCode(200)
+            .extract().jsonPath().getLong("[0].dbid");
+      List<Long> submitted = given()
+            .when()
+            .get("proposalCycles/" + cycleId + "/submittedProposals")
+            .then()
+            .statusCode(200)
+            .extract().jsonPath().getList("dbid", Long.class);
+      assumeFalse(submitted.isEmpty());
+
+      // the TAC chair is not an investigator, so even a wildcard must not be answered with a 304
+      given()
+            .header("If-None-Match", "*")
+            .when()
+            .get("proposals/" + submitted.get(0))
+            .then()
+            .statusCode(not(304))
+            .header("ETag", nullValue());
+   }
+
 }
@@ -0,0 +1,76 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Copy-on-write clones of a store (document-store.copy-on-write, on by default) share the supporting
+ * documents of the source until they are replaced - replacing one in the clone must not change the source,
+ * which may be a submitted snapshot. The stores have negative ids so as not to clash with real proposals.
+ */
+@QuarkusTest
+public class ProposalDocumentStoreTest {
+
+    private static final Long SOURCE = -1001L;
+    private static final Long CLONE = -1002L;
+    private static final String DOCUMENT = "document.txt";
+
+    @Inject
+    ProposalDocumentStore proposalDocumentStore;
+
+    private String sourceDocument;
+    private String cloneDocument;
+
+    @BeforeEach
+    void setup() throws IOException {
+        proposalDocumentStore.createStorePaths(SOURCE);
+        sourceDocument = proposalDocumentStore.getSupportingDocumentsPath(SOURCE) + DOCUMENT;
+        cloneDocument = proposalDocumentStore.getSupportingDocumentsPath(CLONE) + DOCUMENT;
+        proposalDocumentStore.writeStringToFile("original", sourceDocument);
+
+        proposalDocumentStore.copyStore(SOURCE.toString(), CLONE.toString(), List.of());
+        assumeTrue(Files.isSameFile(path(sourceDocument), path(cloneDocument)),
+                "the document was copied, not linked - copy-on-write is off or the filesystem has no hard links");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        proposalDocumentStore.removeStorePath(SOURCE.toString());
+        proposalDocumentStore.removeStorePath(CLONE.toString());
+    }
+
+    private Path path(String document) {
+        return proposalDocumentStore.fetchFile(document).toPath();
+    }
+
+    @Test
+    void testMoveFileIntoClone() throws IOException {
+        File upload = Files.createTempFile("upload", ".txt").toFile();
+        Files.writeString(upload.toPath(), "replaced");
+
+        proposalDocumentStore.moveFile(upload, cloneDocument);
+
+        assertEquals("replaced", Files.readString(path(cloneDocument)));
+        assertEquals("original", Files.readString(path(sourceDocument)));
+    }
+
+    @Test
+    void testWriteStringToFileInClone() throws IOException {
+        proposalDocumentStore.writeStringToFile("rewritten", cloneDocument);
+
+        assertEquals("rewritten", Files.readString(path(cloneDocument)));
+        assertEquals("original", Files.readString(path(sourceDocument)));
+    }
+}
@@ -169,6 +169,52 @@ public class ProposalExportImportTest {
                 .statusCode(400);
     }
 
+    @Test
+    void testBulkImportReportsEachDocument() throws JsonProcessingException {
+        ObservingProposal exportedProposal =
+                given()
+                        .when()
+                        .get("proposals/" + proposalId)
+                        .then()
+                        .statusCode(200)
+                        .extract().as(ObservingProposal.class, raObjectMapper);
+
+        exportedProposal.setTitle("Bulk import");
+        String good = mapper.writeValueAsString(exportedProposal);
+
+        // a new person without a home institute fails only its own document, and is not created
+        Investigator noInstitute = getInvestigator();
+        noInstitute.getPerson().setEMail("no.institute@unreal.not.email");
+        noInstitute.getPerson().setFullName("Person Without Institute");
+        noInstitute.getPerson().setHomeInstitute(null);
+        exportedProposal.addToInvestigators(noInstitute);
+        String bad = mapper.writeValueAsString(exportedProposal);
+
+        given()
+                .body("[" + good + "," + bad + "]")
+                .header("Content-Type", MediaType.APPLICATION_JSON)
+                .when()
+                .post("proposals/importBulk")
+                .then()
+                .statusCode(200)
+                .body(
+                        "[0].proposalId", notNullValue(),
+                        "[0].error", nullValue(),
+                        "[1].proposalId", nullValue(),
+                        "[1].error", containsString("home institute")
+                );
+
+        given()
+                .when()
+                .param("name", "Person Without Institute")
+                .get("people")
+                .then()
+                .statusCode(200)
+                .body(
+                        "$.size()", equalTo(0)
+                );
+    }
+
     private static Investigator getInvestigator() {
         Organization newOrg = new Organization();
         newOrg.setName("New Org");
@@ -17,11 +17,25 @@ import org.junit.jupiter.api.Test;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.core.MediaType;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static io.restassured.RestAssured.given;
 import static io.restassured.http.ContentType.JSON;
 import static io.restassured.http.ContentType.TEXT;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 @TestSecurity(user="John Flamsteed", roles = "default-roles-orppst")
@@ -116,6 +130,81 @@ public class ProposalResourceTest {
 
     }
 
+   private io.restassured.path.json.JsonPath proposalPage(Map<String, ?> params) {
+      return given()
+            .when()
+            .queryParams(params)
+            .get("proposals/page")
+            .then()
+            .statusCode(200)
+            .extract().jsonPath();
+   }
+
+   @Test
+   void testPageProposalFilters() {
+      var byTitle = proposalPage(Map.of("title", "Observing the stars"));
+      assertEquals(List.of("Observing the stars"), byTitle.getList("items.title", String.class));
+      assertNull(byTitle.getString("total"));
+      ProposalKind kind = ProposalKind.valueOf(byTitle.getString("items[0].kind"));
+
+      // the kind filter keeps the proposal only for its own kind
+      assertThat(proposalPage(Map.of("title", "Observing the stars", "kind", kind)).getList("items.code"),
+            hasSize(1));
+      for (ProposalKind other : ProposalKind.values()) {
+         if (other != kind) {
+            assertThat(proposalPage(Map.of("title", "Observing the stars", "kind", other)).getList("items.code"),
+                  empty());
+         }
+      }
+
+      // the investigator filter matches the other investigators on the proposal
+      assertThat(proposalPage(Map.of("investigatorName", "George Airy")).getList("items.title", String.class),
+            hasItem("Observing the stars"));
+      assertThat(proposalPage(Map.of("investigatorName", "Nobody Atall")).getList("items.code"),
+            empty());
+   }
+
+   @Test
+   void testPageProposalCursor() {
+      List<Integer> clones = List.of(cloneProposal(), cloneProposal());
+
+      //walk the proposal and its clones a page at a time, keeping the filter on every page
+      List<Integer> codes = new ArrayList<>();
+      List<String> titles = new ArrayList<>();
+      Long total = null;
+      String cursor = null;
+      do {
+         Map<String, Object> params = new HashMap<>(Map.of(
+               "title", "Observing the stars%", "pageSize", 1, "includeTotal", true));
+         if (cursor != null) {
+            params.put("cursor", cursor);
+         }
+         var page = proposalPage(params);
+         assertThat(page.getList("items"), hasSize(1));
+         codes.add(page.getInt("items[0].code"));
+         titles.add(page.getString("items[0].title"));
+         total = page.getLong("total");
+         cursor = page.getString("nextCursor");
+      } while (cursor != null);
+
+      assertEquals(total.intValue(), codes.size());
+      assertEquals(codes.size(), new HashSet<>(codes).size());
+      assertTrue(codes.containsAll(clones));
+      // ordered by title, the clones (all the same title) by their codes
+      assertEquals(proposalId, codes.get(0));
+      assertEquals("Observing the stars", titles.get(0));
+      for (int n = 2; n < codes.size(); n++) {
+         assertEquals(titles.get(1), titles.get(n));
+         assertTrue(codes.get(n - 1) < codes.get(n));
+      }
+
+      clones.forEach(clone -> given()
+            .when()
+            .delete("proposals/" + clone)
+            .then()
+            .statusCode(204));
+   }
+
     @Test
     void testReplaceJustification() throws JsonProcessingException {
         //replace the technical justification text
@@ -339,4 +428,177 @@ public class ProposalResourceTest {
       .statusCode(204);
 
    }
+
+   private int cloneProposal() {
+      return given()
+            .when()
+            .contentType(TEXT)
+            .post("proposals/"+proposalId)
+            .then()
+            .statusCode(201)
+            .extract().as(ObservingProposal.class, raObjectMapper).getId().intValue();
+   }
+
+   private int targetCount(int proposal) {
+      return given()
+            .when()
+            .get("proposals/" + proposal + "/targets")
+            .then()
+            .statusCode(200)
+            .extract().jsonPath().getList("$").size();
+   }
+
+   // a plain text target list of 'rows' distinct targets, then the extra lines as they are
+   private static File targetList(int rows, String... extra) throws IOException {
+      List<String> lines = new ArrayList<>();
+      lines.add("#name,ra,dec");
+      for (int n = 1; n <= rows; n++) {
+         lines.add("ingested" + n + "," + (n % 360) + "," + (n % 180 - 90));
+      }
+      lines.addAll(List.of(extra));
+      File file = Files.createTempFile("targets", ".txt").toFile();
+      Files.write(file.toPath(), lines);
+      return file;
+   }
+
+   private io.restassured.path.json.JsonPath ingest(int proposal, File file) {
+      return given()
+            .multiPart("document", file)
+            .when()
+            .post("proposals/" + proposal + "/targets/ingestList")
+            .then()
+            .statusCode(200)
+            .extract().jsonPath();
+   }
+
+   @Test
+   void testIngestTargetList() throws IOException {
+      int clone = cloneProposal();
+      // nothing ingested into the clone yet
+      given()
+            .when()
+            .get("proposals/" + clone + "/targets/ingestList")
+            .then()
+            .statusCode(404);
+      int before = targetCount(clone);
+
+      // more than a chunk, with a name repeated from earlier in the list and one already in the proposal
+      int rows = TargetListIngester.CHUNK_SIZE + 5;
+      File file = targetList(rows, "ingested1,1,1", "fictional,2,2");
+      var report = ingest(clone, file);
+
+      assertTrue(report.getBoolean("finished"));
+      assertNull(report.getString("error"));
+      assertEquals(rows + 2, report.getLong("rowsRead"));
+      assertEquals(rows + 2, report.getLong("lastCommittedRow"));
+      assertEquals(rows, report.getLong("targetsAdded"));
+      assertEquals(2, report.getLong("duplicateCount"));
+      assertEquals(List.of((rows + 1) + ": ingested1", (rows + 2) + ": fictional"),
+            report.getList("duplicates", String.class));
+      assertEquals(before + rows, targetCount(clone));
+
+      // the progress of the finished ingestion is its final report
+      given()
+            .when()
+            .get("proposals/" + clone + "/targets/ingestList")
+            .then()
+            .statusCode(200)
+            .body("finished", equalTo(true))
+            .body("targetsAdded", equalTo(rows))
+            .body("duplicateCount", equalTo(2));
+
+      given().when().delete("proposals/" + clone).then().statusCode(204);
+   }
+
+   @Test
+   void testIngestKeepsTargetsBeforeMalformedRow() throws IOException {
+      int clone = cloneProposal();
+      int before = targetCount(clone);
+
+      // the first chunk is committed before the bad row is read, the rest of the rows before it after
+      int rows = TargetListIngester.CHUNK_SIZE + 3;
+      File file = targetList(rows, "malformed,not-a-number,1", "after,3,3");
+      var report = ingest(clone, file);
+
+      assertTrue(report.getBoolean("finished"));
+      assertThat(report.getString("error"), containsString("row " + (rows + 1)));
+      assertEquals(rows, report.getLong("lastCommittedRow"));
+      assertEquals(rows, report.getLong("targetsAdded"));
+      assertEquals(before + rows, targetCount(clone));
+
+      given()
+            .when()
+            .get("proposals/" + clone + "/targets/ingestList")
+            .then()
+            .statusCode(200)
+            .body("finished", equalTo(true))
+            .body("error", containsString("row " + (rows + 1)));
+
+      given().when().delete("proposals/" + clone).then().statusCode(204);
+   }
+
+   private String proposalETag(int proposal) {
+      return given()
+            .when()
+            .get("proposals/" + proposal)
+            .then()
+            .statusCode(200)
+            .header("ETag", notNullValue())
+            .header("Cache-Control", "private, no-cache")
+            .header("Last-Modified", nullValue()) // restricted to the investigators
+            .extract().header("ETag");
+   }
+
+   private void assertNotModified(int proposal, String eTag) {
+      given()
+            .header("If-None-Match", eTag)
+            .when()
+            .get("proposals/" + proposal)
+            .then()
+            .statusCode(304)
+            .header("ETag", eTag);
+   }
+
+   private String assertModified(int proposal, String eTag) {
+      String current = given()
+            .header("If-None-Match", eTag)
+            .when()
+            .get("proposals/" + proposal)
+            .then()
+            .statusCode(200)
+            .extract().header("ETag");
+      assertThat(current, not(equalTo(eTag)));
+      return current;
+   }
+
+   @Test
+   void testConditionalGetProposal() {
+      int clone = cloneProposal();
+      String eTag = proposalETag(clone);
+      assertNotModified(clone, eTag);
+
+      // a write to the proposal changes its version
+      given()
+            .body("Observing conditionally")
+            .header("Content-Type", MediaType.TEXT_PLAIN)
+            .when()
+            .put("proposals/" + clone + "/title")
+            .then()
+            .statusCode(201);
+      eTag = assertModified(clone, eTag);
+      assertNotModified(clone, eTag);
+
+      // so does a write to one of its investigators, which are part of the proposal
+      given()
+            .body(person.getFullName())
+            .header("Content-Type", MediaType.TEXT_PLAIN)
+            .when()
+            .put("people/" + person.getId() + "/fullName")
+            .then()
+            .statusCode(201);
+      eTag = assertModified(clone, eTag);
+      assertNotModified(clone, eTag);
+
+      given().when().delete("proposals/" + clone).then().statusCode(204);
+   }
 }
@@ -0,0 +1,152 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Runs a REST call and fails if it makes Hibernate prepare more SQL statements than the budget
+ * declared for the endpoint.
+ * <p>
+ * Every measured call is written to build/statement-budgets/&lt;endpoint&gt;.sql, one normalised statement
+ * per line. If a baseline for the endpoint is on the test classpath (statement-budgets/&lt;endpoint&gt;.sql,
+ * recorded with "gradle test recordStatementBudgets" when a budget is changed), the failure message is a
+ * diff against it: the statements that now run more often ("+") or less often ("-") than in the baseline.
+ * Without a baseline it lists the distinct statements with their counts, repeated ones (the usual sign of
+ * an N+1 select) first.
+ */
+public class StatementBudget {
+
+    private static final int MAX_SQL_LENGTH = 200;
+    private static final String BASELINE_DIRECTORY = "statement-budgets";
+    private static final Path OUTPUT_DIRECTORY = Path.of("build", BASELINE_DIRECTORY);
+
+    private final StatementRecorder recorder;
+    private final SessionFactory sessionFactory;
+
+    public StatementBudget(StatementRecorder recorder, SessionFactory sessionFactory) {
+        this.recorder = recorder;
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * @param endpoint a description of the call, e.g. "GET proposals/{proposalCode}"
+     * @param budget the maximum number of statements the call may prepare
+     * @param call the call, including its own status/body assertions
+     * @return the statements that ran
+     */
+    public List<String> assertWithin(String endpoint, int budget, Runnable call) {
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        recorder.start();
+        List<String> statements;
+        try {
+            call.run();
+        } finally {
+            statements = recorder.stop();
+        }
+
+        List<String> normalised = statements.stream().map(StatementBudget::normalise).toList();
+        write(endpoint, normalised);
+        if (statements.size() > budget) {
+            fail(report(endpoint, budget, normalised, baseline(endpoint), statistics));
+        }
+        return statements;
+    }
+
+    static String report(String endpoint, int budget, List<String> statements, List<String> baseline,
+                         Statistics statistics) {
+        StringBuilder sb = new StringBuilder()
+                .append(endpoint).append(": ")
+                .append(statements.size()).append(" statements, budget ").append(budget)
+                .append(" (+").append(statements.size() - budget).append(")\n");
+        if (statistics.isStatisticsEnabled()) {
+            sb.append("  entities loaded: ").append(statistics.getEntityLoadCount())
+                    .append(", entities fetched: ").append(statistics.getEntityFetchCount())
+                    .append(", collections fetched: ").append(statistics.getCollectionFetchCount())
+                    .append("\n");
+        }
+
+        Map<String, Integer> counts = counts(statements);
+        if (baseline == null) {
+            sb.append("  no baseline for this endpoint, statements by count:\n");
+            counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(e -> sb.append(e.getValue() > 1 ? "  ! " : "    ")
+                            .append(String.format("%4dx ", e.getValue()))
+                            .append(abbreviate(e.getKey()))
+                            .append("\n"));
+            return sb.toString();
+        }
+
+        Map<String, Integer> expected = counts(baseline);
+        sb.append("  against the baseline of ").append(baseline.size()).append(" statements:\n");
+        Set<String> all = new LinkedHashSet<>(expected.keySet());
+        all.addAll(counts.keySet());
+        for (String sql : all) {
+            int difference = counts.getOrDefault(sql, 0) - expected.getOrDefault(sql, 0);
+            if (difference != 0) {
+                sb.append(difference > 0 ? "  + " : "  - ")
+                        .append(String.format("%4dx ", Math.abs(difference)))
+                        .append(abbreviate(sql))
+                        .append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, Integer> counts(List<String> statements) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        statements.forEach(s -> counts.merge(s, 1, Integer::sum));
+        return counts;
+    }
+
+    private static List<String> baseline(String endpoint) {
+        String resource = BASELINE_DIRECTORY + "/" + fileName(endpoint);
+        try (InputStream in = StatementBudget.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                return null;
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+                    .filter(l -> !l.isBlank())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void write(String endpoint, List<String> statements) {
+        try {
+            Files.createDirectories(OUTPUT_DIRECTORY);
+            Files.write(OUTPUT_DIRECTORY.resolve(fileName(endpoint)), statements, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // e.g. "GET proposals/{proposalCode}" -> "GET_proposals_proposalCode.sql"
+    static String fileName(String endpoint) {
+        return endpoint.replaceAll("[^A-Za-z0-9]+", "_").replaceAll("_+$", "") + ".sql";
+    }
+
+    private static String normalise(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+
+    private static String abbreviate(String sql) {
+        return sql.length() > MAX_SQL_LENGTH ? sql.substring(0, MAX_SQL_LENGTH) + "..." : sql;
+    }
+}
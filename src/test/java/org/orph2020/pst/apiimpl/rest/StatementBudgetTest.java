@@ -0,0 +1,115 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.security.TestSecurity;
+import io.quarkus.test.security.oidc.Claim;
+import io.quarkus.test.security.oidc.OidcSecurity;
+import io.quarkus.test.security.oidc.UserInfo;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.core.MediaType;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+/**
+ * Statement budgets for the most used endpoints - fails when a change makes one of them issue more
+ * SQL statements than declared here, e.g. by introducing an N+1 select. Each call is made once
+ * before it is measured, so that caches (subject to person, reference data) are in their steady state.
+ * <p>
+ * The budgets are the measured counts, so any additional statement fails. When an endpoint is improved
+ * lower its budget in the same commit, when a budget has to be raised say why.
+ */
+@QuarkusTest
+@TestSecurity(user = "pi", roles = "default-roles-orppst")
+@OidcSecurity(claims = {
+      @Claim(key = "email", value = "pi@unreal.not.email")
+      ,@Claim(key = "sub", value = "bb0b065f-6dc3-4062-9b3e-525c1a1a9bec")
+}, userinfo = {
+      @UserInfo(key = "sub", value = "bb0b065f-6dc3-4062-9b3e-525c1a1a9bec")
+})
+public class StatementBudgetTest {
+
+    @Inject
+    StatementRecorder recorder;
+
+    @Inject
+    SessionFactory sessionFactory;
+
+    private StatementBudget budget;
+    private int proposalId;
+
+    @BeforeEach
+    void setup() {
+        budget = new StatementBudget(recorder, sessionFactory);
+        proposalId = given()
+                .when()
+                .get("proposals")
+                .then()
+                .statusCode(200)
+                .body("$.size()", greaterThanOrEqualTo(1))
+                .extract().jsonPath().getInt("[0].code");
+    }
+
+    private void measure(String endpoint, int statements, Runnable call) {
+        call.run();
+        budget.assertWithin(endpoint, statements, call);
+    }
+
+    @Test
+    void testListEndpoints() {
+        measure("GET proposals", 2,
+                () -> given().when().get("proposals").then().statusCode(200));
+        measure("GET people", 1,
+                () -> given().when().get("people").then().statusCode(200));
+        measure("GET proposalCycles", 1,
+                () -> given().when().get("proposalCycles").then().statusCode(200));
+        measure("GET proposals/{proposalCode}/targets", 3,
+                () -> given().when().get("proposals/" + proposalId + "/targets").then().statusCode(200));
+        measure("GET proposals/{proposalCode}/fields", 3,
+                () -> given().when().get("proposals/" + proposalId + "/fields").then().statusCode(200));
+    }
+
+    @Test
+    void testSingleProposal() {
+        // the conditional GET checks the investigator and reads the version (2), the proposal is found (1)
+        // and loaded with the FULL fetch profile (9), a few to-one associations are still loaded lazily
+        measure("GET proposals/{proposalCode}", 16,
+                () -> given().when().get("proposals/" + proposalId).then().statusCode(200));
+    }
+
+    @Test
+    void testProposalsSubmitted() {
+        int submitted = given().when().get("proposalsSubmitted")
+                .then().statusCode(200)
+                .extract().jsonPath().getList("$").size();
+        // known N+1: each submitted proposal, its related proposals and its reviews are loaded
+        // separately to build its synopsis
+        budget.assertWithin("GET proposalsSubmitted", 1 + 3 * submitted,
+                () -> given().when().get("proposalsSubmitted").then().statusCode(200));
+    }
+
+    @Test
+    void testImportProposal() {
+        String exported = given()
+                .when()
+                .get("proposals/" + proposalId + "/export")
+                .then()
+                .statusCode(200)
+                .extract().asString();
+
+        // not measured twice - every import creates a new proposal. The people are looked up with one
+        // query, the proposal graph is inserted in batches by entity (joined subclasses have a statement for
+        // each of their tables) and supporting document entries are not inserted at all
+        budget.assertWithin("POST proposals/import", 150,
+                () -> given()
+                        .body(exported)
+                        .header("Content-Type", MediaType.APPLICATION_JSON)
+                        .when()
+                        .post("proposals/import")
+                        .then()
+                        .statusCode(200));
+    }
+}
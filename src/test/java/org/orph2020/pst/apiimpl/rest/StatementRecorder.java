@@ -0,0 +1,69 @@
+package org.orph2020.pst.apiimpl.rest;
+
+import io.quarkus.arc.Arc;
+import io.quarkus.hibernate.orm.PersistenceUnitExtension;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL statements Hibernate prepares for HTTP requests while recording is switched on, so that
+ * tests can check how many statements a REST call costs. Statements made outside a request, e.g. by the
+ * scheduled JobRunner or a job it runs, are not recorded even though they run at the same time. Only
+ * present in the test build.
+ * @see StatementBudget
+ */
+@PersistenceUnitExtension
+@ApplicationScoped
+public class StatementRecorder implements StatementInspector {
+
+    /**
+     * Marks the request context of an HTTP request, so that its statements can be told apart from those
+     * of other work running on the same worker threads.
+     */
+    @RequestScoped
+    public static class HttpRequest {
+        boolean marked = false;
+    }
+
+    @Inject
+    HttpRequest httpRequest;
+
+    private final List<String> statements = new ArrayList<>();
+    private volatile boolean recording = false;
+
+    // pre-matching, so that the statements of the other filters (e.g. ConditionalGetFilter) are recorded too
+    @ServerRequestFilter(preMatching = true)
+    public void markHttpRequest() {
+        httpRequest.marked = true;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (recording && Arc.container().requestContext().isActive() && httpRequest.marked) {
+            synchronized (statements) {
+                statements.add(sql);
+            }
+        }
+        return sql;
+    }
+
+    public void start() {
+        synchronized (statements) {
+            statements.clear();
+        }
+        recording = true;
+    }
+
+    public List<String> stop() {
+        recording = false;
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.orph2020.pst.apiimpl.validation;
+
+import org.ivoa.dm.proposal.prop.TextFormats;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The standard rules, run directly on hand made facts.
+ */
+public class StandardRulesTest {
+
+    private static final Date NOW = new Date(1_000_000_000_000L);
+    private static final Date LATER = new Date(NOW.getTime() + 3_600_000L);
+    private static final Date EARLIER = new Date(NOW.getTime() - 3_600_000L);
+
+    private static ProposalFacts facts(long targets, long observations, TextFormats format, String text,
+                                       boolean pdf, Date deadline) {
+        return new ProposalFacts(1L, "title", targets, 1, observations, format, text, format, text, pdf,
+                deadline, "Jodrell Bank", Set.of("e-MERLIN"));
+    }
+
+    private static ProposalFacts complete() {
+        return facts(1, 1, TextFormats.LATEX, "x".repeat(300), true, LATER);
+    }
+
+    private static ValidationReport run(ValidationRule rule, ProposalFacts facts) {
+        ValidationReport report = new ValidationReport(facts.proposalId(), facts.title());
+        rule.check(facts, NOW, report);
+        return report;
+    }
+
+    private static List<String> errors(ValidationReport report) {
+        return report.messages(Severity.ERROR).stream().map(m -> m.message).toList();
+    }
+
+    @Test
+    void testTargetsDefined() {
+        ValidationRule rule = new StandardRules.TargetsDefined();
+        assertEquals(List.of("No targets defined."),
+                errors(run(rule, facts(0, 1, TextFormats.LATEX, "text", true, LATER))));
+        assertTrue(run(rule, complete()).messages.isEmpty());
+    }
+
+    @Test
+    void testSubmissionDeadline() {
+        ValidationRule rule = new StandardRules.SubmissionDeadline();
+
+        ValidationReport report = new ValidationReport();
+        assertEquals(LATER, rule.check(complete(), NOW, report));
+        assertTrue(report.messages.isEmpty());
+
+        assertEquals(List.of("The submission deadline has passed."),
+                errors(run(rule, facts(1, 1, TextFormats.LATEX, "text", true, EARLIER))));
+        // only checked once there are observations
+        assertTrue(run(rule, facts(1, 0, TextFormats.LATEX, "text", true, EARLIER)).messages.isEmpty());
+    }
+
+    @Test
+    void testJustificationPdf() {
+        ValidationRule rule = new StandardRules.JustificationPdf();
+        assertTrue(run(rule, complete()).messages.isEmpty());
+        assertEquals(1, errors(run(rule, facts(1, 1, TextFormats.LATEX, "text", false, LATER))).size());
+        assertEquals(1, errors(run(rule, facts(1, 1, TextFormats.ASCIIDOC, "text", true, LATER))).size());
+    }
+
+    @Test
+    void testJustificationLength() {
+        StandardRules.JustificationLength rule = new StandardRules.JustificationLength();
+        rule.warningLength = 256;
+
+        assertTrue(run(rule, complete()).messages.isEmpty());
+
+        ValidationReport shortText = run(rule, facts(1, 1, TextFormats.LATEX, "short", true, LATER));
+        assertTrue(shortText.messages(Severity.ERROR).isEmpty());
+        assertEquals(2, shortText.messages(Severity.WARNING).size());
+
+        ValidationReport empty = run(rule, facts(1, 1, TextFormats.LATEX, " ", true, LATER));
+        assertEquals(List.of("No scientific justification text written.", "No technical justification text written."),
+                errors(empty));
+
+        // not checked until compiled
+        assertTrue(run(rule, facts(1, 1, TextFormats.LATEX, " ", false, LATER)).messages.isEmpty());
+    }
+
+    @Test
+    void testAppliesTo() {
+        ValidationRule rule = new StandardRules.TargetsDefined() {
+            @Override
+            public Set<String> observatories() {
+                return Set.of("Elsewhere");
+            }
+        };
+        assertFalse(rule.appliesTo(complete()));
+        assertTrue(new StandardRules.TargetsDefined().appliesTo(complete()));
+    }
+}